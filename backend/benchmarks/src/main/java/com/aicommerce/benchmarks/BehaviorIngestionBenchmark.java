@@ -0,0 +1,92 @@
+package com.aicommerce.benchmarks;
+
+import com.aicommerce.behavior.BehaviorRecorder;
+import com.aicommerce.behavior.BehaviorWriter;
+import com.aicommerce.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户行为采集基准：多个请求线程同时记录行为时，单次记录在请求线程上的耗时
+ *
+ * 心理过程：
+ * 1. draining=true时后台线程持续落库（批量插入替换为空操作），测量正常情况下入队的开销
+ * 2. draining=false时没有消费者，缓冲区很快写满，测量抽样和丢弃路径，确认写不进去时也不会变慢
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class BehaviorIngestionBenchmark {
+
+    private static final int PRODUCTS = 1_000;
+
+    @Param({"true", "false"})
+    private boolean draining;
+
+    private BehaviorRecorder recorder;
+    private Product[] products;
+    private Thread drainer;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(5);
+        products = new Product[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            products[i] = BenchmarkSupport.product(i + 1, random);
+        }
+
+        recorder = new BehaviorRecorder();
+        BenchmarkSupport.inject(recorder, "meterRegistry", new SimpleMeterRegistry());
+        BenchmarkSupport.inject(recorder, "enabled", true);
+        BenchmarkSupport.inject(recorder, "bufferSize", 65536);
+        BenchmarkSupport.inject(recorder, "sampleThreshold", 0.5);
+        BenchmarkSupport.inject(recorder, "sampleRate", 0.1);
+        recorder.init();
+
+        if (draining) {
+            BehaviorWriter writer = new BehaviorWriter();
+            BenchmarkSupport.inject(writer, "recorder", recorder);
+            BenchmarkSupport.inject(writer, "jdbcTemplate", new JdbcTemplate() {
+                @Override
+                public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                               ParameterizedPreparedStatementSetter<T> setter) {
+                    return new int[0][];
+                }
+            });
+            BenchmarkSupport.inject(writer, "batchSize", 1000);
+            BenchmarkSupport.inject(writer, "maxBatchesPerFlush", 20);
+            drainer = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    writer.flush();
+                    Thread.onSpinWait();
+                }
+            }, "behavior-drainer");
+            drainer.setDaemon(true);
+            drainer.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (drainer != null) {
+            drainer.interrupt();
+        }
+    }
+
+    @Benchmark
+    public void recordView() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        recorder.recordView((long) random.nextInt(100_000), products[random.nextInt(PRODUCTS)]);
+    }
+}
@@ -0,0 +1,38 @@
+package com.aicommerce.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * 基准测试入口
+ * 
+ * 心理过程：
+ * 1. 兼容JMH全部命令行参数，例如只跑某个基准：java -jar benchmarks.jar Jwt
+ * 2. 未指定结果格式时默认输出JSON到results/benchmark-日期.json，方便逐版本对比
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            Files.createDirectories(Path.of("results"));
+            options.result("results/benchmark-" + LocalDate.now() + ".json");
+        }
+
+        new Runner(options.build()).run();
+    }
+}
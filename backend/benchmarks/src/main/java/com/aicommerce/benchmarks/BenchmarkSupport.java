@@ -0,0 +1,122 @@
+package com.aicommerce.benchmarks;
+
+import com.aicommerce.config.JacksonConfig;
+import com.aicommerce.model.Category;
+import com.aicommerce.model.Product;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * 基准测试公共工具
+ * 
+ * 心理过程：
+ * 1. 不启动Spring容器，按字段名注入依赖，只测被测方法本身
+ * 2. 仓库接口用动态代理按方法名打桩，未打桩的方法直接报错，防止意外访问数据库
+ * 3. ObjectMapper按application.yml中的Jackson配置构造，序列化结果与线上一致
+ */
+final class BenchmarkSupport {
+
+    private static final String[] BRANDS = {"Apple", "Nike", "华为", "小米", "Sony", "机械工业出版社", "Adidas", "联想"};
+    private static final String[] NOUNS = {"手机", "笔记本电脑", "运动鞋", "耳机", "编程书籍", "智能手表", "背包", "显示器"};
+    private static final String[] ADJECTIVES = {"经典", "轻薄", "旗舰", "专业", "入门", "限量", "新款", "高性能"};
+
+    private BenchmarkSupport() {}
+
+    static void inject(Object target, String fieldName, Object value) {
+        Class<?> type = target.getClass();
+        while (type != null) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("字段不存在: " + fieldName);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> handler = methods.get(method.getName());
+            if (handler != null) {
+                return handler.apply(args);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " 未打桩");
+        });
+    }
+
+    static ObjectMapper objectMapper() {
+        JacksonConfig jacksonConfig = new JacksonConfig();
+        return baselineObjectMapper()
+                .registerModule(jacksonConfig.blackbirdModule())
+                .registerModule(jacksonConfig.hibernateModule());
+    }
+
+    /**
+     * 不含JacksonConfig中模块的ObjectMapper，作为序列化基准的对照组
+     */
+    static ObjectMapper baselineObjectMapper() {
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    /**
+     * 生成可复现的商品数据，名称和描述混合中英文，用于搜索和序列化基准
+     */
+    static Product product(long id, Random random) {
+        String brand = BRANDS[random.nextInt(BRANDS.length)];
+        String noun = NOUNS[random.nextInt(NOUNS.length)];
+        String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+
+        Product product = new Product(
+                brand + " " + adjective + noun + " " + (char) ('A' + random.nextInt(26)) + random.nextInt(100),
+                adjective + "的" + noun + "，适合日常使用 model-" + id,
+                BigDecimal.valueOf(10 + random.nextInt(10000), 2).add(BigDecimal.ONE));
+        product.setId(id);
+        product.setBrand(brand);
+        product.setSku("SKU-" + id);
+        product.setStockQuantity(random.nextInt(500));
+        product.setTags("[\"" + noun + "\", \"" + brand.toLowerCase() + "\"]");
+        product.setImages("[\"https://img.example.com/" + id + ".jpg\"]");
+        product.setRating(BigDecimal.valueOf(random.nextInt(500), 2));
+        product.setReviewCount(random.nextInt(1000));
+        product.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(id));
+        product.setUpdatedAt(product.getCreatedAt());
+        product.setIsActive(true);
+        if (random.nextInt(3) == 0) {
+            product.setDiscountPrice(product.getPrice().multiply(new BigDecimal("0.8")));
+        }
+
+        Category category = new Category();
+        category.setId((long) (1 + random.nextInt(5)));
+        category.setName(noun);
+        product.setCategory(category);
+        return product;
+    }
+}
@@ -0,0 +1,58 @@
+package com.aicommerce.benchmarks;
+
+import com.aicommerce.cart.JpaCartStore;
+import com.aicommerce.model.CartItem;
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.CartItemRepository;
+import com.aicommerce.service.CartService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 购物车汇总基准：测量BigDecimal小计累加随购物车行数的增长
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartSummaryBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int lines;
+
+    private CartService cartService;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        List<CartItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            Product product = BenchmarkSupport.product(i + 1, random);
+            product.setStockQuantity(1000);
+            CartItem item = new CartItem(null, product, 1 + random.nextInt(5));
+            item.setId((long) i + 1);
+            items.add(item);
+        }
+
+        CartItemRepository repository = BenchmarkSupport.stub(CartItemRepository.class, Map.of(
+                "findWithProductByUserId", args -> items,
+                "findViewByUserId", args -> items,
+                "findByUserIdOrderByCreatedAtDesc", args -> items));
+        JpaCartStore cartStore = new JpaCartStore();
+        BenchmarkSupport.inject(cartStore, "cartItemRepository", repository);
+        cartService = new CartService();
+        BenchmarkSupport.inject(cartService, "cartStore", cartStore);
+    }
+
+    @Benchmark
+    public CartService.CartSummary getCartSummary() {
+        return cartService.getCartSummary(1L);
+    }
+}
@@ -0,0 +1,97 @@
+package com.aicommerce.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP压测：固定并发数持续请求一个接口，输出吞吐和延迟分位数，用于对比平台线程和虚拟线程
+ *
+ * 心理过程：
+ * 1. 同一份后端分别以VIRTUAL_THREADS=false和true启动（虚拟线程需要JDK 21），用相同参数各跑一次
+ * 2. 客户端异步发送，信号量维持在途请求数等于并发数，每个在途请求占一条连接
+ * 3. 预热阶段的请求不计入结果，非2xx响应和超时计为失败，失败请求不计入延迟
+ *
+ * 运行：java -cp target/benchmarks.jar com.aicommerce.benchmarks.HttpLoadTest [URL] [并发数] [持续秒数] [预热秒数]
+ * 并发数较大时需先调高文件描述符上限，例如 ulimit -n 65536
+ */
+public final class HttpLoadTest {
+
+    private static final int MAX_SAMPLES = 10_000_000;
+
+    private HttpLoadTest() {}
+
+    public static void main(String[] args) throws InterruptedException {
+        URI uri = URI.create(args.length > 0 ? args[0] : "http://localhost:8081/api/products?page=0&size=20");
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        long durationSeconds = args.length > 2 ? Long.parseLong(args[2]) : 60;
+        long warmupSeconds = args.length > 3 ? Long.parseLong(args[3]) : 10;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+
+        long[] latencies = new long[MAX_SAMPLES];
+        AtomicInteger samples = new AtomicInteger();
+        AtomicLong failures = new AtomicLong();
+        Semaphore inFlight = new Semaphore(concurrency);
+
+        long begin = System.nanoTime();
+        long measureFrom = begin + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        while (System.nanoTime() < end) {
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                try {
+                    record(System.nanoTime(), sent, measureFrom, end, response, error, latencies, samples, failures);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        // 等待所有在途请求结束，保证读取延迟数组时没有并发写入
+        inFlight.acquire(concurrency);
+
+        int count = Math.min(samples.get(), MAX_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("URL=%s 并发=%d 时长=%ds 成功=%d 失败=%d 吞吐=%.0f次/秒%n",
+                uri, concurrency, durationSeconds, count, failures.get(), count / (double) durationSeconds);
+        System.out.printf("延迟(ms) p50=%.1f p90=%.1f p99=%.1f p999=%.1f max=%.1f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), count == 0 ? 0 : sorted[count - 1] / 1e6);
+    }
+
+    private static void record(long finished, long sent, long measureFrom, long end, HttpResponse<Void> response,
+                               Throwable error, long[] latencies, AtomicInteger samples, AtomicLong failures) {
+        if (sent < measureFrom || finished > end) {
+            return;
+        }
+        if (error != null || response.statusCode() / 100 != 2) {
+            failures.incrementAndGet();
+            return;
+        }
+        int index = samples.getAndIncrement();
+        if (index < MAX_SAMPLES) {
+            latencies[index] = finished - sent;
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,72 @@
+package com.aicommerce.benchmarks;
+
+import com.aicommerce.inventory.InventoryEngine;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 秒杀场景压力校验：大量线程争抢有限库存，校验成功扣减数恰好等于初始库存
+ * 
+ * 运行：java -cp target/benchmarks.jar com.aicommerce.benchmarks.InventoryStressCheck [库存] [线程数] [每线程请求数]
+ */
+public final class InventoryStressCheck {
+
+    private InventoryStressCheck() {}
+
+    public static void main(String[] args) throws InterruptedException {
+        int stock = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int attemptsPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        AtomicInteger databaseStock = new AtomicInteger(stock);
+        InventoryEngine engine = new InventoryEngine();
+        BenchmarkSupport.inject(engine, "productRepository", InventoryBenchmark.simulatedRepository(databaseStock));
+        BenchmarkSupport.inject(engine, "resyncInterval", Duration.ofSeconds(30));
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    try {
+                        engine.deduct(1L, 1);
+                        succeeded.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        long requests = (long) threads * attemptsPerThread;
+        System.out.printf("请求数=%d 成功=%d 拒绝=%d 数据库剩余库存=%d 内存可用库存=%d 耗时=%dms 吞吐=%.0f次/秒%n",
+                requests, succeeded.get(), rejected.get(), databaseStock.get(), engine.getAvailable(1L),
+                elapsedMillis, requests * 1000.0 / Math.max(1, elapsedMillis));
+
+        int expected = (int) Math.min(stock, requests);
+        if (succeeded.get() != expected || databaseStock.get() != stock - expected || engine.getAvailable(1L) != stock - expected) {
+            System.err.println("校验失败：出现超卖或库存不一致");
+            System.exit(1);
+        }
+        System.out.println("校验通过：无超卖");
+    }
+}
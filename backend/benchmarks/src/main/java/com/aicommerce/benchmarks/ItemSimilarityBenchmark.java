@@ -0,0 +1,161 @@
+package com.aicommerce.benchmarks;
+
+import com.aicommerce.recommendation.ItemSimilarityIndex;
+import com.aicommerce.recommendation.SimilarProduct;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 相似商品基准：进程内item-item索引对比经HTTP调用Python AI服务的/recommendations/similar
+ *
+ * 心理过程：
+ * 1. 交互数据按热门商品加同类商品聚集的方式生成，共现分布接近真实购物数据
+ * 2. 相似度索引的全量构建走与线上相同的代码，只把数据库查询换成内存中的行
+ * 3. 同时测量一笔新订单增量累加并重算受影响商品的耗时
+ * 4. aiService需要先启动ai-service，默认地址http://localhost:5000，未启动时该项报错，其余照常运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class ItemSimilarityBenchmark {
+
+    private static final int ITEMS_PER_USER = 15;
+    private static final int CLUSTER_SIZE = 50;
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    private ItemSimilarityIndex index;
+    private int users;
+
+    @Setup
+    public void setup() {
+        users = catalogSize * 2;
+        long[][] interactions = interactions(new Random(11));
+
+        int[] cursor = {-1};
+        ResultSet row = BenchmarkSupport.stub(ResultSet.class, Map.of(
+                "getLong", args -> interactions[cursor[0]][(Integer) args[0] - 1],
+                "getDouble", args -> (double) interactions[cursor[0]][2]));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public void query(PreparedStatementCreator creator, RowCallbackHandler handler) {
+                try {
+                    for (cursor[0] = 0; cursor[0] < interactions.length; cursor[0]++) {
+                        handler.processRow(row);
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        PlatformTransactionManager transactionManager = BenchmarkSupport.stub(PlatformTransactionManager.class, Map.of(
+                "getTransaction", args -> new SimpleTransactionStatus(),
+                "commit", args -> null,
+                "rollback", args -> null));
+
+        index = new ItemSimilarityIndex();
+        BenchmarkSupport.inject(index, "jdbcTemplate", jdbcTemplate);
+        BenchmarkSupport.inject(index, "transactionManager", transactionManager);
+        BenchmarkSupport.inject(index, "enabled", true);
+        BenchmarkSupport.inject(index, "neighbors", 20);
+        BenchmarkSupport.inject(index, "maxItemsPerUser", 200);
+        index.init();
+        index.rebuild();
+    }
+
+    @Benchmark
+    public List<SimilarProduct> javaIndex() {
+        return index.similar(1 + ThreadLocalRandom.current().nextInt(catalogSize), 10);
+    }
+
+    @Benchmark
+    public void applyOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long first = 1 + random.nextInt(catalogSize);
+        index.recordPurchaseAfterCommit(1L + random.nextInt(users),
+                List.of(first, clusterNeighbor(first, random), 1L + random.nextInt(catalogSize)));
+        index.applyPending();
+    }
+
+    @Benchmark
+    public String aiService(AiService aiService) throws IOException, InterruptedException {
+        return aiService.similar(1 + ThreadLocalRandom.current().nextInt(catalogSize));
+    }
+
+    @State(Scope.Benchmark)
+    public static class AiService {
+
+        @Param({"http://localhost:5000"})
+        private String aiServiceUrl;
+
+        private HttpClient client;
+
+        @Setup
+        public void setup() throws IOException, InterruptedException {
+            client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+            try {
+                client.send(HttpRequest.newBuilder(URI.create(aiServiceUrl + "/health")).build(),
+                        HttpResponse.BodyHandlers.discarding());
+            } catch (IOException e) {
+                throw new IllegalStateException("AI服务不可达，请先启动ai-service: " + aiServiceUrl, e);
+            }
+        }
+
+        String similar(long productId) throws IOException, InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create(aiServiceUrl + "/recommendations/similar/" + productId + "?limit=10")).build();
+            return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        }
+    }
+
+    /**
+     * 每行为(用户ID, 商品ID, 权重)，每个用户一半交互落在同一个商品簇内，另一半偏向热门商品
+     */
+    private long[][] interactions(Random random) {
+        long[][] rows = new long[users * ITEMS_PER_USER][];
+        int n = 0;
+        for (int user = 1; user <= users; user++) {
+            long anchor = 1 + random.nextInt(catalogSize);
+            for (int i = 0; i < ITEMS_PER_USER; i++) {
+                long productId = i % 2 == 0
+                        ? clusterNeighbor(anchor, random)
+                        : 1 + (long) (catalogSize * Math.pow(random.nextDouble(), 3));
+                long weight = switch (random.nextInt(4)) {
+                    case 0 -> 1;
+                    case 1 -> 2;
+                    case 2 -> 4;
+                    default -> 10;
+                };
+                rows[n++] = new long[]{user, productId, weight};
+            }
+        }
+        return rows;
+    }
+
+    private long clusterNeighbor(long productId, Random random) {
+        long clusterStart = (productId - 1) / CLUSTER_SIZE * CLUSTER_SIZE;
+        return Math.min(catalogSize, clusterStart + 1 + random.nextInt(CLUSTER_SIZE));
+    }
+}
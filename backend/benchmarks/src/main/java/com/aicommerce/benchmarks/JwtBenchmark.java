@@ -0,0 +1,77 @@
+package com.aicommerce.benchmarks;
+
+import com.aicommerce.model.User;
+import com.aicommerce.security.JwtUtil;
+import com.aicommerce.security.JwtVerificationCache;
+import com.aicommerce.security.TokenRevocationRegistry;
+import com.aicommerce.security.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT签发与验证基准
+ * 
+ * legacyFilterValidation复现旧过滤器的做法：extractUsername + validateToken，共三次完整验签
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private JwtVerificationCache verificationCache;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        BenchmarkSupport.inject(jwtUtil, "jwtSecret", "mySecretKey12345678901234567890123456789012345678901234567890");
+        BenchmarkSupport.inject(jwtUtil, "jwtExpiration", 86_400_000L);
+        BenchmarkSupport.inject(jwtUtil, "refreshExpiration", 604_800_000L);
+        jwtUtil.init();
+
+        TokenRevocationRegistry revocationRegistry = new TokenRevocationRegistry();
+        BenchmarkSupport.inject(revocationRegistry, "syncEnabled", false);
+        BenchmarkSupport.inject(revocationRegistry, "refreshExpiration", 604_800_000L);
+
+        verificationCache = new JwtVerificationCache();
+        BenchmarkSupport.inject(verificationCache, "jwtUtil", jwtUtil);
+        BenchmarkSupport.inject(verificationCache, "revocationRegistry", revocationRegistry);
+        BenchmarkSupport.inject(verificationCache, "meterRegistry", new SimpleMeterRegistry());
+        BenchmarkSupport.inject(verificationCache, "maximumSize", 10_000L);
+        BenchmarkSupport.inject(verificationCache, "maxTtl", Duration.ofMinutes(10));
+        verificationCache.init();
+
+        user = new User("benchmark", "benchmark@example.com", "password");
+        user.setId(42L);
+        token = jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyUncached() {
+        return jwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyCached() {
+        return verificationCache.verify(token);
+    }
+
+    @Benchmark
+    public boolean legacyFilterValidation() {
+        String username = jwtUtil.extractUsername(token);
+        return username != null && jwtUtil.validateToken(token, user);
+    }
+}
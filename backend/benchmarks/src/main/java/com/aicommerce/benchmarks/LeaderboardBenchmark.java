@@ -0,0 +1,115 @@
+package com.aicommerce.benchmarks;
+
+import com.aicommerce.leaderboard.Leaderboard;
+import com.aicommerce.leaderboard.MemoryLeaderboardStore;
+import com.aicommerce.model.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 评分榜基准：进程内有序数组对比原有的ORDER BY rating DESC分页查询
+ *
+ * 心理过程：
+ * 1. 数据库用H2内存库代替PostgreSQL，分页需要一条COUNT加一条排序查询，与Spring Data的Page查询一致
+ * 2. 分别取第一页和较深的一页，有序数组按下标定位，与页码无关
+ * 3. 评分更新衡量增量维护的代价：二分查找加一次数组挪动
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeaderboardBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000", "100000"})
+    private int catalogSize;
+
+    @Param({"0", "50"})
+    private int page;
+
+    private MemoryLeaderboardStore store;
+    private Connection connection;
+    private PreparedStatement countStatement;
+    private PreparedStatement pageStatement;
+    private Random random;
+
+    @Setup
+    public void setup() throws SQLException {
+        random = new Random(11);
+        long[] productIds = new long[catalogSize];
+        long[] scores = new long[catalogSize];
+
+        connection = DriverManager.getConnection("jdbc:h2:mem:leaderboard" + catalogSize + ";MODE=PostgreSQL");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS products");
+            statement.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, rating DECIMAL(3,2), is_active BOOLEAN)");
+            statement.execute("CREATE INDEX idx_products_rating_id ON products (rating, id)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO products (id, rating, is_active) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < catalogSize; i++) {
+                Product product = BenchmarkSupport.product(i + 1, random);
+                productIds[i] = product.getId();
+                scores[i] = product.getRating().movePointRight(2).longValue();
+                insert.setLong(1, product.getId());
+                insert.setBigDecimal(2, product.getRating());
+                insert.setBoolean(3, true);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        store = new MemoryLeaderboardStore();
+        store.replaceAll(Leaderboard.TOP_RATED, productIds, scores);
+
+        countStatement = connection.prepareStatement("SELECT COUNT(*) FROM products WHERE is_active = TRUE");
+        pageStatement = connection.prepareStatement(
+                "SELECT id FROM products WHERE is_active = TRUE ORDER BY rating DESC LIMIT ? OFFSET ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long[] sortedArrays() {
+        long[] productIds = store.range(Leaderboard.TOP_RATED, (long) page * PAGE_SIZE, PAGE_SIZE);
+        store.size(Leaderboard.TOP_RATED);
+        return productIds;
+    }
+
+    @Benchmark
+    public long[] orderByQuery() throws SQLException {
+        try (ResultSet rs = countStatement.executeQuery()) {
+            rs.next();
+        }
+
+        pageStatement.setInt(1, PAGE_SIZE);
+        pageStatement.setInt(2, page * PAGE_SIZE);
+        long[] productIds = new long[PAGE_SIZE];
+        int count = 0;
+        try (ResultSet rs = pageStatement.executeQuery()) {
+            while (rs.next()) {
+                productIds[count++] = rs.getLong(1);
+            }
+        }
+        return productIds;
+    }
+
+    @Benchmark
+    public void ratingUpdate() {
+        store.put(Leaderboard.TOP_RATED, 1 + random.nextInt(catalogSize), random.nextInt(500));
+    }
+}
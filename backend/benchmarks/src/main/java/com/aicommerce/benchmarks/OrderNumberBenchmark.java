@@ -0,0 +1,48 @@
+package com.aicommerce.benchmarks;
+
+import com.aicommerce.service.OrderNumberGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成基准
+ * 
+ * legacyFormat复现旧实现的字符串拼装部分（不含existsByOrderNumber查库），作为对照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderNumberBenchmark {
+
+    private OrderNumberGenerator generator;
+
+    @Setup
+    public void setup() {
+        generator = new OrderNumberGenerator(1, ZoneId.of("Asia/Shanghai"));
+    }
+
+    @Benchmark
+    public String snowflake() {
+        return generator.nextOrderNumber();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String snowflakeContended() {
+        return generator.nextOrderNumber();
+    }
+
+    @Benchmark
+    public String legacyFormat() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        String randomSuffix = String.valueOf((int) (Math.random() * 1000));
+        return "ORD" + timestamp + String.format("%03d", Integer.parseInt(randomSuffix));
+    }
+}
@@ -0,0 +1,124 @@
+package com.aicommerce.benchmarks;
+
+import com.aicommerce.cache.CategoryTree;
+import com.aicommerce.model.Category;
+import com.aicommerce.model.Order;
+import com.aicommerce.model.OrderItem;
+import com.aicommerce.model.Product;
+import com.aicommerce.model.User;
+import com.aicommerce.response.PageResponse;
+import com.aicommerce.response.ProductView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson序列化基准
+ *
+ * productPage、orderPage按原先控制器的HashMap响应结构直接序列化实体，使用不含Blackbird的ObjectMapper，作为对照；
+ * productPageView按现在的商品列表接口先转换为ProductView再序列化PageResponse，使用与线上一致的ObjectMapper
+ * 加 -prof gc 运行时gc.alloc.rate.norm即每次操作分配的字节数，响应体字节数在setup时打印
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private ObjectMapper baselineObjectMapper;
+    private ObjectMapper objectMapper;
+    private List<Product> products;
+    private CategoryTree categories;
+    private Map<String, Object> productPage;
+    private Map<String, Object> orderPage;
+
+    @Setup
+    public void setup() {
+        baselineObjectMapper = BenchmarkSupport.baselineObjectMapper();
+        objectMapper = BenchmarkSupport.objectMapper();
+        Random random = new Random(11);
+
+        products = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            products.add(BenchmarkSupport.product(i + 1, random));
+        }
+        Map<Long, Category> distinctCategories = new HashMap<>();
+        products.forEach(product -> distinctCategories.put(product.getCategory().getId(), product.getCategory()));
+        categories = CategoryTree.build(new ArrayList<>(distinctCategories.values()));
+        productPage = pageResponse(products);
+
+        User user = new User("benchmark", "benchmark@example.com", "password");
+        user.setId(1L);
+        List<Order> orders = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Order order = new Order(user, "ORD" + (20240101000000000L + i) + "00010001",
+                    BigDecimal.ZERO, "北京市海淀区中关村大街1号");
+            order.setId((long) i + 1);
+            order.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0).plusHours(i));
+            List<OrderItem> items = new ArrayList<>();
+            BigDecimal total = BigDecimal.ZERO;
+            for (int j = 0; j < 3; j++) {
+                Product product = products.get((i + j) % PAGE_SIZE);
+                OrderItem item = new OrderItem(order, product, 1 + j, product.getPrice());
+                item.setId((long) i * 3 + j + 1);
+                items.add(item);
+                total = total.add(product.getPrice().multiply(BigDecimal.valueOf(1 + j)));
+            }
+            order.setItems(items);
+            order.setTotalAmount(total);
+            orders.add(order);
+        }
+        orderPage = pageResponse(orders);
+
+        try {
+            System.out.printf("商品页响应体：HashMap+实体 %d 字节，PageResponse+ProductView %d 字节%n",
+                    productPage().length, productPageView().length);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] productPage() throws Exception {
+        return baselineObjectMapper.writeValueAsBytes(productPage);
+    }
+
+    @Benchmark
+    public byte[] productPageView() throws Exception {
+        Page<Product> page = new PageImpl<>(products, PageRequest.of(0, PAGE_SIZE), 1000);
+        return objectMapper.writeValueAsBytes(PageResponse.of(page, product -> ProductView.of(product, categories)));
+    }
+
+    @Benchmark
+    public byte[] orderPage() throws Exception {
+        return baselineObjectMapper.writeValueAsBytes(orderPage);
+    }
+
+    private static Map<String, Object> pageResponse(List<?> content) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("content", content);
+        response.put("page", 0);
+        response.put("size", PAGE_SIZE);
+        response.put("totalElements", 1000L);
+        response.put("totalPages", 50);
+        response.put("first", true);
+        response.put("last", false);
+        return response;
+    }
+}
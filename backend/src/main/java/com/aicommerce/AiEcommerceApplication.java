@@ -3,6 +3,7 @@ package com.aicommerce;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * AI电商应用主类
@@ -11,9 +12,11 @@ import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
  * 1. 使用@SpringBootApplication简化配置
  * 2. 启用JPA审计功能自动处理创建时间、更新时间
  * 3. 为后续添加缓存、异步等功能预留扩展点
+ * 4. 启用定时任务，购物车异步落库等后台任务依赖它
  */
 @SpringBootApplication
 @EnableJpaAuditing
+@EnableScheduling
 public class AiEcommerceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,205 @@
+package com.aicommerce.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * AI推荐服务客户端
+ *
+ * 心理过程：
+ * 1. 基于WebClient非阻塞调用，等待模型响应期间不占用Tomcat线程，连接由独立的连接池复用
+ * 2. 每个接口一个舱壁限制并发，满了直接拒绝不排队，某个接口变慢不会拖垮其他接口
+ * 3. 单次请求超时很短，超过对冲延迟还没返回就再发一次，取先成功的结果，削掉长尾
+ * 4. 整个服务共用一个熔断器，失败率或慢调用比例过高时打开，期间直接走降级不再发请求
+ * 5. 成功结果按参数缓存一段时间，降级结果不缓存，AI服务恢复后马上能拿到个性化推荐
+ * 6. 任何失败都降级为本地热门商品列表，调用方永远拿到结果，不感知AI服务状态
+ */
+@Component
+public class AiRecommendationClient {
+
+    private static final Logger log = LoggerFactory.getLogger(AiRecommendationClient.class);
+
+    enum Endpoint { USER, SIMILAR, POPULAR, CONTEXT }
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @Autowired
+    private LocalPopularRecommendations localPopular;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.ai-service.base-url:http://localhost:5000}")
+    private String baseUrl;
+
+    @Value("${app.ai-service.timeout:800ms}")
+    private Duration timeout;
+
+    @Value("${app.ai-service.connect-timeout:500ms}")
+    private Duration connectTimeout;
+
+    @Value("${app.ai-service.hedge-delay:200ms}")
+    private Duration hedgeDelay;
+
+    @Value("${app.ai-service.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${app.ai-service.bulkhead.max-concurrent-calls:50}")
+    private int maxConcurrentCalls;
+
+    @Value("${app.ai-service.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${app.ai-service.circuit-breaker.wait-in-open-state:10s}")
+    private Duration waitInOpenState;
+
+    @Value("${app.ai-service.cache-ttl:2m}")
+    private Duration cacheTtl;
+
+    @Value("${app.ai-service.cache-maximum-size:10000}")
+    private long cacheMaximumSize;
+
+    private final Map<Endpoint, Bulkhead> bulkheads = new EnumMap<>(Endpoint.class);
+
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+    private CircuitBreaker circuitBreaker;
+    private Cache<String, List<Recommendation>> cache;
+
+    @PostConstruct
+    public void init() {
+        connectionProvider = ConnectionProvider.builder("ai-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(timeout)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis());
+        webClient = webClientBuilder.clone()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+
+        BulkheadConfig bulkheadConfig = BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+        for (Endpoint endpoint : Endpoint.values()) {
+            bulkheads.put(endpoint, Bulkhead.of("ai-service-" + endpoint.name().toLowerCase(), bulkheadConfig));
+        }
+
+        // 舱壁拒绝是本地限流，不代表AI服务故障，不计入熔断统计
+        circuitBreaker = CircuitBreaker.of("ai-service", CircuitBreakerConfig.custom()
+                .slidingWindowSize(20)
+                .minimumNumberOfCalls(10)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(timeout)
+                .waitDurationInOpenState(waitInOpenState)
+                .ignoreExceptions(BulkheadFullException.class)
+                .build());
+
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ai.recommendations");
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionProvider.dispose();
+    }
+
+    public Mono<List<Recommendation>> forUser(Long userId, int limit) {
+        return fetch(Endpoint.USER, "user:" + userId + ":" + limit, limit, () -> webClient.get()
+                .uri(uri -> uri.path("/recommendations/user/{userId}").queryParam("limit", limit).build(userId))
+                .retrieve()
+                .bodyToMono(RecommendationResponse.class));
+    }
+
+    public Mono<List<Recommendation>> similar(Long productId, int limit) {
+        return fetch(Endpoint.SIMILAR, "similar:" + productId + ":" + limit, limit, () -> webClient.get()
+                .uri(uri -> uri.path("/recommendations/similar/{productId}").queryParam("limit", limit).build(productId))
+                .retrieve()
+                .bodyToMono(RecommendationResponse.class));
+    }
+
+    public Mono<List<Recommendation>> popular(int limit) {
+        return fetch(Endpoint.POPULAR, "popular:" + limit, limit, () -> webClient.get()
+                .uri(uri -> uri.path("/recommendations/popular").queryParam("limit", limit).build())
+                .retrieve()
+                .bodyToMono(RecommendationResponse.class));
+    }
+
+    public Mono<List<Recommendation>> contextual(Long userId, Map<String, Object> context, int limit) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("user_id", userId);
+        body.put("context", context);
+        body.put("limit", limit);
+
+        // 上下文按键排序后作为缓存键，同样的上下文不同的字段顺序命中同一条缓存
+        String cacheKey = "context:" + userId + ":" + limit + ":" + new TreeMap<>(context);
+        return fetch(Endpoint.CONTEXT, cacheKey, limit, () -> webClient.post()
+                .uri("/recommendations/context")
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(RecommendationResponse.class));
+    }
+
+    private Mono<List<Recommendation>> fetch(Endpoint endpoint, String cacheKey, int limit,
+                                             Supplier<Mono<RecommendationResponse>> request) {
+        List<Recommendation> cached = cache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        Mono<List<Recommendation>> attempt = Mono.defer(request)
+                .map(RecommendationResponse::requireRecommendations)
+                .timeout(timeout)
+                .transformDeferred(BulkheadOperator.of(bulkheads.get(endpoint)));
+
+        // 对冲：第一次请求在对冲延迟内没有成功就并发发出第二次，先成功的胜出，另一个被取消
+        return Mono.firstWithValue(attempt, Mono.delay(hedgeDelay).then(attempt))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .doOnNext(recommendations -> cache.put(cacheKey, recommendations))
+                .onErrorResume(e -> {
+                    log.debug("AI推荐调用失败，降级为本地热门商品: endpoint={}, error={}", endpoint, e.toString());
+                    meterRegistry.counter("ai.recommendations.fallback",
+                            "endpoint", endpoint.name().toLowerCase()).increment();
+                    return Mono.just(localPopular.top(limit));
+                });
+    }
+}
@@ -0,0 +1,59 @@
+package com.aicommerce.ai;
+
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 本地计算的热门商品列表，AI服务慢或不可用时作为推荐降级结果
+ *
+ * 心理过程：
+ * 1. 降级路径不能再访问数据库，否则AI故障时数据库跟着被打满，所以定时预先算好放在内存里
+ * 2. 按评分取在售商品，与AI服务的popular策略口径一致
+ * 3. 刷新失败时保留上一版列表，启动阶段数据库不可用时降级结果为空列表
+ */
+@Component
+public class LocalPopularRecommendations {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalPopularRecommendations.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${app.ai-service.fallback-size:50}")
+    private int fallbackSize;
+
+    private volatile List<Recommendation> popular = List.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.ai-service.fallback-refresh-interval:5m}",
+               initialDelayString = "${app.ai-service.fallback-refresh-interval:5m}")
+    public void refresh() {
+        try {
+            List<Product> products = productRepository.findTopRatedProducts(PageRequest.of(0, fallbackSize))
+                    .getContent();
+            popular = products.stream()
+                    .map(product -> new Recommendation(product.getId(),
+                            product.getRating() != null ? product.getRating().doubleValue() : 0.0,
+                            "热门商品", Recommendation.SOURCE_LOCAL_POPULAR))
+                    .toList();
+        } catch (RuntimeException e) {
+            log.warn("刷新本地热门推荐失败，继续使用上一版: {}", e.getMessage());
+        }
+    }
+
+    public List<Recommendation> top(int limit) {
+        List<Recommendation> current = popular;
+        return current.size() <= limit ? current : current.subList(0, limit);
+    }
+}
@@ -0,0 +1,43 @@
+package com.aicommerce.ai;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * 一条推荐结果，AI服务返回的字段为下划线命名，读取时兼容
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Recommendation {
+
+    public static final String SOURCE_LOCAL_POPULAR = "local_popular";
+
+    @JsonAlias("product_id")
+    private Long productId;
+
+    private Double score;
+
+    private String reason;
+
+    private String source;
+
+    public Recommendation() {}
+
+    public Recommendation(Long productId, Double score, String reason, String source) {
+        this.productId = productId;
+        this.score = score;
+        this.reason = reason;
+        this.source = source;
+    }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public Double getScore() { return score; }
+    public void setScore(Double score) { this.score = score; }
+
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+}
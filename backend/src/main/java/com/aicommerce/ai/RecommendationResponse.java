@@ -0,0 +1,37 @@
+package com.aicommerce.ai;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * AI服务推荐接口的响应体
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+class RecommendationResponse {
+
+    private boolean success;
+
+    private List<Recommendation> recommendations;
+
+    private String error;
+
+    /**
+     * AI服务返回失败时抛出异常，交给熔断器计数并走降级
+     */
+    List<Recommendation> requireRecommendations() {
+        if (!success || recommendations == null) {
+            throw new IllegalStateException("AI服务返回失败: " + error);
+        }
+        return List.copyOf(recommendations);
+    }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public List<Recommendation> getRecommendations() { return recommendations; }
+    public void setRecommendations(List<Recommendation> recommendations) { this.recommendations = recommendations; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
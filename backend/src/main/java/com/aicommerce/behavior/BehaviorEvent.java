@@ -0,0 +1,23 @@
+package com.aicommerce.behavior;
+
+/**
+ * 一条待写入user_behaviors的用户行为，时间取行为发生时刻而不是落库时刻
+ */
+final class BehaviorEvent {
+
+    final Long userId;
+    final BehaviorType type;
+    final Long productId;
+    final Long categoryId;
+    final String searchQuery;
+    final long timestamp;
+
+    BehaviorEvent(Long userId, BehaviorType type, Long productId, Long categoryId, String searchQuery) {
+        this.userId = userId;
+        this.type = type;
+        this.productId = productId;
+        this.categoryId = categoryId;
+        this.searchQuery = searchQuery;
+        this.timestamp = System.currentTimeMillis();
+    }
+}
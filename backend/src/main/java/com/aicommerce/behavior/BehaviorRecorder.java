@@ -0,0 +1,118 @@
+package com.aicommerce.behavior;
+
+import com.aicommerce.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * 用户行为采集入口
+ *
+ * 心理过程：
+ * 1. 控制器只把行为放进无锁环形缓冲区就返回，由BehaviorWriter在后台批量落库，请求延迟不受分析写入影响
+ * 2. 缓冲区占用超过抽样水位后，浏览、点击、搜索按比例抽样保留，加购和购买不抽样
+ * 3. 缓冲区满了直接丢弃，宁可少记分析数据也不让请求等待
+ * 4. 接收、抽样丢弃、溢出丢弃分别计数，写入跟不上时能从指标上看出来
+ */
+@Component
+public class BehaviorRecorder {
+
+    private static final int MAX_SEARCH_QUERY_LENGTH = 255;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.behavior.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.behavior.buffer-size:65536}")
+    private int bufferSize;
+
+    @Value("${app.behavior.sample-threshold:0.5}")
+    private double sampleThreshold;
+
+    @Value("${app.behavior.sample-rate:0.1}")
+    private double sampleRate;
+
+    private BehaviorRingBuffer buffer;
+    private int sampleWatermark;
+    private Counter accepted;
+    private Counter sampledOut;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() {
+        buffer = new BehaviorRingBuffer(bufferSize);
+        sampleWatermark = (int) (buffer.capacity() * sampleThreshold);
+        accepted = meterRegistry.counter("behavior.events", "outcome", "accepted");
+        sampledOut = meterRegistry.counter("behavior.events", "outcome", "sampled_out");
+        dropped = meterRegistry.counter("behavior.events", "outcome", "dropped");
+        Gauge.builder("behavior.buffer.size", buffer, BehaviorRingBuffer::size).register(meterRegistry);
+    }
+
+    public void recordView(Long userId, Product product) {
+        record(new BehaviorEvent(userId, BehaviorType.VIEW, product.getId(), categoryIdOf(product), null));
+    }
+
+    public void recordSearch(Long userId, String query, Long categoryId) {
+        String trimmed = query.strip();
+        if (trimmed.isEmpty()) {
+            return;
+        }
+        if (trimmed.length() > MAX_SEARCH_QUERY_LENGTH) {
+            trimmed = trimmed.substring(0, MAX_SEARCH_QUERY_LENGTH);
+        }
+        record(new BehaviorEvent(userId, BehaviorType.SEARCH, null, categoryId, trimmed));
+    }
+
+    public void recordAddToCart(Long userId, Product product) {
+        record(new BehaviorEvent(userId, BehaviorType.ADD_TO_CART, product.getId(), categoryIdOf(product), null));
+    }
+
+    public void recordPurchase(Long userId, Product product) {
+        record(new BehaviorEvent(userId, BehaviorType.PURCHASE, product.getId(), categoryIdOf(product), null));
+    }
+
+    /**
+     * 取出待写入的行为，只由BehaviorWriter调用
+     */
+    int drain(Consumer<BehaviorEvent> consumer, int max) {
+        return buffer.drain(consumer, max);
+    }
+
+    /**
+     * 已取出但写入失败的行为计为丢弃
+     */
+    void countDropped(int count) {
+        dropped.increment(count);
+    }
+
+    private void record(BehaviorEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        if (event.type.isSampleable() && buffer.size() >= sampleWatermark
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+            return;
+        }
+
+        if (buffer.offer(event)) {
+            accepted.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private static Long categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
+    }
+}
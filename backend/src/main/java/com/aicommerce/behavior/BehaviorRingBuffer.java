@@ -0,0 +1,96 @@
+package com.aicommerce.behavior;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界无锁环形缓冲区，多生产者单消费者
+ *
+ * 心理过程：
+ * 1. 每个槽位带一个序号，生产者CAS推进写位置抢到槽位，写入元素后把序号改为位置+1表示可读
+ * 2. 消费者取走元素后把序号改为位置+容量，表示下一圈的生产者可以写
+ * 3. 槽位序号小于写位置说明缓冲区已满，offer直接返回false，生产者永远不会阻塞或自旋等待消费者
+ * 4. 容量取2的幂，位置对容量取模用位与
+ */
+final class BehaviorRingBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<BehaviorEvent> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    BehaviorRingBuffer(int requestedCapacity) {
+        capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        mask = capacity - 1;
+        slots = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 放入一个元素，缓冲区已满时返回false
+     */
+    boolean offer(BehaviorEvent event) {
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                return false;
+            }
+            // 其他生产者已占用该位置，重读写位置再试
+        }
+        slots.set(slot, event);
+        sequences.set(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * 取出最多max个元素交给consumer，返回取出的个数；只允许一个线程调用
+     */
+    int drain(Consumer<BehaviorEvent> consumer, int max) {
+        long position = head.get();
+        int drained = 0;
+        try {
+            while (drained < max) {
+                int slot = (int) position & mask;
+                // 生产者已抢到位置但还没写完时序号尚未更新，留到下一次再取
+                if (sequences.get(slot) != position + 1) {
+                    break;
+                }
+                BehaviorEvent event = slots.get(slot);
+                slots.set(slot, null);
+                sequences.set(slot, position + capacity);
+                position++;
+                drained++;
+                consumer.accept(event);
+            }
+        } finally {
+            head.set(position);
+        }
+        return drained;
+    }
+
+    /**
+     * 近似的元素个数，只用于判断是否需要抽样
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
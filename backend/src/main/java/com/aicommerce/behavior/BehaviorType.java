@@ -0,0 +1,23 @@
+package com.aicommerce.behavior;
+
+/**
+ * 用户行为类型，与user_behaviors.behavior_type取值一致
+ */
+public enum BehaviorType {
+    VIEW(true),
+    CLICK(true),
+    ADD_TO_CART(false),
+    PURCHASE(false),
+    SEARCH(true);
+
+    // 高频低价值的行为在缓冲区吃紧时可以抽样丢弃，加购和购买总是尽量保留
+    private final boolean sampleable;
+
+    BehaviorType(boolean sampleable) {
+        this.sampleable = sampleable;
+    }
+
+    public boolean isSampleable() {
+        return sampleable;
+    }
+}
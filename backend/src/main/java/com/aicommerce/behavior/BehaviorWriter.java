@@ -0,0 +1,82 @@
+package com.aicommerce.behavior;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户行为批量落库
+ *
+ * 心理过程：
+ * 1. 定时把缓冲区中的行为按批取出，一批一次JDBC批量插入，驱动开启reWriteBatchedInserts后合并为多行INSERT
+ * 2. 每轮最多写若干批，积压很多时也不会长时间占用调度线程
+ * 3. 写入失败（如商品已被删除导致外键冲突）时整批丢弃并计数，分析数据不重试，避免积压越滚越大
+ */
+@Component
+public class BehaviorWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(BehaviorWriter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO user_behaviors (user_id, behavior_type, product_id, category_id, search_query, timestamp) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private BehaviorRecorder recorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.behavior.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.behavior.max-batches-per-flush:20}")
+    private int maxBatchesPerFlush;
+
+    @Scheduled(fixedDelayString = "${app.behavior.flush-interval:200ms}")
+    public void flush() {
+        List<BehaviorEvent> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < maxBatchesPerFlush; i++) {
+            if (recorder.drain(batch::add, batchSize) == 0) {
+                return;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 停机前把缓冲区中剩余的行为写完
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void write(List<BehaviorEvent> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, event) -> {
+                statement.setObject(1, event.userId, Types.BIGINT);
+                statement.setString(2, event.type.name());
+                statement.setObject(3, event.productId, Types.BIGINT);
+                statement.setObject(4, event.categoryId, Types.BIGINT);
+                statement.setString(5, event.searchQuery);
+                statement.setTimestamp(6, new Timestamp(event.timestamp));
+            });
+        } catch (DataAccessException e) {
+            log.warn("用户行为写入失败，丢弃 {} 条: {}", batch.size(), e.getMessage());
+            recorder.countDropped(batch.size());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.aicommerce.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品目录版本号，公开目录接口据此生成ETag
+ *
+ * 心理过程：
+ * 1. 商品和分类各一个计数器，ProductService和CategoryService的写操作递增，条件请求只比较版本号，304不查库
+ * 2. 写操作立即递增一次、事务提交后再递增一次：提交前读到旧数据的请求拿到的ETag在提交后一定失效
+ * 3. 计数器在进程内，ETag带上进程启动时生成的纪元，重启后旧ETag全部失效；多节点时各节点ETag不同，只会多返回200
+ * 4. 商品版本在事务提交后经Redis频道广播，其他节点收到后递增本地计数器，不依赖写操作是否恰好清理了商品缓存
+ * 5. 分类版本不单独广播：其他节点收到分类树失效消息、重新加载快照之后才递增，不会用旧分类树响应新ETag
+ */
+@Component
+public class CatalogVersions {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogVersions.class);
+
+    public static final String VERSION_CHANNEL = "aicommerce:catalog:products-version";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.cache.product.l2-enabled:true}")
+    private boolean syncEnabled;
+
+    // 本节点标识，收到自己发布的版本消息时直接忽略
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong products = new AtomicLong();
+    private final AtomicLong categories = new AtomicLong();
+
+    /**
+     * 商品列表类接口的ETag，列表中含分类名称，分类变化也会使其失效
+     */
+    public String productsETag() {
+        return "\"p" + epoch + "." + products.get() + "." + categories.get() + "\"";
+    }
+
+    public String categoriesETag() {
+        return "\"c" + epoch + "." + categories.get() + "\"";
+    }
+
+    public void bumpProductsAfterCommit() {
+        bumpAfterCommit(products, this::publishProductsBump);
+    }
+
+    public void bumpCategoriesAfterCommit() {
+        bumpAfterCommit(categories, () -> {});
+    }
+
+    /**
+     * 其他节点的分类变更已装入本节点的分类树快照
+     */
+    public void bumpCategories() {
+        categories.incrementAndGet();
+    }
+
+    /**
+     * 处理其他节点广播的商品版本消息
+     */
+    public void onVersionMessage(String message) {
+        if (!message.equals(nodeId)) {
+            products.incrementAndGet();
+        }
+    }
+
+    private static void bumpAfterCommit(AtomicLong counter, Runnable broadcast) {
+        counter.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counter.incrementAndGet();
+                    broadcast.run();
+                }
+            });
+        } else {
+            broadcast.run();
+        }
+    }
+
+    private void publishProductsBump() {
+        if (!syncEnabled) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(VERSION_CHANNEL, nodeId);
+        } catch (RuntimeException e) {
+            log.warn("商品目录版本通知发送失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.aicommerce.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 分类树快照中的不可变节点
+ *
+ * left为先序编号，right为子树中最大的先序编号，子孙节点的编号都落在[left, right]区间内
+ */
+public final class CategoryNode {
+
+    private final Long id;
+    private final Long parentId;
+    private final String name;
+    private final String description;
+    private final String imageUrl;
+    private final LocalDateTime createdAt;
+    private final int depth;
+    private final int left;
+    private final int right;
+    private final List<CategoryNode> children;
+
+    CategoryNode(Long id, Long parentId, String name, String description, String imageUrl,
+                 LocalDateTime createdAt, int depth, int left, int right, List<CategoryNode> children) {
+        this.id = id;
+        this.parentId = parentId;
+        this.name = name;
+        this.description = description;
+        this.imageUrl = imageUrl;
+        this.createdAt = createdAt;
+        this.depth = depth;
+        this.left = left;
+        this.right = right;
+        this.children = List.copyOf(children);
+    }
+
+    public boolean isAncestorOf(CategoryNode other) {
+        return other.left > left && other.left <= right;
+    }
+
+    public Long getId() { return id; }
+    public Long getParentId() { return parentId; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public String getImageUrl() { return imageUrl; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public int getDepth() { return depth; }
+    public List<CategoryNode> getChildren() { return children; }
+
+    @JsonIgnore
+    public int getLeft() { return left; }
+
+    @JsonIgnore
+    public int getRight() { return right; }
+}
@@ -0,0 +1,126 @@
+package com.aicommerce.cache;
+
+import com.aicommerce.model.Category;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 不可变的分类树快照
+ *
+ * 心理过程：
+ * 1. 先序遍历给每个分类编号，一棵子树在先序序列中是连续的一段，即嵌套区间[left, right]
+ * 2. 查询子树只需按节点找到区间，再截取先序数组，不需要逐层查询
+ * 3. 快照构建后不再修改，读线程无需加锁，分类变更时整体重建后替换
+ */
+public final class CategoryTree {
+
+    static final CategoryTree EMPTY = new CategoryTree(List.of(), new long[0], Map.of());
+
+    private static final Comparator<Category> BY_ID = Comparator.comparing(Category::getId);
+
+    private final List<CategoryNode> roots;
+    private final long[] preorder;
+    private final Map<Long, CategoryNode> nodes;
+
+    private CategoryTree(List<CategoryNode> roots, long[] preorder, Map<Long, CategoryNode> nodes) {
+        this.roots = roots;
+        this.preorder = preorder;
+        this.nodes = nodes;
+    }
+
+    /**
+     * 由全部分类构建快照，父分类不存在的分类视为根分类，兄弟节点按ID排序
+     */
+    public static CategoryTree build(List<Category> categories) {
+        Map<Long, Category> byId = new HashMap<>();
+        categories.forEach(category -> byId.put(category.getId(), category));
+
+        List<Category> rootCategories = new ArrayList<>();
+        Map<Long, List<Category>> childrenOf = new HashMap<>();
+        for (Category category : categories) {
+            Long parentId = parentIdOf(category);
+            if (parentId == null || !byId.containsKey(parentId)) {
+                rootCategories.add(category);
+            } else {
+                childrenOf.computeIfAbsent(parentId, id -> new ArrayList<>()).add(category);
+            }
+        }
+        rootCategories.sort(BY_ID);
+        childrenOf.values().forEach(children -> children.sort(BY_ID));
+
+        // 先序遍历编号；父子关系成环的分类从根节点不可达，不会进入快照
+        List<Category> order = new ArrayList<>(categories.size());
+        Map<Long, Integer> depthOf = new HashMap<>();
+        Deque<Category> stack = new ArrayDeque<>();
+        for (int i = rootCategories.size() - 1; i >= 0; i--) {
+            stack.push(rootCategories.get(i));
+            depthOf.put(rootCategories.get(i).getId(), 0);
+        }
+        while (!stack.isEmpty()) {
+            Category category = stack.pop();
+            order.add(category);
+            List<Category> children = childrenOf.getOrDefault(category.getId(), List.of());
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+                depthOf.put(children.get(i).getId(), depthOf.get(category.getId()) + 1);
+            }
+        }
+
+        // 逆先序构造节点，子节点总是先于父节点构造完成
+        long[] preorder = new long[order.size()];
+        Map<Long, CategoryNode> nodes = new HashMap<>();
+        for (int left = order.size() - 1; left >= 0; left--) {
+            Category category = order.get(left);
+            preorder[left] = category.getId();
+
+            List<CategoryNode> children = new ArrayList<>();
+            for (Category child : childrenOf.getOrDefault(category.getId(), List.of())) {
+                children.add(nodes.get(child.getId()));
+            }
+            int right = children.isEmpty() ? left : children.get(children.size() - 1).getRight();
+
+            nodes.put(category.getId(), new CategoryNode(category.getId(), parentIdOf(category),
+                    category.getName(), category.getDescription(), category.getImageUrl(), category.getCreatedAt(),
+                    depthOf.get(category.getId()), left, right, children));
+        }
+
+        List<CategoryNode> roots = new ArrayList<>(rootCategories.size());
+        rootCategories.forEach(category -> roots.add(nodes.get(category.getId())));
+        return new CategoryTree(List.copyOf(roots), preorder, Map.copyOf(nodes));
+    }
+
+    public List<CategoryNode> getRoots() {
+        return roots;
+    }
+
+    public Optional<CategoryNode> find(Long id) {
+        return id != null ? Optional.ofNullable(nodes.get(id)) : Optional.empty();
+    }
+
+    /**
+     * 分类自身及全部子孙分类的ID，分类不存在时返回空数组
+     */
+    public long[] subtreeIds(Long id) {
+        CategoryNode node = id != null ? nodes.get(id) : null;
+        if (node == null) {
+            return new long[0];
+        }
+        return Arrays.copyOfRange(preorder, node.getLeft(), node.getRight() + 1);
+    }
+
+    public int size() {
+        return preorder.length;
+    }
+
+    private static Long parentIdOf(Category category) {
+        return category.getParent() != null ? category.getParent().getId() : null;
+    }
+}
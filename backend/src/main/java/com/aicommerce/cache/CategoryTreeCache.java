@@ -0,0 +1,168 @@
+package com.aicommerce.cache;
+
+import com.aicommerce.datasource.DataSourceRouting;
+import com.aicommerce.model.Category;
+import com.aicommerce.repository.CategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 分类树内存快照
+ *
+ * 心理过程：
+ * 1. 分类数据量小、变更少、读取频繁，整棵树常驻内存，/categories不再访问数据库
+ * 2. 嵌套区间编号同时写回categories表，商品按“分类及其子孙”筛选时只需一个区间条件
+ * 3. 分类增删改在同一事务内重新编号，事务提交后原子替换快照，读线程看到的总是完整的一棵树
+ * 4. 提交后向其他节点广播失效消息，收到消息的节点从数据库重新读取分类树，
+ *    否则其他节点仍用旧区间去匹配新编号的tree_left，按分类筛选会漏掉或多出商品
+ * 5. 重新编号前先取数据库咨询锁，各节点的分类写事务依次编号，排在后面的事务能读到前面已提交的分类，
+ *    不会各自按不完整的快照写回互相重叠的区间
+ * 6. 每个快照带一个版本号：写节点在提交后取号，重新读取的节点在查询前取号，
+ *    取号越晚看到的数据越新，只安装比当前快照更新的版本，并发的刷新不会用旧树覆盖新树
+ */
+@Component
+public class CategoryTreeCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryTreeCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "aicommerce:category-tree:invalidate";
+
+    // 分类树重新编号用的咨询锁key
+    private static final long RENUMBER_LOCK_KEY = 0x63617465676f7279L;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Value("${app.cache.product.l2-enabled:true}")
+    private boolean syncEnabled;
+
+    // 本节点标识，收到自己发布的失效消息时直接忽略
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(0, CategoryTree.EMPTY));
+    private TransactionTemplate reloadTransaction;
+
+    private record Snapshot(long version, CategoryTree tree) {}
+
+    @PostConstruct
+    public void init() {
+        reloadTransaction = new TransactionTemplate(transactionManager);
+        reloadTransaction.setReadOnly(true);
+    }
+
+    public CategoryTree current() {
+        return snapshot.get().tree();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuild() {
+        CategoryTree tree = refreshAfterCommit();
+        log.info("分类树快照构建完成，共 {} 个分类", tree.size());
+    }
+
+    /**
+     * 重新构建分类树并把嵌套区间写回变化的分类，当前事务提交后替换快照
+     */
+    @Transactional
+    public CategoryTree refreshAfterCommit() {
+        // 锁要在findAll之前取到，等锁期间提交的分类才会出现在这次读取中
+        categoryRepository.lockForTransaction(RENUMBER_LOCK_KEY);
+        List<Category> categories = categoryRepository.findAll();
+        CategoryTree tree = CategoryTree.build(categories);
+        if (tree.size() < categories.size()) {
+            log.warn("有 {} 个分类的父子关系成环，未加入分类树", categories.size() - tree.size());
+        }
+
+        for (Category category : categories) {
+            Optional<CategoryNode> node = tree.find(category.getId());
+            Integer left = node.map(CategoryNode::getLeft).orElse(null);
+            Integer right = node.map(CategoryNode::getRight).orElse(null);
+            if (!Objects.equals(category.getTreeLeft(), left) || !Objects.equals(category.getTreeRight(), right)) {
+                category.setTreeLeft(left);
+                category.setTreeRight(right);
+            }
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    install(versions.incrementAndGet(), tree);
+                    publishInvalidation();
+                }
+            });
+        } else {
+            install(versions.incrementAndGet(), tree);
+            publishInvalidation();
+        }
+        return tree;
+    }
+
+    /**
+     * 处理其他节点发布的失效消息：从主库重新读取分类树，编号已由写节点写回，这里只读不写。
+     * 消息在写节点提交后立即发出，副本多半还没回放这次修改，读副本会把旧树装成新版本
+     */
+    public void onInvalidationMessage(String message) {
+        if (message.equals(nodeId)) {
+            return;
+        }
+        long version = versions.incrementAndGet();
+        CategoryTree tree = DataSourceRouting.usePrimary(() ->
+                reloadTransaction.execute(status -> CategoryTree.build(categoryRepository.findAll())));
+        if (install(version, tree)) {
+            log.debug("其他节点修改了分类，已重新加载分类树快照，共 {} 个分类", tree.size());
+        }
+        // 快照装好之后才让分类ETag失效，新ETag不会对应旧分类树
+        catalogVersions.bumpCategories();
+    }
+
+    /**
+     * 只安装比当前快照更新的版本
+     */
+    private boolean install(long version, CategoryTree tree) {
+        Snapshot next = new Snapshot(version, tree);
+        Snapshot previous = snapshot.getAndUpdate(current -> current.version() < version ? next : current);
+        return previous.version() < version;
+    }
+
+    private void publishInvalidation() {
+        if (!syncEnabled) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId);
+        } catch (RuntimeException e) {
+            log.warn("分类树失效通知发送失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.aicommerce.cache;
+
+import com.aicommerce.datasource.DataSourceRouting;
+import com.aicommerce.model.Category;
+import com.aicommerce.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * 商品多级读缓存
+ *
+ * 心理过程：
+ * 1. L1使用Caffeine进程内缓存，容量有上限，W-TinyLFU淘汰保证热点命中率
+ * 2. L2使用Redis，多个节点共享，进程重启后也能快速预热
+ * 3. 缓存的是脱离Hibernate会话的商品快照，分类只保留ID和名称，避免懒加载
+ * 4. 写操作在事务提交后失效两级缓存，并通过Redis发布订阅通知其他节点
+ * 5. Redis不可用时降级为只用L1，不影响主流程
+ */
+@Component
+public class ProductCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "aicommerce:product-cache:invalidate";
+
+    private static final String KEY_PREFIX = "aicommerce:product:";
+    private static final String NODE_SEPARATOR = "|";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.product.l1-maximum-size:10000}")
+    private long l1MaximumSize;
+
+    @Value("${app.cache.product.l1-expire-after-write:10m}")
+    private Duration l1ExpireAfterWrite;
+
+    @Value("${app.cache.product.l2-enabled:true}")
+    private boolean l2Enabled;
+
+    @Value("${app.cache.product.l2-ttl:30m}")
+    private Duration l2Ttl;
+
+    // 本节点标识，收到自己发布的失效消息时直接忽略
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private Cache<Long, Product> l1;
+    private Counter l2Hits;
+    private Counter l2Misses;
+    private Counter l2Errors;
+
+    @PostConstruct
+    public void init() {
+        l1 = Caffeine.newBuilder()
+                .maximumSize(l1MaximumSize)
+                .expireAfterWrite(l1ExpireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, "product.l1");
+
+        l2Hits = Counter.builder("cache.l2.requests").tag("cache", "product.l2").tag("result", "hit")
+                .register(meterRegistry);
+        l2Misses = Counter.builder("cache.l2.requests").tag("cache", "product.l2").tag("result", "miss")
+                .register(meterRegistry);
+        l2Errors = Counter.builder("cache.l2.errors").tag("cache", "product.l2")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 依次查询L1、L2，都未命中时调用loader回源数据库并回填两级缓存
+     */
+    public Optional<Product> get(Long id, Function<Long, Optional<Product>> loader) {
+        if (id == null) {
+            return Optional.empty();
+        }
+
+        Product cached = l1.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Product fromRedis = readL2(id);
+        if (fromRedis != null) {
+            l1.put(id, fromRedis);
+            return Optional.of(fromRedis);
+        }
+
+        // 回填缓存的数据从主库读，副本延迟不会被缓存放大
+        Optional<Product> loaded = DataSourceRouting.usePrimary(() -> loader.apply(id)).map(ProductCache::snapshotOf);
+        loaded.ifPresent(snapshot -> {
+            l1.put(id, snapshot);
+            writeL2(snapshot);
+        });
+        return loaded;
+    }
+
+    /**
+     * 立即失效并在事务提交后再失效一次，防止并发读在提交前把旧值回填进缓存
+     */
+    public void evictAfterCommit(Long id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    public void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+        l1.invalidate(id);
+        if (!l2Enabled) {
+            return;
+        }
+        try {
+            redisTemplate.delete(KEY_PREFIX + id);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + NODE_SEPARATOR + id);
+        } catch (RuntimeException e) {
+            l2Errors.increment();
+            log.warn("商品缓存失效通知发送失败, productId={}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * 处理其他节点发布的失效消息，只清理本地L1
+     */
+    public void onInvalidationMessage(String message) {
+        Long productId = remoteProductId(message);
+        if (productId != null) {
+            l1.invalidate(productId);
+        }
+    }
+
+    /**
+     * 解析失效消息中的商品ID，本节点自己发布的和无法解析的消息返回null
+     */
+    public Long remoteProductId(String message) {
+        int separator = message.indexOf(NODE_SEPARATOR);
+        if (separator < 0 || message.startsWith(nodeId + NODE_SEPARATOR)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(message.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            log.warn("忽略无法解析的商品缓存失效消息: {}", message);
+            return null;
+        }
+    }
+
+    public void clearLocal() {
+        l1.invalidateAll();
+    }
+
+    private Product readL2(Long id) {
+        if (!l2Enabled) {
+            return null;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(KEY_PREFIX + id);
+            if (json == null) {
+                l2Misses.increment();
+                return null;
+            }
+            l2Hits.increment();
+            return objectMapper.readValue(json, Product.class);
+        } catch (JsonProcessingException | RuntimeException e) {
+            l2Errors.increment();
+            log.debug("读取Redis商品缓存失败, productId={}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeL2(Product snapshot) {
+        if (!l2Enabled) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + snapshot.getId(),
+                    objectMapper.writeValueAsString(snapshot), l2Ttl);
+        } catch (JsonProcessingException | RuntimeException e) {
+            l2Errors.increment();
+            log.debug("写入Redis商品缓存失败, productId={}: {}", snapshot.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 复制出不依赖持久化上下文的商品对象，分类只保留ID和名称
+     */
+    static Product snapshotOf(Product product) {
+        Product snapshot = new Product();
+        snapshot.setId(product.getId());
+        snapshot.setName(product.getName());
+        snapshot.setDescription(product.getDescription());
+        snapshot.setPrice(product.getPrice());
+        snapshot.setDiscountPrice(product.getDiscountPrice());
+        snapshot.setBrand(product.getBrand());
+        snapshot.setSku(product.getSku());
+        snapshot.setStockQuantity(product.getStockQuantity());
+        snapshot.setImages(product.getImages());
+        snapshot.setAttributes(product.getAttributes());
+        snapshot.setTags(product.getTags());
+        snapshot.setRating(product.getRating());
+        snapshot.setReviewCount(product.getReviewCount());
+        snapshot.setAiFeatures(product.getAiFeatures());
+        snapshot.setCreatedAt(product.getCreatedAt());
+        snapshot.setUpdatedAt(product.getUpdatedAt());
+        snapshot.setIsActive(product.getIsActive());
+
+        if (product.getCategory() != null) {
+            Category category = new Category();
+            category.setId(product.getCategory().getId());
+            category.setName(product.getCategory().getName());
+            snapshot.setCategory(category);
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,22 @@
+package com.aicommerce.cart;
+
+import com.aicommerce.model.CartItem;
+
+import java.util.List;
+
+/**
+ * 购物车行和汇总，二者取自同一份购物车数据，汇总只计入返回的行
+ */
+public final class CartContents {
+
+    private final List<CartItem> items;
+    private final CartTotals totals;
+
+    public CartContents(List<CartItem> items, CartTotals totals) {
+        this.items = items;
+        this.totals = totals;
+    }
+
+    public List<CartItem> getItems() { return items; }
+    public CartTotals getTotals() { return totals; }
+}
@@ -0,0 +1,106 @@
+package com.aicommerce.cart;
+
+import com.aicommerce.model.CartItem;
+import com.aicommerce.model.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Redis购物车中的一行
+ *
+ * 哈希字段为"商品ID|属性JSON"，同一商品选了不同属性是不同的行；
+ * 值为"行ID|数量|创建时间|更新时间|单价"，时间为毫秒时间戳，单价以分为单位，Lua脚本可以直接用模式匹配解析和累加
+ * 行ID取自cart_items主键序列，落库时原样写入id列
+ */
+public final class CartLine {
+
+    private static final char SEPARATOR = '|';
+
+    private final long id;
+    private final long productId;
+    private final String selectedAttributes;
+    private final int quantity;
+    private final long createdAt;
+    private final long updatedAt;
+    private final long unitPriceCents;
+
+    CartLine(long id, long productId, String selectedAttributes, int quantity, long createdAt, long updatedAt,
+             long unitPriceCents) {
+        this.id = id;
+        this.productId = productId;
+        this.selectedAttributes = selectedAttributes;
+        this.quantity = quantity;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.unitPriceCents = unitPriceCents;
+    }
+
+    static String fieldOf(long productId, String selectedAttributes) {
+        return productId + String.valueOf(SEPARATOR) + (selectedAttributes != null ? selectedAttributes : "");
+    }
+
+    static CartLine parse(String field, String value) {
+        int separator = field.indexOf(SEPARATOR);
+        String attributes = field.substring(separator + 1);
+        String[] parts = value.split("\\|", 5);
+        return new CartLine(Long.parseLong(parts[0]), Long.parseLong(field.substring(0, separator)),
+                attributes.isEmpty() ? null : attributes, Integer.parseInt(parts[1]),
+                Long.parseLong(parts[2]), Long.parseLong(parts[3]), Long.parseLong(parts[4]));
+    }
+
+    /**
+     * 由数据库中的购物车项生成，冷加载时使用，行ID沿用数据库主键
+     */
+    static CartLine of(CartItem item) {
+        long createdAt = item.getCreatedAt() != null ? toMillis(item.getCreatedAt()) : System.currentTimeMillis();
+        long updatedAt = item.getUpdatedAt() != null ? toMillis(item.getUpdatedAt()) : createdAt;
+        return new CartLine(item.getId(), item.getProduct().getId(), item.getSelectedAttributes(),
+                item.getQuantity(), createdAt, updatedAt, toCents(item.getProduct().getEffectivePrice()));
+    }
+
+    static long toCents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    String field() {
+        return fieldOf(productId, selectedAttributes);
+    }
+
+    String value() {
+        return id + String.valueOf(SEPARATOR) + quantity + SEPARATOR + createdAt + SEPARATOR + updatedAt
+                + SEPARATOR + unitPriceCents;
+    }
+
+    CartItem toCartItem(Product product) {
+        CartItem item = new CartItem(null, product, quantity);
+        item.setId(id);
+        item.setSelectedAttributes(selectedAttributes);
+        item.setCreatedAt(getCreatedAt());
+        item.setUpdatedAt(getUpdatedAt());
+        return item;
+    }
+
+    public long getId() { return id; }
+    public long getProductId() { return productId; }
+    public String getSelectedAttributes() { return selectedAttributes; }
+    public int getQuantity() { return quantity; }
+    public LocalDateTime getCreatedAt() { return toLocalDateTime(createdAt); }
+    public LocalDateTime getUpdatedAt() { return toLocalDateTime(updatedAt); }
+    public BigDecimal getUnitPrice() { return fromCents(unitPriceCents); }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
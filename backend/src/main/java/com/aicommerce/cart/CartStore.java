@@ -0,0 +1,53 @@
+package com.aicommerce.cart;
+
+import com.aicommerce.model.CartItem;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 购物车存储
+ *
+ * 心理过程：
+ * 1. 默认由Redis承载热购物车并异步写回数据库，app.cart.store=jpa时直接读写cart_items表
+ * 2. 两种实现都返回CartItem，控制器和下单流程不感知购物车存在哪里
+ * 3. 购物车项ID只在同一用户的购物车内唯一，所有操作都按用户限定范围
+ * 4. 汇总可以单独读取，Redis实现在每次修改时增量维护，不需要加载购物车行
+ * 5. 同时要行和汇总时用getCart，两者出自同一次读取，不会出现行和汇总对不上
+ */
+public interface CartStore {
+
+    /**
+     * 用户购物车，按加入时间倒序，商品已填充
+     */
+    List<CartItem> getCartItems(Long userId);
+
+    CartTotals getCartTotals(Long userId);
+
+    /**
+     * 购物车行及其汇总，一次读取得到
+     */
+    CartContents getCart(Long userId);
+
+    /**
+     * 加入购物车，相同商品和属性的项合并数量
+     */
+    CartItem addToCart(Long userId, Long productId, Integer quantity, String selectedAttributes);
+
+    /**
+     * 修改数量，数量小于等于0时移除并返回null
+     */
+    CartItem updateCartItemQuantity(Long userId, Long cartItemId, Integer quantity);
+
+    void removeFromCart(Long userId, Long cartItemId);
+
+    /**
+     * 清空购物车，处于事务中时等事务提交后再清空
+     */
+    void clearCart(Long userId);
+
+    /**
+     * 商品成交价变化后更新购物车中该商品的单价和汇总，当前事务提交后执行
+     */
+    void repriceAfterCommit(Long productId, BigDecimal unitPrice);
+}
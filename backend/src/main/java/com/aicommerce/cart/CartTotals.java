@@ -0,0 +1,41 @@
+package com.aicommerce.cart;
+
+import com.aicommerce.model.CartItem;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 购物车汇总：总金额、行数、总件数
+ */
+public final class CartTotals {
+
+    private final BigDecimal totalAmount;
+    private final int itemCount;
+    private final int totalQuantity;
+
+    public CartTotals(BigDecimal totalAmount, int itemCount, int totalQuantity) {
+        this.totalAmount = totalAmount;
+        this.itemCount = itemCount;
+        this.totalQuantity = totalQuantity;
+    }
+
+    /**
+     * 逐行累加小计，用于没有维护汇总的存储
+     */
+    public static CartTotals of(List<CartItem> items) {
+        BigDecimal totalAmount = items.stream()
+                .map(CartItem::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        int totalQuantity = items.stream()
+                .mapToInt(CartItem::getQuantity)
+                .sum();
+
+        return new CartTotals(totalAmount, items.size(), totalQuantity);
+    }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public int getItemCount() { return itemCount; }
+    public int getTotalQuantity() { return totalQuantity; }
+}
@@ -0,0 +1,143 @@
+package com.aicommerce.cart;
+
+import com.aicommerce.repository.CartItemRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 购物车异步落库
+ *
+ * 心理过程：
+ * 1. 购物车修改只写Redis，并在dirty哈希里给用户的版本号加一，这里定时把脏购物车写回cart_items
+ * 2. 两轮落库之间同一用户的多次修改只写一次，一批用户在一个事务里先删后批量插入
+ * 3. 写入成功后按版本号比较删除脏标记，落库期间又有修改时保留标记，下一轮再写
+ * 4. 脏标记随购物车一起存在Redis里，进程崩溃后任一节点都能接着回放
+ * 5. 多节点通过Redis租约保证同一时刻只有一个节点落库，旧快照不会覆盖新快照
+ * 6. 单个用户落库失败时记录失败次数并指数退避，退避期内不再占用每轮的名额；
+ *    失败次数达到上限且是数据本身的错误时，脏标记移入parked并报错，不再反复重试拖慢其他购物车；
+ *    连接失败等数据库不可用的错误只退避不移走，数据库恢复后照常落库
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "redis", matchIfMissing = true)
+public class CartWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(CartWriteBehind.class);
+
+    @Autowired
+    private RedisCartStore cartStore;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.cart.flush-batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.cart.flush-lease:30s}")
+    private Duration flushLease;
+
+    @Value("${app.cart.flush-retry-backoff:1s}")
+    private Duration retryBackoff;
+
+    @Value("${app.cart.flush-max-retry-backoff:5m}")
+    private Duration maxRetryBackoff;
+
+    @Value("${app.cart.flush-max-attempts:10}")
+    private int maxAttempts;
+
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval:500ms}")
+    public void flush() {
+        String token = null;
+        try {
+            token = cartStore.tryAcquireFlushLease(flushLease);
+            if (token != null) {
+                persist(cartStore.dirtyUsers(batchSize));
+            }
+        } catch (RuntimeException e) {
+            log.warn("购物车落库失败，下一轮重试: {}", e.getMessage());
+        } finally {
+            if (token != null) {
+                releaseQuietly(token);
+            }
+        }
+    }
+
+    /**
+     * 停机前再落库一轮，缩短重启后的回放量
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void persist(Map<Long, Long> dirty) {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        // Redis中已过期的购物车不出现在快照里，对应的数据库记录保持不动
+        Map<Long, List<CartLine>> carts = cartStore.snapshots(dirty.keySet());
+        try {
+            transactionTemplate.executeWithoutResult(status -> cartItemRepository.replaceCarts(carts));
+            dirty.forEach(cartStore::markClean);
+        } catch (RuntimeException e) {
+            // 整批失败时逐个用户重试，避免一个用户的坏数据拖住整批
+            log.warn("购物车批量落库失败，改为逐个用户写入: {}", e.getMessage());
+            dirty.forEach((userId, version) -> persistOne(userId, version, carts.get(userId)));
+        }
+    }
+
+    private void persistOne(Long userId, Long version, List<CartLine> lines) {
+        try {
+            if (lines != null) {
+                transactionTemplate.executeWithoutResult(
+                        status -> cartItemRepository.replaceCarts(Map.of(userId, lines)));
+            }
+            cartStore.markClean(userId, version);
+        } catch (RuntimeException e) {
+            log.warn("购物车落库失败, userId={}: {}", userId, e.getMessage());
+            recordFailure(userId, version, isUnavailable(e));
+        }
+    }
+
+    private void recordFailure(Long userId, Long version, boolean databaseUnavailable) {
+        try {
+            int attempts = cartStore.recordFlushFailure(userId, retryBackoff, maxRetryBackoff);
+            if (attempts >= maxAttempts && !databaseUnavailable && cartStore.parkDirty(userId, version)) {
+                log.error("购物车连续 {} 次落库失败，已停止重试, userId={}", attempts, userId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("记录购物车落库失败次数失败, userId={}: {}", userId, e.getMessage());
+        }
+    }
+
+    private static boolean isUnavailable(RuntimeException e) {
+        return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException || e instanceof TransactionException;
+    }
+
+    private void releaseQuietly(String token) {
+        try {
+            cartStore.releaseFlushLease(token);
+        } catch (RuntimeException e) {
+            log.debug("释放购物车落库租约失败: {}", e.getMessage());
+        }
+    }
+}
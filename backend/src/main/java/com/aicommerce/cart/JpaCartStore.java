@@ -0,0 +1,136 @@
+package com.aicommerce.cart;
+
+import com.aicommerce.model.CartItem;
+import com.aicommerce.model.Product;
+import com.aicommerce.model.User;
+import com.aicommerce.repository.CartItemRepository;
+import com.aicommerce.repository.ProductRepository;
+import com.aicommerce.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 直接读写cart_items表的购物车存储，每次操作都走数据库，汇总和单价都按商品当前价格实时计算
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "jpa")
+@Transactional
+public class JpaCartStore implements CartStore {
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Override
+    public List<CartItem> getCartItems(Long userId) {
+        return cartItemRepository.findViewByUserId(userId);
+    }
+
+    @Override
+    public CartTotals getCartTotals(Long userId) {
+        return CartTotals.of(cartItemRepository.findWithProductByUserId(userId));
+    }
+
+    @Override
+    public CartContents getCart(Long userId) {
+        List<CartItem> items = cartItemRepository.findViewByUserId(userId);
+        return new CartContents(items, CartTotals.of(items));
+    }
+
+    @Override
+    public CartItem addToCart(Long userId, Long productId, Integer quantity, String selectedAttributes) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("用户不存在"));
+
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("商品不存在"));
+
+        if (!product.isInStock()) {
+            throw new IllegalArgumentException("商品已售罄");
+        }
+
+        if (product.getStockQuantity() < quantity) {
+            throw new IllegalArgumentException("库存不足，当前库存：" + product.getStockQuantity());
+        }
+
+        // 检查是否已存在相同商品和属性的购物车项
+        Optional<CartItem> existingItem = selectedAttributes != null ?
+                cartItemRepository.findByUserIdAndProductIdAndAttributes(userId, productId, selectedAttributes) :
+                cartItemRepository.findByUserIdAndProductId(userId, productId);
+
+        if (existingItem.isPresent()) {
+            // 更新数量
+            CartItem cartItem = existingItem.get();
+            int newQuantity = cartItem.getQuantity() + quantity;
+
+            if (product.getStockQuantity() < newQuantity) {
+                throw new IllegalArgumentException("库存不足，最多可添加：" +
+                    (product.getStockQuantity() - cartItem.getQuantity()) + "件");
+            }
+
+            cartItem.setQuantity(newQuantity);
+            return cartItemRepository.save(cartItem);
+        } else {
+            // 创建新的购物车项
+            CartItem cartItem = new CartItem(user, product, quantity);
+            cartItem.setSelectedAttributes(selectedAttributes);
+            return cartItemRepository.save(cartItem);
+        }
+    }
+
+    @Override
+    public CartItem updateCartItemQuantity(Long userId, Long cartItemId, Integer quantity) {
+        CartItem cartItem = cartItemRepository.findById(cartItemId)
+                .orElseThrow(() -> new IllegalArgumentException("购物车项不存在"));
+
+        if (!cartItem.getUser().getId().equals(userId)) {
+            throw new IllegalArgumentException("无权限操作此购物车项");
+        }
+
+        if (quantity <= 0) {
+            cartItemRepository.delete(cartItem);
+            return null;
+        }
+
+        Product product = cartItem.getProduct();
+        if (product.getStockQuantity() < quantity) {
+            throw new IllegalArgumentException("库存不足，当前库存：" + product.getStockQuantity());
+        }
+
+        cartItem.setQuantity(quantity);
+        return cartItemRepository.save(cartItem);
+    }
+
+    @Override
+    public void removeFromCart(Long userId, Long cartItemId) {
+        CartItem cartItem = cartItemRepository.findById(cartItemId)
+                .orElseThrow(() -> new IllegalArgumentException("购物车项不存在"));
+
+        if (!cartItem.getUser().getId().equals(userId)) {
+            throw new IllegalArgumentException("无权限操作此购物车项");
+        }
+
+        cartItemRepository.delete(cartItem);
+    }
+
+    @Override
+    public void clearCart(Long userId) {
+        cartItemRepository.deleteAllByUserIdInBatch(userId);
+    }
+
+    @Override
+    public void repriceAfterCommit(Long productId, BigDecimal unitPrice) {
+        // 购物车项关联商品实体，价格总是最新的，无需处理
+    }
+}
@@ -0,0 +1,648 @@
+package com.aicommerce.cart;
+
+import com.aicommerce.cache.ProductCache;
+import com.aicommerce.model.CartItem;
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.CartItemRepository;
+import com.aicommerce.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Redis购物车存储
+ *
+ * 心理过程：
+ * 1. 每个用户一个Redis哈希，一行一个字段，字段由商品ID和所选属性组成，同款同属性自然合并
+ * 2. 每个修改都是一段Lua脚本，合并数量、库存上限校验、写入和标记待落库在一次往返内原子完成
+ * 3. 修改时在dirty哈希里把用户的版本号加一，由CartWriteBehind按批异步写回cart_items
+ * 4. Redis中没有该用户购物车时从数据库冷加载一次，空购物车也保留一个计数字段，避免反复回源
+ * 5. 商品信息从商品多级缓存读取，读写购物车都不访问数据库
+ * 6. 脚本同时操作购物车和dirty两个键，要求单实例或主从部署的Redis，并开启AOF持久化
+ * 7. 每行记下加入时的单价，脚本随修改增量维护行数、件数和以分为单位的总金额，读汇总只需一次HMGET；
+ *    同时要行和汇总时只做一次HGETALL，汇总由返回的行累加，商品已不存在的行不计入并从购物车中移除
+ * 8. 每个商品记录哪些用户的购物车里有它，商品改价后逐个购物车更新单价和总金额
+ * 9. 新行的ID从cart_items主键序列成批预取，落库时原样写回，过期后冷加载得到的cartItemId不变；
+ *    加入已有的行时预取的ID没有用上，放回去给下一次使用
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "redis", matchIfMissing = true)
+public class RedisCartStore implements CartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCartStore.class);
+
+    private static final String KEY_PREFIX = "aicommerce:cart:";
+    private static final String DIRTY_KEY = "aicommerce:cart:dirty";
+    private static final String FLUSH_LEASE_KEY = "aicommerce:cart:flush-lease";
+    // 落库失败的用户 -> "失败次数:下次重试时间(毫秒)"；多次失败后脏标记移入parked，留待人工处理
+    private static final String FLUSH_FAILURES_KEY = "aicommerce:cart:flush-failures";
+    private static final String PARKED_KEY = "aicommerce:cart:dirty-parked";
+    private static final String HOLDERS_KEY_PREFIX = "aicommerce:cart:holders:";
+
+    // 脚本中的金额以分为单位，直接以数字传给Redis命令，2^53以内的整数不会丢精度
+    // "~"标记购物车已加载；"~n"、"~q"、"~a"为行数、总件数、总金额(分)；"#行ID"字段指向行所在的字段
+    private static final String META_PREFIX = "~";
+    private static final List<Object> TOTAL_FIELDS = List.of("~n", "~q", "~a");
+    private static final String INDEX_PREFIX = "#";
+
+    private static final int REPRICE_BATCH_SIZE = 500;
+
+    private static final String MISS = "MISS";
+    private static final String GONE = "GONE";
+    private static final String STOCK_PREFIX = "STOCK:";
+
+    private static final Comparator<CartLine> NEWEST_FIRST =
+            Comparator.comparing(CartLine::getCreatedAt).thenComparing(CartLine::getId).reversed();
+
+    // KEYS: 购物车, dirty, 商品持有者  ARGV: 字段, 数量, 库存上限, 当前时间, 用户ID, TTL毫秒, 单价(分), 新行ID
+    private static final RedisScript<String> ADD_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 'MISS' end
+            local line = redis.call('HGET', KEYS[1], ARGV[1])
+            local id, quantity, created, cents = nil, 0, ARGV[4], 0
+            if line then
+              id, quantity, created, cents = string.match(line, '^(%d+)|(%d+)|(%d+)|%d+|(%d+)$')
+              quantity, cents = tonumber(quantity), tonumber(cents)
+            end
+            local total = quantity + tonumber(ARGV[2])
+            if total > tonumber(ARGV[3]) then return 'STOCK:' .. quantity end
+            if not line then
+              id = ARGV[8]
+              redis.call('HINCRBY', KEYS[1], '~n', 1)
+            end
+            local value = id .. '|' .. total .. '|' .. created .. '|' .. ARGV[4] .. '|' .. ARGV[7]
+            redis.call('HSET', KEYS[1], ARGV[1], value, '#' .. id, ARGV[1])
+            redis.call('HINCRBY', KEYS[1], '~q', ARGV[2])
+            redis.call('HINCRBY', KEYS[1], '~a', total * tonumber(ARGV[7]) - quantity * cents)
+            redis.call('SADD', KEYS[3], ARGV[5])
+            redis.call('HINCRBY', KEYS[2], ARGV[5], 1)
+            redis.call('PEXPIRE', KEYS[1], ARGV[6])
+            return value
+            """, String.class);
+
+    // KEYS: 购物车, dirty  ARGV: 行ID, 字段, 数量, 当前时间, 用户ID, TTL毫秒, 单价(分)
+    private static final RedisScript<String> SET_QUANTITY_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 'MISS' end
+            if redis.call('HGET', KEYS[1], '#' .. ARGV[1]) ~= ARGV[2] then return 'GONE' end
+            local line = redis.call('HGET', KEYS[1], ARGV[2])
+            local id, quantity, created, cents = string.match(line, '^(%d+)|(%d+)|(%d+)|%d+|(%d+)$')
+            local value = id .. '|' .. ARGV[3] .. '|' .. created .. '|' .. ARGV[4] .. '|' .. ARGV[7]
+            redis.call('HSET', KEYS[1], ARGV[2], value)
+            redis.call('HINCRBY', KEYS[1], '~q', tonumber(ARGV[3]) - tonumber(quantity))
+            redis.call('HINCRBY', KEYS[1], '~a', tonumber(ARGV[3]) * tonumber(ARGV[7]) - tonumber(quantity) * tonumber(cents))
+            redis.call('HINCRBY', KEYS[2], ARGV[5], 1)
+            redis.call('PEXPIRE', KEYS[1], ARGV[6])
+            return value
+            """, String.class);
+
+    // KEYS: 购物车, dirty  ARGV: 行ID, 用户ID, TTL毫秒
+    private static final RedisScript<String> REMOVE_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 'MISS' end
+            local field = redis.call('HGET', KEYS[1], '#' .. ARGV[1])
+            if not field then return 'GONE' end
+            local quantity, cents = string.match(redis.call('HGET', KEYS[1], field), '^%d+|(%d+)|%d+|%d+|(%d+)$')
+            redis.call('HDEL', KEYS[1], field, '#' .. ARGV[1])
+            redis.call('HINCRBY', KEYS[1], '~n', -1)
+            redis.call('HINCRBY', KEYS[1], '~q', -tonumber(quantity))
+            redis.call('HINCRBY', KEYS[1], '~a', -tonumber(quantity) * tonumber(cents))
+            redis.call('HINCRBY', KEYS[2], ARGV[2], 1)
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 'OK'
+            """, String.class);
+
+    // KEYS: 购物车, dirty  ARGV: 用户ID, TTL毫秒；保留已加载标记，清空后不会再从数据库冷加载
+    private static final RedisScript<String> CLEAR_SCRIPT = RedisScript.of("""
+            local counter = redis.call('HGET', KEYS[1], '~') or '0'
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], '~', counter, '~n', 0, '~q', 0, '~a', 0)
+            redis.call('HINCRBY', KEYS[2], ARGV[1], 1)
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 'OK'
+            """, String.class);
+
+    // KEYS: 购物车, 各行商品的持有者集合  ARGV: TTL毫秒, 已加载标记, 用户ID, 字段1, 值1, 字段2, 值2...
+    private static final RedisScript<String> LOAD_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then return 'EXISTS' end
+            local count, quantity, amount = 0, 0, 0
+            for i = 4, #ARGV, 2 do
+              local id, q, cents = string.match(ARGV[i + 1], '^(%d+)|(%d+)|%d+|%d+|(%d+)$')
+              redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1], '#' .. id, ARGV[i])
+              redis.call('SADD', KEYS[2 + (i - 4) / 2], ARGV[3])
+              count, quantity, amount = count + 1, quantity + tonumber(q), amount + tonumber(q) * tonumber(cents)
+            end
+            redis.call('HSET', KEYS[1], '~', ARGV[2], '~n', count, '~q', quantity, '~a', amount)
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            return 'OK'
+            """, String.class);
+
+    // KEYS: 购物车, 商品持有者  ARGV: 商品ID, 新单价(分), 用户ID；购物车中已没有该商品时把用户移出持有者集合
+    private static final String REPRICE_SCRIPT = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+              redis.call('SREM', KEYS[2], ARGV[3])
+              return 0
+            end
+            local prefix = ARGV[1] .. '|'
+            local fields = redis.call('HGETALL', KEYS[1])
+            local found, delta = false, 0
+            for i = 1, #fields, 2 do
+              if string.sub(fields[i], 1, #prefix) == prefix then
+                local head, quantity, cents = string.match(fields[i + 1], '^(%d+|(%d+)|%d+|%d+)|(%d+)$')
+                found = true
+                delta = delta + tonumber(quantity) * (tonumber(ARGV[2]) - tonumber(cents))
+                redis.call('HSET', KEYS[1], fields[i], head .. '|' .. ARGV[2])
+              end
+            end
+            if not found then
+              redis.call('SREM', KEYS[2], ARGV[3])
+              return 0
+            end
+            redis.call('HINCRBY', KEYS[1], '~a', delta)
+            return 1
+            """;
+
+    // KEYS: dirty, 落库失败  ARGV: 用户ID, 落库前读到的版本号；写入成功即清除失败记录
+    private static final RedisScript<Long> MARK_CLEAN_SCRIPT = RedisScript.of("""
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            if redis.call('HGET', KEYS[1], ARGV[1]) == ARGV[2] then
+              return redis.call('HDEL', KEYS[1], ARGV[1])
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS: dirty, 落库失败, parked  ARGV: 用户ID, 落库前读到的版本号
+    // 期间又有修改时不移走脏标记，失败记录清零后按新数据重新尝试
+    private static final RedisScript<Long> PARK_SCRIPT = RedisScript.of("""
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            if redis.call('HGET', KEYS[1], ARGV[1]) == ARGV[2] then
+              redis.call('HDEL', KEYS[1], ARGV[1])
+              redis.call('HSET', KEYS[3], ARGV[1], ARGV[2])
+              return 1
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS: 租约  ARGV: 持有者令牌
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Value("${app.cart.redis-ttl:7d}")
+    private Duration cartTtl;
+
+    @Value("${app.cart.line-id-batch-size:100}")
+    private int lineIdBatchSize;
+
+    // 预取的行ID，由本对象加锁保护
+    private final Deque<Long> reservedLineIds = new ArrayDeque<>();
+
+    @Override
+    public List<CartItem> getCartItems(Long userId) {
+        return getCart(userId).getItems();
+    }
+
+    @Override
+    public CartContents getCart(Long userId) {
+        List<CartLine> lines = find(userId).orElseGet(() -> load(userId));
+        List<CartItem> items = new ArrayList<>(lines.size());
+        List<CartLine> orphaned = new ArrayList<>();
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        int totalQuantity = 0;
+        for (CartLine line : lines.stream().sorted(NEWEST_FIRST).toList()) {
+            Optional<Product> product = findProduct(line.getProductId());
+            if (product.isEmpty()) {
+                orphaned.add(line);
+                continue;
+            }
+            items.add(line.toCartItem(product.get()));
+            totalAmount = totalAmount.add(line.getUnitPrice().multiply(BigDecimal.valueOf(line.getQuantity())));
+            totalQuantity += line.getQuantity();
+        }
+        removeOrphaned(userId, orphaned);
+        return new CartContents(items, new CartTotals(totalAmount, items.size(), totalQuantity));
+    }
+
+    @Override
+    public CartItem addToCart(Long userId, Long productId, Integer quantity, String selectedAttributes) {
+        Product product = findProduct(productId)
+                .orElseThrow(() -> new IllegalArgumentException("商品不存在"));
+
+        if (!product.isInStock()) {
+            throw new IllegalArgumentException("商品已售罄");
+        }
+
+        if (product.getStockQuantity() < quantity) {
+            throw new IllegalArgumentException("库存不足，当前库存：" + product.getStockQuantity());
+        }
+
+        String field = CartLine.fieldOf(productId, selectedAttributes);
+        List<String> keys = List.of(key(userId), DIRTY_KEY, holdersKey(productId));
+        long lineId = nextLineId();
+        String result;
+        try {
+            result = executeLoaded(userId, () -> redisTemplate.execute(ADD_SCRIPT, keys,
+                    field, String.valueOf(quantity), String.valueOf(product.getStockQuantity()), now(),
+                    String.valueOf(userId), ttlMillis(), unitPriceOf(product), String.valueOf(lineId)));
+        } catch (RuntimeException e) {
+            returnLineId(lineId);
+            throw e;
+        }
+
+        if (result.startsWith(STOCK_PREFIX)) {
+            returnLineId(lineId);
+            int current = Integer.parseInt(result.substring(STOCK_PREFIX.length()));
+            throw new IllegalArgumentException("库存不足，最多可添加：" + (product.getStockQuantity() - current) + "件");
+        }
+        CartLine line = CartLine.parse(field, result);
+        if (line.getId() != lineId) {
+            returnLineId(lineId);
+        }
+        return line.toCartItem(product);
+    }
+
+    /**
+     * 先取出行所在的字段得到商品ID，按商品库存校验后再写入，共两次往返
+     */
+    @Override
+    public CartItem updateCartItemQuantity(Long userId, Long cartItemId, Integer quantity) {
+        if (quantity <= 0) {
+            removeFromCart(userId, cartItemId);
+            return null;
+        }
+
+        String field = fieldOfItem(userId, cartItemId);
+        if (field == null) {
+            throw new IllegalArgumentException("购物车项不存在");
+        }
+
+        Product product = findProduct(Long.valueOf(field.substring(0, field.indexOf('|'))))
+                .orElseThrow(() -> new IllegalArgumentException("商品不存在"));
+        if (product.getStockQuantity() < quantity) {
+            throw new IllegalArgumentException("库存不足，当前库存：" + product.getStockQuantity());
+        }
+
+        String result = executeLoaded(userId, () -> redisTemplate.execute(SET_QUANTITY_SCRIPT, keys(userId),
+                String.valueOf(cartItemId), field, String.valueOf(quantity), now(),
+                String.valueOf(userId), ttlMillis(), unitPriceOf(product)));
+        if (GONE.equals(result)) {
+            throw new IllegalArgumentException("购物车项不存在");
+        }
+        return CartLine.parse(field, result).toCartItem(product);
+    }
+
+    @Override
+    public void removeFromCart(Long userId, Long cartItemId) {
+        String result = executeLoaded(userId, () -> redisTemplate.execute(REMOVE_SCRIPT, keys(userId),
+                String.valueOf(cartItemId), String.valueOf(userId), ttlMillis()));
+        if (GONE.equals(result)) {
+            throw new IllegalArgumentException("购物车项不存在");
+        }
+    }
+
+    /**
+     * 下单时在订单事务里调用，事务提交后才清空，订单回滚时购物车保持原样
+     */
+    @Override
+    public void clearCart(Long userId) {
+        Runnable clear = () -> redisTemplate.execute(CLEAR_SCRIPT, keys(userId), String.valueOf(userId), ttlMillis());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear.run();
+                }
+            });
+        } else {
+            clear.run();
+        }
+    }
+
+    /**
+     * 改价后更新持有该商品的购物车，每批购物车的脚本在一个管道里发出
+     */
+    @Override
+    public void repriceAfterCommit(Long productId, BigDecimal unitPrice) {
+        Runnable reprice = () -> {
+            try {
+                reprice(productId, String.valueOf(CartLine.toCents(unitPrice)));
+            } catch (RuntimeException e) {
+                log.warn("购物车改价同步失败, productId={}: {}", productId, e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reprice.run();
+                }
+            });
+        } else {
+            reprice.run();
+        }
+    }
+
+    @Override
+    public CartTotals getCartTotals(Long userId) {
+        List<Object> totals = redisTemplate.opsForHash().multiGet(key(userId), TOTAL_FIELDS);
+        if (totals.get(0) == null) {
+            load(userId);
+            totals = redisTemplate.opsForHash().multiGet(key(userId), TOTAL_FIELDS);
+        }
+        return new CartTotals(CartLine.fromCents(parseTotal(totals.get(2))),
+                (int) parseTotal(totals.get(0)), (int) parseTotal(totals.get(1)));
+    }
+
+    /**
+     * 待落库的用户及其版本号，最多返回limit个；还在失败退避期内的用户跳过，不占本轮名额
+     */
+    Map<Long, Long> dirtyUsers(int limit) {
+        Map<Object, Object> failures = redisTemplate.opsForHash().entries(FLUSH_FAILURES_KEY);
+        long now = System.currentTimeMillis();
+
+        Map<Long, Long> dirty = new LinkedHashMap<>();
+        ScanOptions options = ScanOptions.scanOptions().count(limit).build();
+        try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash().scan(DIRTY_KEY, options)) {
+            while (cursor.hasNext() && dirty.size() < limit) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                Object failure = failures.get(entry.getKey());
+                if (failure != null && nextRetryAt((String) failure) > now) {
+                    continue;
+                }
+                dirty.put(Long.valueOf((String) entry.getKey()), Long.valueOf((String) entry.getValue()));
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * 记录一次落库失败，下次重试按失败次数指数退避，返回累计失败次数
+     */
+    int recordFlushFailure(Long userId, Duration backoff, Duration maxBackoff) {
+        String field = String.valueOf(userId);
+        Object previous = redisTemplate.opsForHash().get(FLUSH_FAILURES_KEY, field);
+        int attempts = previous == null ? 1 : attemptsOf((String) previous) + 1;
+        long delay = Math.min(backoff.toMillis() << Math.min(attempts - 1, 30), maxBackoff.toMillis());
+        redisTemplate.opsForHash().put(FLUSH_FAILURES_KEY, field, attempts + ":" + (System.currentTimeMillis() + delay));
+        return attempts;
+    }
+
+    /**
+     * 反复落库失败的用户：脏标记移入parked不再重试，购物车本身仍在Redis中；期间又有修改时不移走
+     */
+    boolean parkDirty(Long userId, Long version) {
+        Long parked = redisTemplate.execute(PARK_SCRIPT, List.of(DIRTY_KEY, FLUSH_FAILURES_KEY, PARKED_KEY),
+                String.valueOf(userId), String.valueOf(version));
+        return parked != null && parked > 0;
+    }
+
+    /**
+     * 一次管道读取多个用户的购物车，Redis中已不存在的购物车不出现在结果中
+     */
+    @SuppressWarnings("unchecked")
+    Map<Long, List<CartLine>> snapshots(Collection<Long> userIds) {
+        List<Long> ids = new ArrayList<>(userIds);
+        List<Object> hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            ids.forEach(userId -> connection.hashCommands().hGetAll(key(userId).getBytes(StandardCharsets.UTF_8)));
+            return null;
+        });
+
+        Map<Long, List<CartLine>> carts = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Map<String, String> hash = (Map<String, String>) hashes.get(i);
+            if (hash != null && !hash.isEmpty()) {
+                carts.put(ids.get(i), linesOf(hash));
+            }
+        }
+        return carts;
+    }
+
+    /**
+     * 落库完成后清除脏标记，落库期间又有修改时版本号已变，标记保留到下一轮
+     */
+    boolean markClean(Long userId, Long version) {
+        Long removed = redisTemplate.execute(MARK_CLEAN_SCRIPT, List.of(DIRTY_KEY, FLUSH_FAILURES_KEY),
+                String.valueOf(userId), String.valueOf(version));
+        return removed != null && removed > 0;
+    }
+
+    /**
+     * 获取落库租约，成功时返回持有者令牌，否则返回null
+     */
+    String tryAcquireFlushLease(Duration lease) {
+        String token = UUID.randomUUID().toString();
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(FLUSH_LEASE_KEY, token, lease))
+                ? token : null;
+    }
+
+    void releaseFlushLease(String token) {
+        redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(FLUSH_LEASE_KEY), token);
+    }
+
+    /**
+     * 取一个预取的行ID，用完时从主键序列再取一批
+     */
+    private synchronized long nextLineId() {
+        if (reservedLineIds.isEmpty()) {
+            reservedLineIds.addAll(cartItemRepository.reserveIds(lineIdBatchSize));
+        }
+        return reservedLineIds.pop();
+    }
+
+    private synchronized void returnLineId(long lineId) {
+        reservedLineIds.push(lineId);
+    }
+
+    private Optional<List<CartLine>> find(Long userId) {
+        Map<Object, Object> hash = redisTemplate.opsForHash().entries(key(userId));
+        if (hash.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        hash.forEach((field, value) -> fields.put((String) field, (String) value));
+        return Optional.of(linesOf(fields));
+    }
+
+    /**
+     * 从数据库冷加载购物车，多个请求同时加载时以先写入Redis的为准
+     */
+    private List<CartLine> load(Long userId) {
+        List<CartLine> lines = cartItemRepository.findWithProductByUserId(userId).stream()
+                .map(CartLine::of)
+                .toList();
+
+        List<String> keys = new ArrayList<>(1 + lines.size());
+        List<String> args = new ArrayList<>(3 + lines.size() * 2);
+        keys.add(key(userId));
+        args.add(ttlMillis());
+        args.add(String.valueOf(lines.stream().mapToLong(CartLine::getId).max().orElse(0)));
+        args.add(String.valueOf(userId));
+        lines.forEach(line -> {
+            keys.add(holdersKey(line.getProductId()));
+            args.add(line.field());
+            args.add(line.value());
+        });
+
+        String result = redisTemplate.execute(LOAD_SCRIPT, keys, args.toArray());
+        return "OK".equals(result) ? lines : find(userId).orElse(lines);
+    }
+
+    /**
+     * 执行修改脚本，购物车尚未加载时先冷加载再重试一次
+     */
+    private String executeLoaded(Long userId, Supplier<String> script) {
+        String result = script.get();
+        if (MISS.equals(result)) {
+            load(userId);
+            result = script.get();
+        }
+        if (result == null || MISS.equals(result)) {
+            throw new IllegalStateException("购物车加载失败");
+        }
+        return result;
+    }
+
+    /**
+     * 移除商品已不存在的行，之后只读汇总时也不再计入它们
+     */
+    private void removeOrphaned(Long userId, List<CartLine> orphaned) {
+        for (CartLine line : orphaned) {
+            try {
+                redisTemplate.execute(REMOVE_SCRIPT, keys(userId),
+                        String.valueOf(line.getId()), String.valueOf(userId), ttlMillis());
+            } catch (RuntimeException e) {
+                log.warn("移除失效购物车项失败, userId={}, cartItemId={}: {}", userId, line.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private String fieldOfItem(Long userId, Long cartItemId) {
+        Object field = redisTemplate.opsForHash().get(key(userId), INDEX_PREFIX + cartItemId);
+        if (field == null && !Boolean.TRUE.equals(redisTemplate.hasKey(key(userId)))) {
+            load(userId);
+            field = redisTemplate.opsForHash().get(key(userId), INDEX_PREFIX + cartItemId);
+        }
+        return (String) field;
+    }
+
+    private void reprice(Long productId, String unitPriceCents) {
+        String holdersKey = holdersKey(productId);
+        ScanOptions options = ScanOptions.scanOptions().count(REPRICE_BATCH_SIZE).build();
+        List<String> userIds = new ArrayList<>(REPRICE_BATCH_SIZE);
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(holdersKey, options)) {
+            while (cursor.hasNext()) {
+                userIds.add(cursor.next());
+                if (userIds.size() == REPRICE_BATCH_SIZE) {
+                    repriceCarts(productId, unitPriceCents, userIds);
+                    userIds.clear();
+                }
+            }
+        }
+        if (!userIds.isEmpty()) {
+            repriceCarts(productId, unitPriceCents, userIds);
+        }
+    }
+
+    private void repriceCarts(Long productId, String unitPriceCents, List<String> userIds) {
+        byte[] script = REPRICE_SCRIPT.getBytes(StandardCharsets.UTF_8);
+        byte[] holdersKey = holdersKey(productId).getBytes(StandardCharsets.UTF_8);
+        byte[] productIdArg = String.valueOf(productId).getBytes(StandardCharsets.UTF_8);
+        byte[] priceArg = unitPriceCents.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String userId : userIds) {
+                connection.scriptingCommands().eval(script, ReturnType.INTEGER, 2,
+                        (KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8), holdersKey,
+                        productIdArg, priceArg, userId.getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+    }
+
+    private Optional<Product> findProduct(Long productId) {
+        return productCache.get(productId, productRepository::findById);
+    }
+
+    private static List<CartLine> linesOf(Map<String, String> hash) {
+        List<CartLine> lines = new ArrayList<>(hash.size() / 2);
+        hash.forEach((field, value) -> {
+            if (!field.startsWith(META_PREFIX) && !field.startsWith(INDEX_PREFIX)) {
+                lines.add(CartLine.parse(field, value));
+            }
+        });
+        return lines;
+    }
+
+    private static String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static List<String> keys(Long userId) {
+        return List.of(key(userId), DIRTY_KEY);
+    }
+
+    private static String holdersKey(Long productId) {
+        return HOLDERS_KEY_PREFIX + productId;
+    }
+
+    private static String unitPriceOf(Product product) {
+        return String.valueOf(CartLine.toCents(product.getEffectivePrice()));
+    }
+
+    private static long parseTotal(Object value) {
+        return value != null ? Long.parseLong((String) value) : 0;
+    }
+
+    private static int attemptsOf(String failure) {
+        return Integer.parseInt(failure.substring(0, failure.indexOf(':')));
+    }
+
+    private static long nextRetryAt(String failure) {
+        return Long.parseLong(failure.substring(failure.indexOf(':') + 1));
+    }
+
+    private static String now() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+    private String ttlMillis() {
+        return String.valueOf(cartTtl.toMillis());
+    }
+}
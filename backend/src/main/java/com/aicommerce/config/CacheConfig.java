@@ -0,0 +1,68 @@
+package com.aicommerce.config;
+
+import com.aicommerce.cache.CatalogVersions;
+import com.aicommerce.cache.CategoryTreeCache;
+import com.aicommerce.cache.ProductCache;
+import com.aicommerce.inventory.InventoryEngine;
+import com.aicommerce.leaderboard.ProductLeaderboards;
+import com.aicommerce.search.ProductFacetIndex;
+import com.aicommerce.search.ProductSearchIndex;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 缓存配置类
+ * 
+ * 心理过程：
+ * 1. 订阅Redis失效频道，其他节点修改商品后清理本地L1缓存
+ * 2. 同一个容器订阅分类树失效频道，其他节点修改分类后重新加载分类树快照
+ * 3. 订阅商品目录版本频道，其他节点修改商品后使本节点的目录ETag失效
+ * 4. 商品失效频道同时通知搜索索引和分面索引，其他节点修改或下架的商品在本节点重新索引；
+ *    库存引擎据此重新同步该商品的内存计数；商品榜单重建期间记下这些商品，替换前重放
+ * 5. 只在启用L2时注册监听容器，无Redis环境下不尝试连接
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.product.l2-enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer productCacheListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       ProductCache productCache,
+                                                                       CategoryTreeCache categoryTreeCache,
+                                                                       CatalogVersions catalogVersions,
+                                                                       ProductSearchIndex productSearchIndex,
+                                                                       ProductFacetIndex productFacetIndex,
+                                                                       InventoryEngine inventoryEngine,
+                                                                       ProductLeaderboards productLeaderboards) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+            (message, pattern) -> productCache.onInvalidationMessage(
+                new String(message.getBody(), StandardCharsets.UTF_8)),
+            new ChannelTopic(ProductCache.INVALIDATION_CHANNEL));
+        container.addMessageListener((message, pattern) -> {
+            Long productId = productCache.remoteProductId(new String(message.getBody(), StandardCharsets.UTF_8));
+            if (productId != null) {
+                productSearchIndex.onRemoteChange(productId);
+                productFacetIndex.onRemoteChange(productId);
+                inventoryEngine.onRemoteChange(productId);
+                productLeaderboards.onRemoteChange(productId);
+            }
+        }, new ChannelTopic(ProductCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(
+            (message, pattern) -> categoryTreeCache.onInvalidationMessage(
+                new String(message.getBody(), StandardCharsets.UTF_8)),
+            new ChannelTopic(CategoryTreeCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(
+            (message, pattern) -> catalogVersions.onVersionMessage(
+                new String(message.getBody(), StandardCharsets.UTF_8)),
+            new ChannelTopic(CatalogVersions.VERSION_CHANNEL));
+        return container;
+    }
+}
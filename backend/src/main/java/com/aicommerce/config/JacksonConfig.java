@@ -0,0 +1,33 @@
+package com.aicommerce.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jackson配置类
+ * 
+ * 心理过程：
+ * 1. Spring Boot把Module类型的Bean注册到全局ObjectMapper，接口响应、商品缓存和导出共用
+ * 2. Blackbird用LambdaMetafactory生成属性访问器，序列化不再逐个字段走反射
+ * 3. 直接返回实体的接口（如后台分类编辑）遇到未加载的懒加载关联时只输出ID，集合输出null，不在序列化阶段查库
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    public Module hibernateModule() {
+        Hibernate6Module module = new Hibernate6Module();
+        module.enable(Hibernate6Module.Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS);
+        // 只按Jackson注解决定输出哪些字段，与未注册本模块时一致
+        module.disable(Hibernate6Module.Feature.USE_TRANSIENT_ANNOTATION);
+        return module;
+    }
+}
@@ -0,0 +1,105 @@
+package com.aicommerce.config;
+
+import com.aicommerce.datasource.ReadWritePools;
+import com.aicommerce.datasource.ReadWriteRoutingDataSource;
+import com.aicommerce.datasource.ReadYourWritesTracker;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离数据源配置
+ *
+ * 心理过程：
+ * 1. 配置了只读副本地址时才启用，替换Spring Boot默认的单一连接池，未配置时保持原样
+ * 2. 主库和副本都沿用spring.datasource.hikari的连接池参数，副本可以单独指定连接数，连接默认只读
+ * 3. 对外只暴露一个DataSource，路由数据源外包LazyConnectionDataSourceProxy，等事务只读标记登记后再取连接
+ * 4. 连接池指标按主库、副本分池名上报
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.urls")
+public class ReadReplicaConfig {
+
+    @Value("${app.datasource.replicas.urls}")
+    private List<String> replicaUrls;
+
+    @Value("${app.datasource.replicas.maximum-pool-size:${spring.datasource.hikari.maximum-pool-size:10}}")
+    private int replicaPoolSize;
+
+    @Value("${app.datasource.replicas.max-lag:2s}")
+    private Duration maxLag;
+
+    @Value("${app.datasource.replicas.sticky-window:5s}")
+    private Duration stickyWindow;
+
+    @Value("${app.datasource.replicas.sticky-maximum-size:100000}")
+    private long stickyMaximumSize;
+
+    @Bean
+    public ReadWritePools readWritePools(DataSourceProperties properties, Environment environment,
+                                         MeterRegistry meterRegistry) {
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        HikariDataSource primary = pool(properties, properties.determineUrl(), environment);
+        primary.setPoolName("primary");
+        primary.setMetricsTrackerFactory(metrics);
+
+        List<HikariDataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = pool(properties, replicaUrls.get(i).trim(), environment);
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setMinimumIdle(Math.min(replica.getMinimumIdle(), replicaPoolSize));
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(metrics);
+            replicas.add(replica);
+        }
+
+        ReadWritePools pools = new ReadWritePools(primary, replicas, maxLag, meterRegistry);
+        // 启动时先测一次延迟，避免第一个检查周期内所有读请求都回到主库
+        pools.checkLag();
+        return pools;
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker() {
+        return new ReadYourWritesTracker(stickyWindow, stickyMaximumSize);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWritePools pools, ReadYourWritesTracker readYourWritesTracker) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(new ReadWriteRoutingDataSource(pools, readYourWritesTracker));
+        // 直接给出默认值，不在启动时为探测默认值去取一次连接
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String url, Environment environment) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        return pool;
+    }
+}
@@ -1,9 +1,14 @@
 package com.aicommerce.config;
 
 import com.aicommerce.security.JwtAuthenticationFilter;
+import com.aicommerce.security.TokenRevocationRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -20,6 +25,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 /**
@@ -30,6 +36,7 @@ import java.util.Arrays;
  * 2. 设置CORS支持前端跨域请求
  * 3. 定义公开和受保护的API端点
  * 4. 使用BCrypt加密密码
+ * 5. 订阅令牌吊销频道，用户禁用后各节点同步拒绝其令牌
  */
 @Configuration
 @EnableWebSecurity
@@ -81,6 +88,7 @@ public class SecurityConfig {
                 
                 // 管理员端点
                 .requestMatchers("/admin/**").hasRole("ADMIN")
+                .requestMatchers("/actuator/profiling", "/actuator/profiling/**").hasRole("ADMIN")
                 
                 // 其他端点需要认证
                 .anyRequest().authenticated()
@@ -91,6 +99,19 @@ public class SecurityConfig {
         return http.build();
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "app.jwt.revocation-sync-enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer tokenRevocationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                          TokenRevocationRegistry revocationRegistry) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+            (message, pattern) -> revocationRegistry.onRevocationMessage(
+                new String(message.getBody(), StandardCharsets.UTF_8)),
+            new ChannelTopic(TokenRevocationRegistry.REVOCATION_CHANNEL));
+        return container;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
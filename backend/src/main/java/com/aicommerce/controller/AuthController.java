@@ -2,6 +2,8 @@ package com.aicommerce.controller;
 
 import com.aicommerce.model.User;
 import com.aicommerce.security.JwtUtil;
+import com.aicommerce.security.JwtVerificationCache;
+import com.aicommerce.security.VerifiedToken;
 import com.aicommerce.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +40,9 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private JwtVerificationCache jwtVerificationCache;
+
     @PostMapping("/register")
     public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest request) {
         try {
@@ -94,17 +99,16 @@ public class AuthController {
     @PostMapping("/refresh")
     public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest request) {
         try {
-            String refreshToken = request.getRefreshToken();
+            VerifiedToken refreshToken = jwtVerificationCache.verify(request.getRefreshToken());
             
-            if (!jwtUtil.validateToken(refreshToken) || !jwtUtil.isRefreshToken(refreshToken)) {
+            if (refreshToken == null || !refreshToken.isRefreshToken()) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", false);
                 response.put("message", "无效的刷新令牌");
                 return ResponseEntity.badRequest().body(response);
             }
 
-            String username = jwtUtil.extractUsername(refreshToken);
-            UserDetails userDetails = userService.loadUserByUsername(username);
+            UserDetails userDetails = userService.loadUserByUsername(refreshToken.getUsername());
             String newAccessToken = jwtUtil.generateToken(userDetails);
 
             Map<String, Object> response = new HashMap<>();
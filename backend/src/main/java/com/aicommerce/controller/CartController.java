@@ -1,5 +1,7 @@
 package com.aicommerce.controller;
 
+import com.aicommerce.behavior.BehaviorRecorder;
+import com.aicommerce.cart.CartTotals;
 import com.aicommerce.model.CartItem;
 import com.aicommerce.model.User;
 import com.aicommerce.service.CartService;
@@ -29,6 +31,9 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
+    @Autowired
+    private BehaviorRecorder behaviorRecorder;
+
     @GetMapping
     public ResponseEntity<?> getCartItems(@AuthenticationPrincipal User user) {
         try {
@@ -53,6 +58,32 @@ public class CartController {
         }
     }
 
+    /**
+     * 只返回购物车汇总，不加载购物车行，适合导航栏角标等高频场景
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<?> getCartSummary(@AuthenticationPrincipal User user) {
+        try {
+            CartTotals totals = cartService.getCartTotals(user.getId());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("summary", Map.of(
+                "totalAmount", totals.getTotalAmount(),
+                "itemCount", totals.getItemCount(),
+                "totalQuantity", totals.getTotalQuantity()
+            ));
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "获取购物车汇总失败");
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     @PostMapping("/add")
     public ResponseEntity<?> addToCart(
             @AuthenticationPrincipal User user,
@@ -64,6 +95,7 @@ public class CartController {
                 request.getQuantity(),
                 request.getSelectedAttributes()
             );
+            behaviorRecorder.recordAddToCart(user.getId(), cartItem.getProduct());
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
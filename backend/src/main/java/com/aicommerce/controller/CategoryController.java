@@ -1,19 +1,26 @@
 package com.aicommerce.controller;
 
+import com.aicommerce.cache.CatalogVersions;
+import com.aicommerce.cache.CategoryNode;
 import com.aicommerce.model.Category;
+import com.aicommerce.response.CatalogHttpCache;
+import com.aicommerce.response.MessageResponse;
 import com.aicommerce.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 /**
  * 分类控制器
+ * 
+ * 查询接口直接返回内存中的分类树快照，响应为不可变记录
+ * 查询接口带ETag（分类版本号），If-None-Match命中时返回304
  */
 @RestController
 @RequestMapping("/categories")
@@ -23,85 +30,76 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private CatalogHttpCache catalogHttpCache;
+
     @GetMapping
-    public ResponseEntity<?> getAllCategories() {
+    public ResponseEntity<?> getAllCategories(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersions.categoriesETag();
+        ResponseEntity<?> notModified = catalogHttpCache.notModified(ifNoneMatch, etag);
+        if (notModified != null) {
+            return notModified;
+        }
         try {
-            List<Category> categories = categoryService.getRootCategoriesWithChildren();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("categories", categories);
-            
-            return ResponseEntity.ok(response);
+            List<CategoryNode> categories = categoryService.getCategoryTree();
+            return catalogHttpCache.ok(etag, new CategoryListResponse(true, categories));
         } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "获取分类失败");
-            response.put("error", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure("获取分类失败", e.getMessage()));
         }
     }
 
     @GetMapping("/root")
-    public ResponseEntity<?> getRootCategories() {
+    public ResponseEntity<?> getRootCategories(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersions.categoriesETag();
+        ResponseEntity<?> notModified = catalogHttpCache.notModified(ifNoneMatch, etag);
+        if (notModified != null) {
+            return notModified;
+        }
         try {
-            List<Category> categories = categoryService.getRootCategories();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("categories", categories);
-            
-            return ResponseEntity.ok(response);
+            List<CategoryNode> categories = categoryService.getCategoryTree();
+            return catalogHttpCache.ok(etag, new CategoryListResponse(true, categories));
         } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "获取根分类失败");
-            response.put("error", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure("获取根分类失败", e.getMessage()));
         }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getCategoryById(@PathVariable Long id) {
+    public ResponseEntity<?> getCategoryById(@PathVariable Long id,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersions.categoriesETag();
+        ResponseEntity<?> notModified = catalogHttpCache.notModified(ifNoneMatch, etag);
+        if (notModified != null) {
+            return notModified;
+        }
         try {
-            Optional<Category> category = categoryService.findById(id);
+            Optional<CategoryNode> category = categoryService.findById(id);
             
             if (category.isPresent()) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("success", true);
-                response.put("category", category.get());
-                return ResponseEntity.ok(response);
+                return catalogHttpCache.ok(etag, new CategoryResponse(true, null, category.get()));
             } else {
-                Map<String, Object> response = new HashMap<>();
-                response.put("success", false);
-                response.put("message", "分类不存在");
-                return ResponseEntity.notFound().build();
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(MessageResponse.CATEGORY_NOT_FOUND);
             }
         } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "获取分类失败");
-            response.put("error", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure("获取分类失败", e.getMessage()));
         }
     }
 
     @GetMapping("/{id}/children")
-    public ResponseEntity<?> getSubCategories(@PathVariable Long id) {
+    public ResponseEntity<?> getSubCategories(@PathVariable Long id,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersions.categoriesETag();
+        ResponseEntity<?> notModified = catalogHttpCache.notModified(ifNoneMatch, etag);
+        if (notModified != null) {
+            return notModified;
+        }
         try {
-            List<Category> subCategories = categoryService.getSubCategories(id);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("categories", subCategories);
-            
-            return ResponseEntity.ok(response);
+            List<CategoryNode> subCategories = categoryService.getSubCategories(id);
+            return catalogHttpCache.ok(etag, new CategoryListResponse(true, subCategories));
         } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "获取子分类失败");
-            response.put("error", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure("获取子分类失败", e.getMessage()));
         }
     }
 
@@ -111,23 +109,11 @@ public class CategoryController {
         try {
             Category createdCategory = categoryService.createCategory(category);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "分类创建成功");
-            response.put("category", createdCategory);
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(new CategoryResponse(true, "分类创建成功", createdCategory));
         } catch (IllegalArgumentException e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure(e.getMessage()));
         } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "创建分类失败");
-            response.put("error", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure("创建分类失败", e.getMessage()));
         }
     }
 
@@ -138,23 +124,11 @@ public class CategoryController {
             category.setId(id);
             Category updatedCategory = categoryService.updateCategory(category);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "分类更新成功");
-            response.put("category", updatedCategory);
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(new CategoryResponse(true, "分类更新成功", updatedCategory));
         } catch (IllegalArgumentException e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure(e.getMessage()));
         } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "更新分类失败");
-            response.put("error", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure("更新分类失败", e.getMessage()));
         }
     }
 
@@ -164,22 +138,16 @@ public class CategoryController {
         try {
             categoryService.deleteCategory(id);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "分类删除成功");
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(MessageResponse.CATEGORY_DELETED);
         } catch (IllegalArgumentException e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure(e.getMessage()));
         } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "删除分类失败");
-            response.put("error", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure("删除分类失败", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    // 响应记录，category为分类树节点或新建、更新后的分类实体
+    public record CategoryResponse(boolean success, String message, Object category) {}
+
+    public record CategoryListResponse(boolean success, List<CategoryNode> categories) {}
+}
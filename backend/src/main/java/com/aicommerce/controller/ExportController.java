@@ -0,0 +1,107 @@
+package com.aicommerce.controller;
+
+import com.aicommerce.export.DataExporter;
+import com.aicommerce.export.ExportFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 管理员数据导出控制器
+ *
+ * 心理过程：
+ * 1. 订单（含订单项）和商品目录整表导出，格式可选NDJSON或CSV，gzip=true时压缩为.gz附件
+ * 2. 响应体边查边写，不在内存里组装结果，导出耗时受spring.mvc.async.request-timeout限制
+ * 3. 同时进行的导出数达到上限时直接返回429
+ */
+@RestController
+@RequestMapping("/admin/export")
+@PreAuthorize("hasRole('ADMIN')")
+@CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"})
+public class ExportController {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportController.class);
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    @Autowired
+    private DataExporter dataExporter;
+
+    @GetMapping("/orders")
+    public ResponseEntity<?> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return export("orders", format, gzip, dataExporter::exportOrders);
+    }
+
+    @GetMapping("/products")
+    public ResponseEntity<?> exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return export("products", format, gzip, dataExporter::exportProducts);
+    }
+
+    private ResponseEntity<?> export(String name, String format, boolean gzip, Export export) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        if (!dataExporter.tryAcquireSlot()) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "进行中的导出任务过多，请稍后再试");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        }
+
+        StreamingResponseBody body = out -> {
+            long start = System.currentTimeMillis();
+            try {
+                if (gzip) {
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                    export.write(exportFormat, compressed);
+                    compressed.finish();
+                } else {
+                    export.write(exportFormat, out);
+                }
+                log.info("导出{}完成，格式 {}，耗时 {}ms", name, exportFormat.getExtension(), System.currentTimeMillis() - start);
+            } catch (IOException | RuntimeException e) {
+                log.warn("导出{}中断: {}", name, e.getMessage());
+                throw e;
+            } finally {
+                dataExporter.releaseSlot();
+            }
+        };
+
+        String filename = name + "-" + LocalDate.now() + "." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .contentType(gzip ? GZIP : exportFormat.getMediaType())
+                .body(body);
+    }
+
+    @FunctionalInterface
+    private interface Export {
+        void write(ExportFormat format, OutputStream out) throws IOException;
+    }
+}
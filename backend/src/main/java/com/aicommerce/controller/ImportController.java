@@ -0,0 +1,85 @@
+package com.aicommerce.controller;
+
+import com.aicommerce.export.ExportFormat;
+import com.aicommerce.importing.ProductImportResult;
+import com.aicommerce.importing.ProductImporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 管理员数据导入控制器
+ *
+ * 心理过程：
+ * 1. 请求体就是导入文件，格式可选NDJSON或CSV（字段名与导出一致，分类用categoryId），gzip=true时先解压
+ * 2. 边读请求体边导入，返回各条记录的错误和检查点；不传importId时生成一个，中断后带上它重新上传即可续传
+ * 3. 同一importId不能同时导入，同时进行的导入数达到上限时返回429
+ */
+@RestController
+@RequestMapping("/admin/import")
+@PreAuthorize("hasRole('ADMIN')")
+@CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"})
+public class ImportController {
+
+    @Autowired
+    private ProductImporter productImporter;
+
+    @PostMapping("/products")
+    public ResponseEntity<?> importProducts(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) String importId,
+            InputStream body) throws IOException {
+        String id = importId != null ? importId : UUID.randomUUID().toString();
+        ProductImportResult result;
+        try {
+            ExportFormat importFormat = ExportFormat.of(format);
+            result = productImporter.importProducts(id, importFormat, gzip ? new GZIPInputStream(body) : body);
+        } catch (IllegalArgumentException e) {
+            return failure(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return failure(HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", result.isCompleted());
+        response.put("message", result.isCompleted() ? "商品导入完成" : result.getMessage());
+        response.put("result", result);
+        return ResponseEntity.status(result.isCompleted() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
+    @GetMapping("/products/{importId}")
+    public ResponseEntity<?> getImportCheckpoint(@PathVariable String importId) {
+        Optional<ProductImportResult> checkpoint;
+        try {
+            checkpoint = productImporter.findCheckpoint(importId);
+        } catch (IllegalArgumentException e) {
+            return failure(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (checkpoint.isEmpty()) {
+            return failure(HttpStatus.NOT_FOUND, "导入任务不存在");
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("result", checkpoint.get());
+        return ResponseEntity.ok(response);
+    }
+
+    private static ResponseEntity<?> failure(HttpStatus status, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return ResponseEntity.status(status).body(response);
+    }
+}
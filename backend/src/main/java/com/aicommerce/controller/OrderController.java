@@ -1,12 +1,17 @@
 package com.aicommerce.controller;
 
+import com.aicommerce.behavior.BehaviorRecorder;
 import com.aicommerce.model.Order;
+import com.aicommerce.model.OrderItem;
 import com.aicommerce.model.User;
+import com.aicommerce.order.OrderView;
+import com.aicommerce.pagination.ScrollCursor;
 import com.aicommerce.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -28,14 +33,22 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private BehaviorRecorder behaviorRecorder;
+
     @GetMapping
     public ResponseEntity<?> getUserOrders(
             @AuthenticationPrincipal User user,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        if (after != null) {
+            return scrollUserOrders(user, after, size, withTotal);
+        }
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<Order> orders = orderService.getUserOrders(user.getId(), pageable);
+            Page<OrderView> orders = orderService.getUserOrders(user.getId(), pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -57,12 +70,39 @@ public class OrderController {
         }
     }
 
+    /**
+     * 游标分页：after为空字符串表示第一页，之后传入上一页返回的nextCursor
+     */
+    private ResponseEntity<?> scrollUserOrders(User user, String after, int size, boolean withTotal) {
+        try {
+            Window<OrderView> orders = orderService.scrollUserOrders(user.getId(),
+                    ScrollCursor.decodeKeyset(after, OrderService.CURSOR_SORT,
+                            OrderService.CURSOR_SORT_KEYS), ScrollCursor.clampLimit(size));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("content", orders.getContent());
+            response.put("size", orders.size());
+            response.put("hasNext", orders.hasNext());
+            response.put("nextCursor", ScrollCursor.nextCursor(orders));
+            if (withTotal) {
+                response.put("totalElements", orderService.countUserOrders(user.getId()));
+            }
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getOrderById(
             @AuthenticationPrincipal User user,
             @PathVariable Long id) {
         try {
-            Optional<Order> order = orderService.findByIdAndUserId(id, user.getId());
+            Optional<OrderView> order = orderService.findOrderView(id, user.getId());
             
             if (order.isPresent()) {
                 Map<String, Object> response = new HashMap<>();
@@ -89,9 +129,9 @@ public class OrderController {
             @AuthenticationPrincipal User user,
             @PathVariable String orderNumber) {
         try {
-            Optional<Order> order = orderService.findByOrderNumber(orderNumber);
+            Optional<OrderView> order = orderService.findOrderViewByNumber(orderNumber, user.getId());
             
-            if (order.isPresent() && order.get().getUser().getId().equals(user.getId())) {
+            if (order.isPresent()) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", true);
                 response.put("order", order.get());
@@ -122,11 +162,14 @@ public class OrderController {
                 request.getPaymentMethod(),
                 request.getNotes()
             );
+            for (OrderItem item : order.getItems()) {
+                behaviorRecorder.recordPurchase(user.getId(), item.getProduct());
+            }
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "订单创建成功");
-            response.put("order", order);
+            response.put("order", OrderView.of(order));
             
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
@@ -153,7 +196,7 @@ public class OrderController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "订单已取消");
-            response.put("order", order);
+            response.put("order", OrderView.of(order));
             
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
@@ -176,7 +219,7 @@ public class OrderController {
             @PathVariable String status) {
         try {
             Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
-            List<Order> orders = orderService.getUserOrdersByStatus(user.getId(), orderStatus);
+            List<OrderView> orders = orderService.getUserOrdersByStatus(user.getId(), orderStatus);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -242,7 +285,7 @@ public class OrderController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "订单状态更新成功");
-            response.put("order", order);
+            response.put("order", OrderView.of(order));
             
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
@@ -1,20 +1,37 @@
 package com.aicommerce.controller;
 
+import com.aicommerce.behavior.BehaviorRecorder;
+import com.aicommerce.cache.CatalogVersions;
+import com.aicommerce.cache.CategoryTree;
+import com.aicommerce.cache.CategoryTreeCache;
 import com.aicommerce.model.Product;
+import com.aicommerce.model.User;
+import com.aicommerce.pagination.ScrollCursor;
+import com.aicommerce.response.CatalogHttpCache;
+import com.aicommerce.response.MessageResponse;
+import com.aicommerce.response.PageResponse;
+import com.aicommerce.response.ProductView;
+import com.aicommerce.response.ScrollResponse;
+import com.aicommerce.search.ProductFacetIndex;
+import com.aicommerce.search.ProductQuery;
 import com.aicommerce.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
+import java.time.ZoneOffset;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -22,9 +39,13 @@ import java.util.Optional;
  * 
  * 心理过程：
  * 1. 提供RESTful API接口
- * 2. 支持分页、排序、搜索等功能
- * 3. 区分公开接口和管理员接口
- * 4. 返回统一的响应格式
+ * 2. 支持分页、排序、搜索等功能，列表接口传after参数时切换为游标分页
+ * 3. 列表筛选条件可以组合使用，facets=true时同时返回分面计数
+ * 4. 区分公开接口和管理员接口
+ * 5. 返回统一的响应格式：不可变的响应记录，商品转换为ProductView后再序列化，序列化阶段不触发懒加载
+ * 6. 商品详情和搜索首页记录用户行为，只放入内存缓冲区，不影响响应时间
+ * 7. 公开查询接口带ETag：列表类接口取目录版本号，在查询之前比较If-None-Match，命中时返回304不查库；
+ *    详情取缓存中商品的更新时间和分类，商品缓存命中时同样不查库
  */
 @RestController
 @RequestMapping("/products")
@@ -34,6 +55,18 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private BehaviorRecorder behaviorRecorder;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private CatalogHttpCache catalogHttpCache;
+
     @GetMapping
     public ResponseEntity<?> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
@@ -44,113 +77,138 @@ public class ProductController {
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
-            @RequestParam(required = false) String brand) {
-
-        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @AuthenticationPrincipal User user) {
+        try {
+            ProductQuery query = new ProductQuery(categoryId, keyword, minPrice, maxPrice, brand);
+            // 翻页不重复记录搜索
+            if (query.hasKeyword() && (after != null ? after.isEmpty() : page == 0)) {
+                behaviorRecorder.recordSearch(user != null ? user.getId() : null, keyword, categoryId);
+            }
+            String etag = catalogVersions.productsETag();
+            ResponseEntity<?> notModified = catalogHttpCache.notModified(ifNoneMatch, etag);
+            if (notModified != null) {
+                return notModified;
+            }
+            Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+            ProductFacetIndex.FacetCounts facetCounts = facets ? productService.countFacets(query) : null;
 
-        Page<Product> products;
+            if (after != null) {
+                return catalogHttpCache.ok(etag, scrollProducts(query, after, size, sortBy, direction, withTotal)
+                        .withFacets(facetCounts));
+            }
+            Page<Product> products = productService.findProducts(query, PageRequest.of(page, size, Sort.by(direction, sortBy)));
+            return catalogHttpCache.ok(etag, page(products).withFacets(facetCounts));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(MessageResponse.failure(e.getMessage()));
+        }
+    }
 
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            products = productService.searchProducts(keyword.trim(), pageable);
-        } else if (categoryId != null) {
-            products = productService.findProductsByCategory(categoryId, pageable);
-        } else if (minPrice != null && maxPrice != null) {
-            products = productService.findProductsByPriceRange(minPrice, maxPrice, pageable);
-        } else if (brand != null && !brand.trim().isEmpty()) {
-            products = productService.findProductsByBrand(brand.trim(), pageable);
+    /**
+     * 游标分页：after为空字符串表示第一页，之后传入上一页返回的nextCursor
+     * 只在withTotal=true时才查询总数
+     */
+    private ScrollResponse<ProductView> scrollProducts(ProductQuery query, String after, int size, String sortBy,
+                                                       Sort.Direction direction, boolean withTotal) {
+        int limit = ScrollCursor.clampLimit(size);
+        Window<Product> products;
+        if (query.hasKeyword()) {
+            products = productService.scrollSearchResults(query, ScrollCursor.decodeOffset(after), limit);
         } else {
-            products = productService.findAllActiveProducts(pageable);
+            if (!ProductService.CURSOR_SORT_KEYS.containsKey(sortBy)) {
+                throw new IllegalArgumentException("游标分页不支持按该字段排序: " + sortBy);
+            }
+            Sort sort = sortBy.equals("id")
+                    ? Sort.by(direction, "id")
+                    : Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+            products = productService.scrollProducts(query,
+                    ScrollCursor.decodeKeyset(after, sort, ProductService.CURSOR_SORT_KEYS), sort, limit);
         }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("content", products.getContent());
-        response.put("page", products.getNumber());
-        response.put("size", products.getSize());
-        response.put("totalElements", products.getTotalElements());
-        response.put("totalPages", products.getTotalPages());
-        response.put("first", products.isFirst());
-        response.put("last", products.isLast());
-
-        return ResponseEntity.ok(response);
+        CategoryTree categories = categoryTreeCache.current();
+        ScrollResponse<ProductView> response = ScrollResponse.of(products, product -> ProductView.of(product, categories));
+        return withTotal ? response.withTotal(productService.countProducts(query)) : response;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable Long id) {
+    public ResponseEntity<?> getProductById(@PathVariable Long id,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                            @AuthenticationPrincipal User user) {
         Optional<Product> product = productService.findById(id);
         
         if (product.isPresent()) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("product", product.get());
-            return ResponseEntity.ok(response);
+            behaviorRecorder.recordView(user != null ? user.getId() : null, product.get());
+            ProductView view = view(product.get());
+            String etag = productETag(view);
+            ResponseEntity<?> notModified = catalogHttpCache.notModified(ifNoneMatch, etag);
+            return notModified != null ? notModified : catalogHttpCache.ok(etag, new ProductResponse(true, null, view));
         } else {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "商品不存在");
-            return ResponseEntity.notFound().build();
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(MessageResponse.PRODUCT_NOT_FOUND);
         }
     }
 
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<?> getSimilarProducts(@PathVariable Long id,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        List<Product> products = productService.findSimilarProducts(id, Math.max(1, Math.min(limit, 50)));
+        return ResponseEntity.ok(new ProductListResponse(true, views(products)));
+    }
+
     @GetMapping("/latest")
-    public ResponseEntity<?> getLatestProducts() {
+    public ResponseEntity<?> getLatestProducts(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersions.productsETag();
+        ResponseEntity<?> notModified = catalogHttpCache.notModified(ifNoneMatch, etag);
+        if (notModified != null) {
+            return notModified;
+        }
         List<Product> products = productService.findLatestProducts();
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("products", products);
-        
-        return ResponseEntity.ok(response);
+        return catalogHttpCache.ok(etag, new ProductListResponse(true, views(products)));
     }
 
     @GetMapping("/top-rated")
     public ResponseEntity<?> getTopRatedProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersions.productsETag();
+        ResponseEntity<?> notModified = catalogHttpCache.notModified(ifNoneMatch, etag);
+        if (notModified != null) {
+            return notModified;
+        }
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products = productService.findTopRatedProducts(pageable);
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("content", products.getContent());
-        response.put("page", products.getNumber());
-        response.put("size", products.getSize());
-        response.put("totalElements", products.getTotalElements());
-        response.put("totalPages", products.getTotalPages());
-        
-        return ResponseEntity.ok(response);
+        return catalogHttpCache.ok(etag, page(productService.findTopRatedProducts(pageable)));
     }
 
     @GetMapping("/in-stock")
     public ResponseEntity<?> getInStockProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersions.productsETag();
+        ResponseEntity<?> notModified = catalogHttpCache.notModified(ifNoneMatch, etag);
+        if (notModified != null) {
+            return notModified;
+        }
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products = productService.findInStockProducts(pageable);
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("content", products.getContent());
-        response.put("page", products.getNumber());
-        response.put("size", products.getSize());
-        response.put("totalElements", products.getTotalElements());
-        response.put("totalPages", products.getTotalPages());
-        
-        return ResponseEntity.ok(response);
+        return catalogHttpCache.ok(etag, page(productService.findInStockProducts(pageable)));
     }
 
     @GetMapping("/brands")
-    public ResponseEntity<?> getAllBrands() {
-        List<String> brands = productService.getAllBrands();
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("brands", brands);
-        
-        return ResponseEntity.ok(response);
+    public ResponseEntity<?> getAllBrands(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersions.productsETag();
+        ResponseEntity<?> notModified = catalogHttpCache.notModified(ifNoneMatch, etag);
+        if (notModified != null) {
+            return notModified;
+        }
+        return catalogHttpCache.ok(etag, new BrandListResponse(true, productService.getAllBrands()));
     }
 
     @PostMapping
@@ -158,18 +216,9 @@ public class ProductController {
     public ResponseEntity<?> createProduct(@RequestBody Product product) {
         try {
             Product createdProduct = productService.createProduct(product);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "商品创建成功");
-            response.put("product", createdProduct);
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(new ProductResponse(true, "商品创建成功", view(createdProduct)));
         } catch (IllegalArgumentException e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure(e.getMessage()));
         }
     }
 
@@ -179,18 +228,9 @@ public class ProductController {
         try {
             product.setId(id);
             Product updatedProduct = productService.updateProduct(product);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "商品更新成功");
-            response.put("product", updatedProduct);
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(new ProductResponse(true, "商品更新成功", view(updatedProduct)));
         } catch (IllegalArgumentException e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure(e.getMessage()));
         }
     }
 
@@ -199,17 +239,9 @@ public class ProductController {
     public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         try {
             productService.deleteProduct(id);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "商品删除成功");
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(MessageResponse.PRODUCT_DELETED);
         } catch (IllegalArgumentException e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure(e.getMessage()));
         }
     }
 
@@ -218,17 +250,9 @@ public class ProductController {
     public ResponseEntity<?> updateStock(@PathVariable Long id, @RequestBody StockUpdateRequest request) {
         try {
             productService.updateStock(id, request.getQuantity());
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "库存更新成功");
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(MessageResponse.STOCK_UPDATED);
         } catch (IllegalArgumentException e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure(e.getMessage()));
         }
     }
 
@@ -236,20 +260,36 @@ public class ProductController {
     public ResponseEntity<?> checkStock(@PathVariable Long id, @RequestParam int quantity) {
         try {
             boolean inStock = productService.checkStock(id, quantity);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("inStock", inStock);
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(new StockCheckResponse(true, inStock));
         } catch (IllegalArgumentException e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(MessageResponse.failure(e.getMessage()));
         }
     }
 
+    private PageResponse<ProductView> page(Page<Product> products) {
+        CategoryTree categories = categoryTreeCache.current();
+        return PageResponse.of(products, product -> ProductView.of(product, categories));
+    }
+
+    private List<ProductView> views(List<Product> products) {
+        CategoryTree categories = categoryTreeCache.current();
+        return products.stream().map(product -> ProductView.of(product, categories)).toList();
+    }
+
+    private ProductView view(Product product) {
+        return ProductView.of(product, categoryTreeCache.current());
+    }
+
+    /**
+     * 详情的ETag：商品的写操作（包括库存扣减的原子UPDATE）都会更新updatedAt，分类改名时详情里的分类名称也会变化
+     */
+    private static String productETag(ProductView view) {
+        long updatedAt = view.updatedAt() != null ? view.updatedAt().toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L
+                + view.updatedAt().getNano() : 0;
+        return "\"d" + view.id() + "." + Long.toString(updatedAt, 36) + "."
+                + Integer.toHexString(Objects.hashCode(view.category())) + "\"";
+    }
+
     // 请求DTO
     public static class StockUpdateRequest {
         private int quantity;
@@ -257,4 +297,13 @@ public class ProductController {
         public int getQuantity() { return quantity; }
         public void setQuantity(int quantity) { this.quantity = quantity; }
     }
-}
\ No newline at end of file
+
+    // 响应记录
+    public record ProductResponse(boolean success, String message, ProductView product) {}
+
+    public record ProductListResponse(boolean success, List<ProductView> products) {}
+
+    public record BrandListResponse(boolean success, List<String> brands) {}
+
+    public record StockCheckResponse(boolean success, boolean inStock) {}
+}
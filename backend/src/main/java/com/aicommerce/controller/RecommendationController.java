@@ -0,0 +1,113 @@
+package com.aicommerce.controller;
+
+import com.aicommerce.ai.AiRecommendationClient;
+import com.aicommerce.ai.Recommendation;
+import com.aicommerce.model.Product;
+import com.aicommerce.model.User;
+import com.aicommerce.service.ProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 推荐控制器
+ *
+ * 心理过程：
+ * 1. 推荐由AI服务计算，接口返回Mono，等待AI服务期间释放Tomcat线程
+ * 2. AI服务慢或不可用时客户端已降级为本地热门商品，这里总能返回推荐
+ * 3. AI服务只返回商品ID，商品详情经多级缓存填充，已下架或不存在的商品直接跳过
+ */
+@RestController
+@RequestMapping("/ai/recommendations")
+@CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"})
+public class RecommendationController {
+
+    private static final int MAX_LIMIT = 50;
+
+    @Autowired
+    private AiRecommendationClient recommendationClient;
+
+    @Autowired
+    private ProductService productService;
+
+    @GetMapping("/public/popular")
+    public Mono<ResponseEntity<Map<String, Object>>> getPopular(@RequestParam(defaultValue = "10") int limit) {
+        return respond(recommendationClient.popular(clamp(limit)), "获取热门推荐失败");
+    }
+
+    @GetMapping("/public/similar/{productId}")
+    public Mono<ResponseEntity<Map<String, Object>>> getSimilar(@PathVariable Long productId,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        return respond(recommendationClient.similar(productId, clamp(limit)), "获取相似商品失败");
+    }
+
+    @GetMapping("/user")
+    public Mono<ResponseEntity<Map<String, Object>>> getForUser(@AuthenticationPrincipal User user,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        return respond(recommendationClient.forUser(user.getId(), clamp(limit)), "获取个性化推荐失败");
+    }
+
+    @PostMapping("/context")
+    public Mono<ResponseEntity<Map<String, Object>>> getContextual(@AuthenticationPrincipal User user,
+                                                                   @RequestBody Map<String, Object> request) {
+        Object context = request.get("context");
+        Object limit = request.get("limit");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> contextMap = context instanceof Map ? (Map<String, Object>) context : Map.of();
+        int requestedLimit = limit instanceof Number ? ((Number) limit).intValue() : 10;
+        return respond(recommendationClient.contextual(user.getId(), contextMap, clamp(requestedLimit)),
+                "获取场景推荐失败");
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> respond(Mono<List<Recommendation>> recommendations,
+                                                              String failureMessage) {
+        return recommendations
+                // 填充商品可能访问数据库，切到弹性线程池，不占用Netty事件循环线程
+                .publishOn(Schedulers.boundedElastic())
+                .map(this::withProducts)
+                .map(items -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("recommendations", items);
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("message", failureMessage);
+                    response.put("error", e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(response));
+                });
+    }
+
+    private List<Map<String, Object>> withProducts(List<Recommendation> recommendations) {
+        List<Map<String, Object>> items = new ArrayList<>(recommendations.size());
+        for (Recommendation recommendation : recommendations) {
+            Optional<Product> product = productService.findById(recommendation.getProductId());
+            if (product.isEmpty() || !Boolean.TRUE.equals(product.get().getIsActive())) {
+                continue;
+            }
+            Map<String, Object> item = new HashMap<>();
+            item.put("productId", recommendation.getProductId());
+            item.put("score", recommendation.getScore());
+            item.put("reason", recommendation.getReason());
+            item.put("source", recommendation.getSource());
+            item.put("product", product.get());
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
@@ -0,0 +1,36 @@
+package com.aicommerce.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * 数据源路由的线程内开关
+ *
+ * 心理过程：
+ * 1. 只读事务默认可以读副本，但读出来要放进缓存长期使用的数据必须来自主库，否则副本延迟会被缓存放大成几十分钟的旧值
+ * 2. usePrimary包住的代码在本线程内新取的连接都走主库，可以嵌套
+ * 3. 只影响新取的连接：外层只读事务已经拿到副本连接时，事务内沿用该连接
+ */
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Integer> PRIMARY_DEPTH = new ThreadLocal<>();
+
+    private DataSourceRouting() {}
+
+    public static <T> T usePrimary(Supplier<T> action) {
+        Integer outer = PRIMARY_DEPTH.get();
+        PRIMARY_DEPTH.set(outer == null ? 1 : outer + 1);
+        try {
+            return action.get();
+        } finally {
+            if (outer == null) {
+                PRIMARY_DEPTH.remove();
+            } else {
+                PRIMARY_DEPTH.set(outer);
+            }
+        }
+    }
+
+    static boolean isPrimaryRequired() {
+        return PRIMARY_DEPTH.get() != null;
+    }
+}
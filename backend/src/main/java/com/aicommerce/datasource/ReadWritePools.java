@@ -0,0 +1,113 @@
+package com.aicommerce.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 主库连接池和只读副本连接池
+ *
+ * 心理过程：
+ * 1. 定时在每个副本上查询回放延迟，收到的WAL都已回放时视为没有延迟，避免主库空闲时把回放时间差误判为延迟
+ * 2. 延迟超过上限或查询失败的副本暂时摘除，恢复后自动加回；没有可用副本时读请求回到主库
+ * 3. 可用副本之间轮询，副本延迟计入db.replica.lag指标，摘除状态计入db.replica.available
+ */
+public class ReadWritePools implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWritePools.class);
+
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE (EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint END";
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    // 可用副本的快照，检查延迟时整体替换
+    private volatile List<Replica> available = List.of();
+
+    public ReadWritePools(HikariDataSource primary, List<HikariDataSource> replicaPools, Duration maxLag,
+                          MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.maxLagMillis = maxLag.toMillis();
+        for (HikariDataSource pool : replicaPools) {
+            Replica replica = new Replica(pool);
+            replicas.add(replica);
+            Gauge.builder("db.replica.lag", replica, r -> r.lagMillis)
+                    .tag("pool", pool.getPoolName())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("db.replica.available", replica, r -> r.available ? 1 : 0)
+                    .tag("pool", pool.getPoolName())
+                    .register(meterRegistry);
+        }
+    }
+
+    public HikariDataSource primary() {
+        return primary;
+    }
+
+    /**
+     * 轮询选一个可用副本，没有可用副本时返回null
+     */
+    public HikariDataSource pickReplica() {
+        List<Replica> current = available;
+        if (current.isEmpty()) {
+            return null;
+        }
+        return current.get(Math.floorMod(next.getAndIncrement(), current.size())).pool;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.lag-check-interval:1s}")
+    public void checkLag() {
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            boolean wasAvailable = replica.available;
+            try {
+                Long lag = new JdbcTemplate(replica.pool).queryForObject(LAG_SQL, Long.class);
+                replica.lagMillis = lag != null ? lag : Long.MAX_VALUE;
+                replica.available = replica.lagMillis <= maxLagMillis;
+            } catch (DataAccessException e) {
+                replica.lagMillis = Long.MAX_VALUE;
+                replica.available = false;
+            }
+
+            if (replica.available) {
+                healthy.add(replica);
+            }
+            if (wasAvailable != replica.available) {
+                log.warn("只读副本 {} {}，当前延迟 {}ms", replica.pool.getPoolName(),
+                        replica.available ? "恢复可用" : "已摘除", replica.lagMillis);
+            }
+        }
+        available = List.copyOf(healthy);
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+        primary.close();
+    }
+
+    private static final class Replica {
+        private final HikariDataSource pool;
+        private volatile long lagMillis = Long.MAX_VALUE;
+        private volatile boolean available;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.aicommerce.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 读写分离路由数据源
+ *
+ * 心理过程：
+ * 1. 只读事务取副本连接，其余（读写事务、无事务的自动提交语句）一律走主库
+ * 2. 以下情况只读事务也回到主库：当前用户刚提交过写事务、调用方要求主库、没有延迟达标的副本
+ * 3. 事务开始时只读标记还没登记，需要外面包一层LazyConnectionDataSourceProxy，
+ *    第一条语句执行时才真正取连接并在这里做路由
+ * 4. 读写事务取连接时登记当前用户，提交后进入读己之写窗口
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private final ReadWritePools pools;
+    private final ReadYourWritesTracker readYourWrites;
+
+    public ReadWriteRoutingDataSource(ReadWritePools pools, ReadYourWritesTracker readYourWrites) {
+        this.pools = pools;
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route().getConnection(username, password);
+    }
+
+    private DataSource route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                readYourWrites.recordWriteAfterCommit();
+            }
+            return pools.primary();
+        }
+        if (DataSourceRouting.isPrimaryRequired() || readYourWrites.hasRecentWrite()) {
+            return pools.primary();
+        }
+        DataSource replica = pools.pickReplica();
+        return replica != null ? replica : pools.primary();
+    }
+}
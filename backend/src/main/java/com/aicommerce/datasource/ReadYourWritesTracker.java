@@ -0,0 +1,67 @@
+package com.aicommerce.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * 读己之写：用户自己的写事务提交后一段时间内，该用户的读请求都走主库
+ *
+ * 心理过程：
+ * 1. 下单后立即查看订单列表是最常见的场景，副本即使只落后几百毫秒也会让用户看不到刚下的单
+ * 2. 按登录用户名记录最近一次写事务的提交，窗口期内的只读事务不走副本，窗口应大于副本延迟上限
+ * 3. 记录只在本节点内存中，多节点部署依赖负载均衡按用户粘滞；匿名请求没有写后读的问题
+ */
+public class ReadYourWritesTracker {
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesTracker(Duration stickyWindow, long maximumSize) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(stickyWindow)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * 当前用户最近是否提交过写事务
+     */
+    public boolean hasRecentWrite() {
+        String username = currentUsername();
+        return username != null && recentWriters.getIfPresent(username) != null;
+    }
+
+    /**
+     * 当前写事务提交后记录当前用户，同一事务只登记一次
+     */
+    public void recordWriteAfterCommit() {
+        String username = currentUsername();
+        if (username == null || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, username);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReadYourWritesTracker.this);
+                if (status == STATUS_COMMITTED) {
+                    recentWriters.put(username, Boolean.TRUE);
+                }
+            }
+        });
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication.getPrincipal() instanceof String) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,255 @@
+package com.aicommerce.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * 订单和商品的全量流式导出
+ *
+ * 心理过程：
+ * 1. 只读事务中按fetchSize游标分批拉取，边读边写到响应流，内存占用与总行数无关
+ * 2. 直接用JDBC读列值，不经过实体和持久化上下文，百万行也不会在一级缓存中堆积
+ * 3. NDJSON用Jackson流式生成器逐条写出，每行一个对象；订单与订单项JOIN后按订单ID排序，相邻行合并为一个带items数组的订单
+ * 4. CSV每行一个订单项，订单字段在各行重复，没有订单项的订单输出一行空订单项
+ * 5. 每个导出占用一个数据库连接直到写完，同时进行的导出数有上限；配置了只读副本时只读事务走副本
+ */
+@Component
+public class DataExporter {
+
+    private static final int FETCH_SIZE_MIN = 100;
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String PRODUCTS_SQL = """
+            SELECT p.id, p.name, p.sku, p.brand, c.name AS category, p.price, p.discount_price, p.stock_quantity,
+                   p.rating, p.review_count, p.is_active, p.description, p.images, p.tags, p.created_at, p.updated_at
+            FROM products p LEFT JOIN categories c ON c.id = p.category_id
+            ORDER BY p.id
+            """;
+
+    private static final String[] PRODUCT_FIELDS = {
+            "id", "name", "sku", "brand", "category", "price", "discountPrice", "stockQuantity",
+            "rating", "reviewCount", "isActive", "description", "images", "tags", "createdAt", "updatedAt"};
+
+    private static final String ORDERS_SQL = """
+            SELECT o.id, o.order_number, o.user_id, o.status, o.payment_status, o.payment_method, o.total_amount,
+                   o.shipping_address, o.notes, o.created_at, o.updated_at,
+                   oi.id AS item_id, oi.product_id, p.name AS product_name, p.sku AS product_sku,
+                   oi.quantity, oi.unit_price, oi.selected_attributes
+            FROM orders o
+            LEFT JOIN order_items oi ON oi.order_id = o.id
+            LEFT JOIN products p ON p.id = oi.product_id
+            ORDER BY o.id, oi.id
+            """;
+
+    private static final String[] ORDER_FIELDS = {
+            "id", "orderNumber", "userId", "status", "paymentStatus", "paymentMethod", "totalAmount",
+            "shippingAddress", "notes", "createdAt", "updatedAt"};
+
+    private static final String[] ITEM_FIELDS = {
+            "id", "productId", "productName", "productSku", "quantity", "unitPrice", "selectedAttributes"};
+
+    // jsonb列原样嵌入NDJSON，不再转义成字符串
+    private static final Set<String> JSON_FIELDS = Set.of("images", "tags", "shippingAddress", "selectedAttributes");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    private TransactionTemplate readOnlyTransaction;
+    private Semaphore slots;
+
+    @PostConstruct
+    public void init() {
+        // PostgreSQL只有在事务中才按fetchSize分批拉取结果，否则一次性读入全部行
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        fetchSize = Math.max(fetchSize, FETCH_SIZE_MIN);
+        slots = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * 占用一个导出名额，返回false表示进行中的导出已达上限；成功后导出结束时必须调用releaseSlot
+     */
+    public boolean tryAcquireSlot() {
+        return slots.tryAcquire();
+    }
+
+    public void releaseSlot() {
+        slots.release();
+    }
+
+    public void exportProducts(ExportFormat format, OutputStream out) throws IOException {
+        if (format == ExportFormat.CSV) {
+            CsvWriter csv = new CsvWriter(out);
+            csv.writeRow((Object[]) PRODUCT_FIELDS);
+            query(PRODUCTS_SQL, resultSet -> csv.writeRow(values(resultSet, PRODUCT_FIELDS, 1)));
+            csv.flush();
+            return;
+        }
+
+        try (JsonGenerator json = ndjson(out)) {
+            query(PRODUCTS_SQL, resultSet -> {
+                json.writeStartObject();
+                writeFields(json, resultSet, PRODUCT_FIELDS, 1);
+                json.writeEndObject();
+            });
+            json.writeRaw('\n');
+        }
+    }
+
+    public void exportOrders(ExportFormat format, OutputStream out) throws IOException {
+        int itemColumn = ORDER_FIELDS.length + 1;
+        if (format == ExportFormat.CSV) {
+            CsvWriter csv = new CsvWriter(out);
+            csv.writeRow(Stream.concat(Arrays.stream(ORDER_FIELDS), Arrays.stream(ITEM_FIELDS).map(field -> "item." + field))
+                    .toArray());
+            query(ORDERS_SQL, resultSet -> {
+                Object[] order = values(resultSet, ORDER_FIELDS, 1);
+                Object[] item = values(resultSet, ITEM_FIELDS, itemColumn);
+                Object[] row = Arrays.copyOf(order, order.length + item.length);
+                System.arraycopy(item, 0, row, order.length, item.length);
+                csv.writeRow(row);
+            });
+            csv.flush();
+            return;
+        }
+
+        try (JsonGenerator json = ndjson(out)) {
+            // 当前正在写出的订单ID，订单ID从1开始，0表示还没有订单
+            long[] currentOrderId = {0};
+            query(ORDERS_SQL, resultSet -> {
+                long orderId = resultSet.getLong(1);
+                if (orderId != currentOrderId[0]) {
+                    if (currentOrderId[0] != 0) {
+                        json.writeEndArray();
+                        json.writeEndObject();
+                    }
+                    currentOrderId[0] = orderId;
+                    json.writeStartObject();
+                    writeFields(json, resultSet, ORDER_FIELDS, 1);
+                    json.writeArrayFieldStart("items");
+                }
+                // LEFT JOIN出来的空订单项
+                resultSet.getLong(itemColumn);
+                if (!resultSet.wasNull()) {
+                    json.writeStartObject();
+                    writeFields(json, resultSet, ITEM_FIELDS, itemColumn);
+                    json.writeEndObject();
+                }
+            });
+            if (currentOrderId[0] != 0) {
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeRaw('\n');
+        }
+    }
+
+    private JsonGenerator ndjson(OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(new SerializedString("\n"));
+        return json;
+    }
+
+    private void query(String sql, RowWriter rowWriter) throws IOException {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(sql);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, (RowCallbackHandler) resultSet -> {
+                try {
+                    rowWriter.write(resultSet);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            // 多半是客户端断开，向上抛出原始异常，事务随之回滚并释放连接
+            throw e.getCause();
+        }
+    }
+
+    private static void writeFields(JsonGenerator json, ResultSet resultSet, String[] fields, int firstColumn)
+            throws SQLException, IOException {
+        for (int i = 0; i < fields.length; i++) {
+            Object value = value(resultSet, fields[i], firstColumn + i);
+            if (value == null) {
+                continue;
+            }
+            json.writeFieldName(fields[i]);
+            if (JSON_FIELDS.contains(fields[i])) {
+                json.writeRawValue((String) value);
+            } else if (value instanceof BigDecimal decimal) {
+                json.writeNumber(decimal);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+                json.writeNumber(((Number) value).longValue());
+            } else if (value instanceof Number number) {
+                json.writeNumber(number.doubleValue());
+            } else if (value instanceof Boolean bool) {
+                json.writeBoolean(bool);
+            } else {
+                json.writeString(value.toString());
+            }
+        }
+    }
+
+    private static Object[] values(ResultSet resultSet, String[] fields, int firstColumn) throws SQLException {
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = value(resultSet, fields[i], firstColumn + i);
+        }
+        return values;
+    }
+
+    private static Object value(ResultSet resultSet, String field, int column) throws SQLException {
+        if (JSON_FIELDS.contains(field)) {
+            return resultSet.getString(column);
+        }
+        Object value = resultSet.getObject(column);
+        if (value instanceof Timestamp timestamp) {
+            return DATE_TIME.format(timestamp.toLocalDateTime());
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet resultSet) throws SQLException, IOException;
+    }
+}
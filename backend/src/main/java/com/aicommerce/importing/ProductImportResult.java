@@ -0,0 +1,74 @@
+package com.aicommerce.importing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品导入的进度和结果
+ *
+ * 计数是同一importId历次导入的累计值；errors只包含本次导入发现的错误，最多保留app.import.max-errors条
+ */
+public class ProductImportResult {
+
+    private final String importId;
+    private long resumedFromRow;
+    private long rowsCommitted;
+    private long inserted;
+    private long updated;
+    private long failed;
+    private boolean completed;
+    private String message;
+    private final List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    ProductImportResult(String importId) {
+        this.importId = importId;
+    }
+
+    void addError(long row, String sku, String message, int maxErrors) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(row, sku, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    void setResumedFromRow(long resumedFromRow) { this.resumedFromRow = resumedFromRow; }
+    void setRowsCommitted(long rowsCommitted) { this.rowsCommitted = rowsCommitted; }
+    void setInserted(long inserted) { this.inserted = inserted; }
+    void setUpdated(long updated) { this.updated = updated; }
+    void setFailed(long failed) { this.failed = failed; }
+    void setCompleted(boolean completed) { this.completed = completed; }
+    void setMessage(String message) { this.message = message; }
+
+    public String getImportId() { return importId; }
+    public long getResumedFromRow() { return resumedFromRow; }
+    public long getRowsCommitted() { return rowsCommitted; }
+    public long getInserted() { return inserted; }
+    public long getUpdated() { return updated; }
+    public long getFailed() { return failed; }
+    public boolean isCompleted() { return completed; }
+    public String getMessage() { return message; }
+    public List<RowError> getErrors() { return errors; }
+    public boolean isErrorsTruncated() { return errorsTruncated; }
+
+    /**
+     * 一条被拒绝的记录，row为记录号（从1开始，不含CSV表头）
+     */
+    public static class RowError {
+        private final long row;
+        private final String sku;
+        private final String message;
+
+        RowError(long row, String sku, String message) {
+            this.row = row;
+            this.sku = sku;
+            this.message = message;
+        }
+
+        public long getRow() { return row; }
+        public String getSku() { return sku; }
+        public String getMessage() { return message; }
+    }
+}
@@ -0,0 +1,554 @@
+package com.aicommerce.importing;
+
+import com.aicommerce.cache.CatalogVersions;
+import com.aicommerce.cache.CategoryTree;
+import com.aicommerce.cache.CategoryTreeCache;
+import com.aicommerce.cache.ProductCache;
+import com.aicommerce.cart.CartStore;
+import com.aicommerce.export.ExportFormat;
+import com.aicommerce.inventory.InventoryEngine;
+import com.aicommerce.leaderboard.ProductLeaderboards;
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.ProductRepository;
+import com.aicommerce.search.ProductFacetIndex;
+import com.aicommerce.search.ProductSearchIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 商品批量导入
+ *
+ * 心理过程：
+ * 1. 边读边导入，每攒够batchSize条记录处理一批，内存占用与文件大小无关（SKU去重表除外）
+ * 2. 一批记录在独立线程池中并行转换和校验：Product上的Bean Validation约束、数字和JSON格式、分类是否存在
+ * 3. SKU在内存中去重，同一文件中重复出现的SKU只导入第一条，后面的按错误记录报告
+ * 4. 校验通过的记录经COPY写入临时表，再用一条INSERT ... ON CONFLICT (sku)把整批插入或更新到products，
+ *    不再逐条existsBySku + save
+ * 5. 每条记录带着自己给出的列一起写入临时表，更新已有商品时只覆盖该记录给出的列，其余字段保留原值；
+ *    新商品未给出库存和上架状态时分别取0和true，这两个默认值不会用于更新
+ * 6. 每批与导入检查点在同一事务中提交，检查点记录已提交到第几条；中断后用同一importId重新上传同一文件，
+ *    已提交的记录只登记SKU、不再导入
+ * 7. 更新的商品在提交后失效缓存、重新同步库存，价格变化时重算购物车单价；新增和更新的商品增量写入搜索和分面索引
+ */
+@Component
+public class ProductImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImporter.class);
+
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    // 价格列为NUMERIC(10,2)，整数部分最多8位
+    private static final int PRICE_MAX_INTEGER_DIGITS = 8;
+
+    private static final String CHECKPOINT_SCHEMA_SQL = """
+            CREATE TABLE IF NOT EXISTS product_import_checkpoints (
+                import_id VARCHAR(64) PRIMARY KEY,
+                rows_committed BIGINT NOT NULL,
+                inserted BIGINT NOT NULL,
+                updated BIGINT NOT NULL,
+                failed BIGINT NOT NULL,
+                completed BOOLEAN NOT NULL,
+                updated_at TIMESTAMP NOT NULL
+            )
+            """;
+
+    private static final String CHECKPOINT_SELECT_SQL =
+            "SELECT rows_committed, inserted, updated, failed, completed FROM product_import_checkpoints WHERE import_id = ?";
+
+    private static final String CHECKPOINT_UPSERT_SQL = """
+            INSERT INTO product_import_checkpoints (import_id, rows_committed, inserted, updated, failed, completed, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (import_id) DO UPDATE SET rows_committed = EXCLUDED.rows_committed, inserted = EXCLUDED.inserted,
+                updated = EXCLUDED.updated, failed = EXCLUDED.failed, completed = EXCLUDED.completed,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private static final String STAGING_SQL = """
+            CREATE TEMP TABLE product_import_staging (
+                sku VARCHAR(100) PRIMARY KEY, name VARCHAR(255), description TEXT, price NUMERIC(10,2),
+                discount_price NUMERIC(10,2), category_id BIGINT, brand VARCHAR(100), stock_quantity INTEGER, images JSONB,
+                attributes JSONB, tags JSONB, is_active BOOLEAN, present TEXT[] NOT NULL
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_SQL = "COPY product_import_staging (sku, name, description, price, discount_price, " +
+            "category_id, brand, stock_quantity, images, attributes, tags, is_active, present) FROM STDIN WITH (FORMAT csv)";
+
+    // 更新前的价格与插入或更新后的结果对照，previous_id为空即新插入的商品。
+    // 冲突时按临时表中该记录的present逐列选择新值或原值；staging.sku是主键，按EXCLUDED.sku回查只走索引
+    // 库存和上架状态只有给出值时才在present中，COALESCE的默认值因此只落到新插入的商品上
+    private static final String UPSERT_SQL_TEMPLATE = """
+            WITH previous AS (
+                SELECT p.id, p.price, p.discount_price FROM products p JOIN product_import_staging s ON s.sku = p.sku
+            ), upserted AS (
+                INSERT INTO products (sku, name, description, price, discount_price, category_id, brand, stock_quantity,
+                                      images, attributes, tags, is_active, rating, review_count, created_at, updated_at)
+                SELECT sku, name, description, price, discount_price, category_id, brand, COALESCE(stock_quantity, 0),
+                       images, attributes, tags, COALESCE(is_active, true), 0, 0, ?, ?
+                FROM product_import_staging
+                ON CONFLICT (sku) DO UPDATE SET (%s, updated_at) = (
+                    SELECT %s, EXCLUDED.updated_at FROM product_import_staging s WHERE s.sku = EXCLUDED.sku
+                )
+                RETURNING id, price, discount_price
+            )
+            SELECT u.id, u.price, u.discount_price, pr.id AS previous_id,
+                   pr.price AS previous_price, pr.discount_price AS previous_discount_price
+            FROM upserted u LEFT JOIN previous pr ON pr.id = u.id
+            """;
+
+    // 文件字段名到products列名，sku是导入的唯一键，不在其中
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("name", "name");
+        COLUMNS.put("description", "description");
+        COLUMNS.put("price", "price");
+        COLUMNS.put("discountPrice", "discount_price");
+        COLUMNS.put("categoryId", "category_id");
+        COLUMNS.put("brand", "brand");
+        COLUMNS.put("stockQuantity", "stock_quantity");
+        COLUMNS.put("images", "images");
+        COLUMNS.put("attributes", "attributes");
+        COLUMNS.put("tags", "tags");
+        COLUMNS.put("isActive", "is_active");
+    }
+
+    private static final String UPSERT_SQL = String.format(UPSERT_SQL_TEMPLATE,
+            String.join(", ", COLUMNS.values()),
+            COLUMNS.entrySet().stream()
+                    .map(column -> "CASE WHEN '" + column.getKey() + "' = ANY(s.present) THEN EXCLUDED." + column.getValue()
+                            + " ELSE products." + column.getValue() + " END")
+                    .collect(Collectors.joining(", ")));
+
+    // 这两列给出空值时视为没有给出：新商品取默认值，已有商品保留原值
+    private static final Set<String> DEFAULTED_FIELDS = Set.of("stockQuantity", "isActive");
+
+    private static final Set<String> JSON_FIELDS = Set.of("images", "attributes", "tags");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductLeaderboards productLeaderboards;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Value("${app.import.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${app.import.validation-parallelism:0}")
+    private int validationParallelism;
+
+    @Value("${app.import.max-errors:1000}")
+    private int maxErrors;
+
+    @Value("${app.import.max-concurrent:1}")
+    private int maxConcurrent;
+
+    private TransactionTemplate transaction;
+    private ForkJoinPool validationPool;
+    private Semaphore slots;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute(CHECKPOINT_SCHEMA_SQL);
+        transaction = new TransactionTemplate(transactionManager);
+        int parallelism = validationParallelism > 0 ? validationParallelism : Runtime.getRuntime().availableProcessors();
+        validationPool = new ForkJoinPool(parallelism);
+        slots = new Semaphore(maxConcurrent);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validationPool.shutdownNow();
+    }
+
+    /**
+     * 查询导入检查点，从未导入过时返回空
+     */
+    public Optional<ProductImportResult> findCheckpoint(String importId) {
+        validateImportId(importId);
+        return jdbcTemplate.query(CHECKPOINT_SELECT_SQL, resultSet -> {
+            if (!resultSet.next()) {
+                return Optional.empty();
+            }
+            ProductImportResult result = new ProductImportResult(importId);
+            result.setRowsCommitted(resultSet.getLong("rows_committed"));
+            result.setInserted(resultSet.getLong("inserted"));
+            result.setUpdated(resultSet.getLong("updated"));
+            result.setFailed(resultSet.getLong("failed"));
+            result.setCompleted(resultSet.getBoolean("completed"));
+            return Optional.of(result);
+        }, importId);
+    }
+
+    /**
+     * 导入商品文件；importId已有检查点时从检查点之后的记录继续
+     *
+     * @throws IllegalArgumentException importId格式不正确
+     * @throws IllegalStateException 同一importId正在导入，或进行中的导入已达上限
+     */
+    public ProductImportResult importProducts(String importId, ExportFormat format, InputStream in) throws IOException {
+        validateImportId(importId);
+        if (!running.add(importId)) {
+            throw new IllegalStateException("导入任务 " + importId + " 正在进行");
+        }
+        if (!slots.tryAcquire()) {
+            running.remove(importId);
+            throw new IllegalStateException("进行中的导入任务过多，请稍后再试");
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            ProductImportResult result = findCheckpoint(importId).orElseGet(() -> new ProductImportResult(importId));
+            result.setResumedFromRow(result.getRowsCommitted());
+            result.setCompleted(false);
+            run(result, format, in);
+            log.info("商品导入 {} {}，已提交 {} 条，新增 {}，更新 {}，失败 {}，耗时 {}ms", importId,
+                    result.isCompleted() ? "完成" : "中断", result.getRowsCommitted(), result.getInserted(),
+                    result.getUpdated(), result.getFailed(), System.currentTimeMillis() - start);
+            return result;
+        } finally {
+            slots.release();
+            running.remove(importId);
+        }
+    }
+
+    private void run(ProductImportResult result, ExportFormat format, InputStream in) throws IOException {
+        // SKU -> 首次出现的记录号，包括检查点之前已提交的记录
+        Map<String, Long> firstRowBySku = new HashMap<>();
+        List<ProductRowReader.Row> batch = new ArrayList<>(batchSize);
+
+        try (ProductRowReader reader = ProductRowReader.open(format, in, objectMapper)) {
+            ProductRowReader.Row row;
+            while ((row = reader.next()) != null) {
+                if (row.number <= result.getResumedFromRow()) {
+                    String sku = row.sku();
+                    if (sku != null && !sku.isEmpty()) {
+                        firstRowBySku.putIfAbsent(sku, row.number);
+                    }
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    load(result, batch, firstRowBySku);
+                    batch.clear();
+                }
+            }
+            load(result, batch, firstRowBySku);
+            finish(result);
+        } catch (DataAccessException | UncheckedIOException e) {
+            // 当前批次随事务回滚，检查点停在上一批，修正后用同一importId重新上传即可续传
+            String cause = e instanceof DataAccessException dataAccess
+                    ? dataAccess.getMostSpecificCause().getMessage() : e.getCause().getMessage();
+            log.warn("商品导入 {} 在第 {} 条之后失败: {}", result.getImportId(), result.getRowsCommitted(), cause);
+            result.setMessage("导入在第 " + result.getRowsCommitted() + " 条之后中断: " + cause);
+        }
+    }
+
+    private void load(ProductImportResult result, List<ProductRowReader.Row> batch, Map<String, Long> firstRowBySku) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        CategoryTree categories = categoryTreeCache.current();
+        List<StagedRow> staged = validationPool.submit(() -> batch.parallelStream()
+                .map(row -> stage(row, categories))
+                .collect(Collectors.toList())).join();
+
+        List<StagedRow> accepted = new ArrayList<>(staged.size());
+        List<StagedRow> rejected = new ArrayList<>();
+        for (StagedRow row : staged) {
+            if (row.error == null) {
+                Long firstRow = firstRowBySku.putIfAbsent(row.sku, row.number);
+                if (firstRow != null) {
+                    row.error = "SKU与第 " + firstRow + " 条记录重复";
+                }
+            }
+            (row.error == null ? accepted : rejected).add(row);
+        }
+
+        long lastRow = batch.get(batch.size() - 1).number;
+        long[] counts = transaction.execute(status -> {
+            long[] upserted = accepted.isEmpty() ? new long[2] : upsert(accepted);
+            if (!accepted.isEmpty()) {
+                catalogVersions.bumpProductsAfterCommit();
+            }
+            jdbcTemplate.update(CHECKPOINT_UPSERT_SQL, result.getImportId(), lastRow,
+                    result.getInserted() + upserted[0], result.getUpdated() + upserted[1],
+                    result.getFailed() + rejected.size(), false, Timestamp.valueOf(LocalDateTime.now()));
+            return upserted;
+        });
+
+        result.setRowsCommitted(lastRow);
+        result.setInserted(result.getInserted() + counts[0]);
+        result.setUpdated(result.getUpdated() + counts[1]);
+        for (StagedRow row : rejected) {
+            result.addError(row.number, row.sku, row.error, maxErrors);
+        }
+    }
+
+    private void finish(ProductImportResult result) {
+        jdbcTemplate.update(CHECKPOINT_UPSERT_SQL, result.getImportId(), result.getRowsCommitted(),
+                result.getInserted(), result.getUpdated(), result.getFailed(), true, Timestamp.valueOf(LocalDateTime.now()));
+        result.setCompleted(true);
+    }
+
+    /**
+     * 在当前事务中COPY到临时表并整批插入或更新，返回{新增数, 更新数}
+     */
+    private long[] upsert(List<StagedRow> rows) {
+        jdbcTemplate.execute(STAGING_SQL);
+        jdbcTemplate.execute((Connection connection) -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_SQL), StandardCharsets.UTF_8))) {
+                for (StagedRow row : rows) {
+                    row.writeCsv(writer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        long[] counts = new long[2];
+        List<Long> productIds = new ArrayList<>(rows.size());
+        jdbcTemplate.query(UPSERT_SQL, (RowCallbackHandler) resultSet -> {
+            long id = resultSet.getLong("id");
+            productIds.add(id);
+            // 新增的商品也发失效消息，其他节点据此把它加入搜索索引
+            productCache.evictAfterCommit(id);
+            resultSet.getLong("previous_id");
+            if (resultSet.wasNull()) {
+                counts[0]++;
+                return;
+            }
+            counts[1]++;
+            inventoryEngine.refreshAfterCommit(id);
+            BigDecimal price = effectivePrice(resultSet.getBigDecimal("price"), resultSet.getBigDecimal("discount_price"));
+            BigDecimal previousPrice = effectivePrice(resultSet.getBigDecimal("previous_price"),
+                    resultSet.getBigDecimal("previous_discount_price"));
+            if (price.compareTo(previousPrice) != 0) {
+                cartStore.repriceAfterCommit(id, price);
+            }
+        }, now, now);
+
+        for (Product product : productRepository.findAllById(productIds)) {
+            productSearchIndex.indexAfterCommit(product);
+            productFacetIndex.indexAfterCommit(product);
+            productLeaderboards.indexAfterCommit(product);
+        }
+        return counts;
+    }
+
+    /**
+     * 把一条原始记录转换为待导入的商品并校验，失败时error不为空
+     */
+    private StagedRow stage(ProductRowReader.Row row, CategoryTree categories) {
+        StagedRow staged = new StagedRow(row.number, row.sku());
+        if (row.error != null) {
+            staged.error = row.error;
+            return staged;
+        }
+        if (staged.sku == null || staged.sku.isEmpty()) {
+            staged.error = "SKU不能为空";
+            return staged;
+        }
+
+        Map<String, String> fields = row.fields;
+        for (String field : COLUMNS.keySet()) {
+            if (row.columns.contains(field) && (fields.containsKey(field) || !DEFAULTED_FIELDS.contains(field))) {
+                staged.present.add(field);
+            }
+        }
+        Product product = staged.product;
+        try {
+            product.setSku(staged.sku);
+            product.setName(fields.get("name"));
+            product.setDescription(fields.get("description"));
+            product.setBrand(fields.get("brand"));
+            product.setPrice(decimal(fields, "price"));
+            product.setDiscountPrice(decimal(fields, "discountPrice"));
+            product.setStockQuantity(fields.containsKey("stockQuantity")
+                    ? Integer.valueOf(fields.get("stockQuantity").strip()) : null);
+            product.setIsActive(fields.containsKey("isActive") ? bool(fields.get("isActive")) : null);
+            staged.categoryId = fields.containsKey("categoryId") ? Long.valueOf(fields.get("categoryId").strip()) : null;
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException也在此处理
+            staged.error = "字段格式不正确: " + e.getMessage();
+            return staged;
+        }
+
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<Product> violation : validator.validate(product)) {
+            errors.add(violation.getMessage());
+        }
+        for (BigDecimal price : new BigDecimal[]{product.getPrice(), product.getDiscountPrice()}) {
+            if (price != null && price.precision() - price.scale() > PRICE_MAX_INTEGER_DIGITS) {
+                errors.add("价格超出范围: " + price.toPlainString());
+            }
+        }
+        if (product.getStockQuantity() != null && product.getStockQuantity() < 0) {
+            errors.add("库存不能为负数");
+        }
+        if (staged.categoryId != null && categories.find(staged.categoryId).isEmpty()) {
+            errors.add("分类不存在: " + staged.categoryId);
+        }
+        for (String field : JSON_FIELDS) {
+            String json = fields.get(field);
+            if (json == null) {
+                continue;
+            }
+            try {
+                objectMapper.readTree(json);
+            } catch (JsonProcessingException e) {
+                errors.add(field + "不是合法的JSON");
+            }
+        }
+        product.setImages(fields.get("images"));
+        product.setAttributes(fields.get("attributes"));
+        product.setTags(fields.get("tags"));
+
+        if (!errors.isEmpty()) {
+            staged.error = String.join("；", errors);
+        }
+        return staged;
+    }
+
+    private static BigDecimal decimal(Map<String, String> fields, String field) {
+        String value = fields.get(field);
+        return value != null ? new BigDecimal(value.strip()) : null;
+    }
+
+    private static Boolean bool(String value) {
+        return switch (value.strip().toLowerCase()) {
+            case "true", "1" -> true;
+            case "false", "0" -> false;
+            default -> throw new IllegalArgumentException("isActive只能是true或false: " + value);
+        };
+    }
+
+    private static BigDecimal effectivePrice(BigDecimal price, BigDecimal discountPrice) {
+        return discountPrice != null && discountPrice.compareTo(price) < 0 ? discountPrice : price;
+    }
+
+    private static void validateImportId(String importId) {
+        if (importId == null || !IMPORT_ID.matcher(importId).matches()) {
+            throw new IllegalArgumentException("importId只能包含字母、数字、下划线和连字符，最长64位");
+        }
+    }
+
+    /**
+     * 校验后的一条记录，字段顺序与COPY_SQL的列一致
+     */
+    private static final class StagedRow {
+        final long number;
+        final String sku;
+        final Product product = new Product();
+        final List<String> present = new ArrayList<>();
+        Long categoryId;
+        String error;
+
+        StagedRow(long number, String sku) {
+            this.number = number;
+            this.sku = sku;
+        }
+
+        void writeCsv(Writer writer) throws IOException {
+            Object[] values = {sku, product.getName(), product.getDescription(), product.getPrice(),
+                    product.getDiscountPrice(), categoryId, product.getBrand(), product.getStockQuantity(),
+                    product.getImages(), product.getAttributes(), product.getTags(), product.getIsActive(),
+                    "{" + String.join(",", present) + "}"};
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                // COPY的CSV格式中不加引号的空字段为NULL，字符串一律加引号
+                if (values[i] instanceof String text) {
+                    writer.write('"');
+                    writer.write(text.replace("\"", "\"\""));
+                    writer.write('"');
+                } else if (values[i] instanceof BigDecimal decimal) {
+                    writer.write(decimal.toPlainString());
+                } else if (values[i] != null) {
+                    writer.write(values[i].toString());
+                }
+            }
+            writer.write('\n');
+        }
+    }
+}
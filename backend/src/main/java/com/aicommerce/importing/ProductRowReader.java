@@ -0,0 +1,212 @@
+package com.aicommerce.importing;
+
+import com.aicommerce.export.ExportFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 逐条读取导入文件中的商品记录，不把整个文件读入内存
+ *
+ * 心理过程：
+ * 1. CSV第一条记录是表头，按列名取值；支持引号转义和字段内换行（RFC 4180），忽略开头的UTF-8 BOM
+ * 2. NDJSON每行一个对象，数组和对象类型的值（如images、tags）转回JSON文本
+ * 3. 空字符串和null都当作没有值；空行跳过，不占记录号
+ * 4. 每条记录另外带上它给出的列：CSV为表头中的列，NDJSON为对象中出现的键（值为null或空也算），
+ *    导入据此区分"清空该字段"和"没有这一列、保留原值"
+ * 5. 记录号从1开始，不含表头，同一个文件每次读出的记录号相同，断点续传按记录号跳过
+ * 6. 单条记录解析失败只标记该记录，继续读下一条
+ */
+abstract class ProductRowReader implements Closeable {
+
+    // 缺少结束引号时后面整个文件都会被读成一个字段，超过该长度直接中止
+    private static final int MAX_FIELD_LENGTH = 1 << 20;
+
+    protected final BufferedReader reader;
+    protected long number;
+
+    private ProductRowReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    static ProductRowReader open(ExportFormat format, InputStream in, ObjectMapper objectMapper) {
+        return format == ExportFormat.CSV ? new Csv(in) : new Ndjson(in, objectMapper);
+    }
+
+    /**
+     * 读下一条记录，文件结束时返回null
+     */
+    abstract Row next() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 一条原始记录：字段名到文本值，以及记录中出现的列名；解析失败时error不为空
+     */
+    static final class Row {
+        final long number;
+        final Map<String, String> fields;
+        final Set<String> columns;
+        final String error;
+
+        Row(long number, Map<String, String> fields, Set<String> columns, String error) {
+            this.number = number;
+            this.fields = fields;
+            this.columns = columns;
+            this.error = error;
+        }
+
+        String sku() {
+            String sku = fields.get("sku");
+            return sku != null ? sku.strip() : null;
+        }
+    }
+
+    private static final class Csv extends ProductRowReader {
+
+        private List<String> header;
+        private Set<String> columns;
+
+        Csv(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        Row next() throws IOException {
+            if (header == null) {
+                header = readRecord();
+                if (header == null) {
+                    return null;
+                }
+                if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+                    header.set(0, header.get(0).substring(1));
+                }
+                header.replaceAll(String::strip);
+                columns = Set.copyOf(header);
+            }
+
+            List<String> values;
+            do {
+                values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+            } while (values.size() == 1 && values.get(0).isEmpty());
+
+            number++;
+            if (values.size() != header.size()) {
+                return new Row(number, Map.of(), Set.of(), "列数为 " + values.size() + "，与表头的 " + header.size() + " 列不一致");
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                if (!values.get(i).isEmpty()) {
+                    fields.put(header.get(i), values.get(i));
+                }
+            }
+            return new Row(number, fields, columns, null);
+        }
+
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c < 0) {
+                return null;
+            }
+            List<String> values = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) {
+                        break;
+                    }
+                    if (c == '"') {
+                        int next = reader.read();
+                        if (next != '"') {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c < 0 || c == '\n') {
+                    break;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                if (field.length() > MAX_FIELD_LENGTH) {
+                    throw new IOException("第 " + (number + 1) + " 条记录的字段过长，可能缺少结束引号");
+                }
+                c = reader.read();
+            }
+            values.add(field.toString());
+            return values;
+        }
+    }
+
+    private static final class Ndjson extends ProductRowReader {
+
+        private final ObjectMapper objectMapper;
+
+        Ndjson(InputStream in, ObjectMapper objectMapper) {
+            super(in);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Row next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            number++;
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                return new Row(number, Map.of(), Set.of(), "不是合法的JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return new Row(number, Map.of(), Set.of(), "每行必须是一个JSON对象");
+            }
+
+            Map<String, String> fields = new HashMap<>();
+            Set<String> columns = new HashSet<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = it.next();
+                columns.add(field.getKey());
+                JsonNode value = field.getValue();
+                String text = value.isContainerNode() ? value.toString() : value.isNull() ? null : value.asText();
+                if (text != null && !text.isEmpty()) {
+                    fields.put(field.getKey(), text);
+                }
+            }
+            return new Row(number, fields, columns, null);
+        }
+    }
+}
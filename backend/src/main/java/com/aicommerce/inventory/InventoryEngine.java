@@ -0,0 +1,422 @@
+package com.aicommerce.inventory;
+
+import com.aicommerce.datasource.DataSourceRouting;
+import com.aicommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * 库存预占引擎
+ * 
+ * 心理过程：
+ * 1. 每个SKU一个内存计数器，可用量和预占量打包进一个long，CAS无锁更新
+ * 2. 预占(reserve)只改内存，库存不足时直接拒绝，不再打到数据库
+ * 3. 确认(commit)用条件UPDATE落库，stock_quantity >= ?保证数据库层面绝不超卖
+ * 4. 多节点时内存计数可能与数据库有偏差：预占失败时总是从数据库重新同步再试一次（失败是少数情况，
+ *    条件UPDATE兜底不会超卖）；其他节点修改商品后经商品缓存失效频道通知，本节点重新同步计数；
+ *    查询可用量时计数过旧也先同步
+ * 5. 外层事务回滚时把已扣减的数量还回计数器
+ * 6. 落库失败时先释放预占，等事务结束后再用独立事务从数据库重新同步：
+ *    失败事务的连接能看到本事务未提交的部分扣减，在事务内同步会把计数器设成回滚后就不存在的值
+ * 7. 从落库到事务结束之间，数据库库存和内存计数对同一笔扣减的反映不一致，与之重叠的同步结果不可信，
+ *    直接放弃；之后的预占失败或落库失败会再次同步
+ */
+@Component
+public class InventoryEngine {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.inventory.resync-interval:30s}")
+    private Duration resyncInterval;
+
+    private final ConcurrentMap<Long, StockCounter> counters = new ConcurrentHashMap<>();
+
+    private TransactionTemplate resyncTransaction;
+
+    @PostConstruct
+    public void init() {
+        resyncTransaction = new TransactionTemplate(transactionManager);
+        resyncTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        resyncTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 预占库存，只修改内存计数，成功后必须调用commit或release
+     */
+    public boolean tryReserve(Long productId, int quantity) {
+        checkQuantity(quantity);
+        StockCounter counter = counter(productId);
+        if (counter.tryReserve(quantity)) {
+            return true;
+        }
+        // 可能是其他节点补了货，重新同步后再试一次
+        resync(productId, counter);
+        return counter.tryReserve(quantity);
+    }
+
+    /**
+     * 确认预占：条件UPDATE落库，数据库库存不足时释放预占并抛出异常
+     */
+    public void commit(Long productId, int quantity) {
+        checkQuantity(quantity);
+        StockCounter counter = counter(productId);
+        beginCommit(List.of(counter));
+        try {
+            int updated = productRepository.decreaseStock(productId, quantity);
+            if (updated == 0) {
+                counter.release(quantity);
+                resyncAfterCompletion(productId);
+                throw new IllegalArgumentException("库存不足");
+            }
+            counter.confirm(quantity);
+            onRollback(() -> counter.add(quantity));
+        } finally {
+            endCommitOutsideTransaction(List.of(counter));
+        }
+    }
+
+    public void release(Long productId, int quantity) {
+        checkQuantity(quantity);
+        counter(productId).release(quantity);
+    }
+
+    /**
+     * 预占并立即确认，供下单等一次性扣减场景使用
+     */
+    public void deduct(Long productId, int quantity) {
+        if (!tryReserve(productId, quantity)) {
+            throw new IllegalArgumentException("库存不足，当前库存：" + getAvailable(productId));
+        }
+        commit(productId, quantity);
+    }
+
+    /**
+     * 整单扣减：先逐个预占内存计数，再用一条多行UPDATE落库，任一商品不足则整体失败
+     */
+    public void deductAll(Map<Long, Integer> quantities) {
+        // 按商品ID排序，多个订单并发时以相同顺序加行锁
+        TreeMap<Long, Integer> sorted = new TreeMap<>(quantities);
+        List<Map.Entry<Long, Integer>> reserved = new ArrayList<>(sorted.size());
+        try {
+            for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+                if (!tryReserve(entry.getKey(), entry.getValue())) {
+                    throw new IllegalArgumentException("商品库存不足，商品ID：" + entry.getKey());
+                }
+                reserved.add(entry);
+            }
+        } catch (RuntimeException e) {
+            reserved.forEach(entry -> counter(entry.getKey()).release(entry.getValue()));
+            throw e;
+        }
+
+        long[] productIds = new long[reserved.size()];
+        int[] amounts = new int[reserved.size()];
+        List<StockCounter> committing = new ArrayList<>(reserved.size());
+        for (int i = 0; i < reserved.size(); i++) {
+            productIds[i] = reserved.get(i).getKey();
+            amounts[i] = reserved.get(i).getValue();
+            committing.add(counter(productIds[i]));
+        }
+
+        beginCommit(committing);
+        try {
+            int updated = productRepository.decreaseStockBatch(productIds, amounts);
+            if (updated != productIds.length) {
+                // 部分商品已在本事务中扣减，随抛出的异常回滚
+                for (Map.Entry<Long, Integer> entry : reserved) {
+                    counter(entry.getKey()).release(entry.getValue());
+                    resyncAfterCompletion(entry.getKey());
+                }
+                throw new IllegalArgumentException("库存不足");
+            }
+
+            for (Map.Entry<Long, Integer> entry : reserved) {
+                StockCounter counter = counter(entry.getKey());
+                int quantity = entry.getValue();
+                counter.confirm(quantity);
+                onRollback(() -> counter.add(quantity));
+            }
+        } finally {
+            endCommitOutsideTransaction(committing);
+        }
+    }
+
+    public void restock(Long productId, int quantity) {
+        checkQuantity(quantity);
+        StockCounter counter = counter(productId);
+        beginCommit(List.of(counter));
+        try {
+            if (productRepository.increaseStock(productId, quantity) == 0) {
+                throw new IllegalArgumentException("商品不存在");
+            }
+            counter.add(quantity);
+            onRollback(() -> counter.add(-quantity));
+        } finally {
+            endCommitOutsideTransaction(List.of(counter));
+        }
+    }
+
+    public int getAvailable(Long productId) {
+        StockCounter counter = counter(productId);
+        if (counter.isStale(resyncInterval)) {
+            resync(productId, counter);
+        }
+        return counter.available();
+    }
+
+    /**
+     * 其他节点修改了商品（下单扣减、补货、后台编辑），已有计数器时从主库重新同步
+     */
+    public void onRemoteChange(Long productId) {
+        StockCounter counter = counters.get(productId);
+        if (counter == null) {
+            return;
+        }
+        try {
+            resync(productId, counter);
+        } catch (IllegalArgumentException e) {
+            // 商品已被删除
+            counters.remove(productId, counter);
+        }
+    }
+
+    /**
+     * 商品库存被直接修改后（如后台编辑商品），在事务提交后从数据库重新同步
+     */
+    public void refreshAfterCommit(Long productId) {
+        Runnable refresh = () -> {
+            StockCounter counter = counters.get(productId);
+            if (counter != null) {
+                resync(productId, counter);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh.run();
+                }
+            });
+        } else {
+            refresh.run();
+        }
+    }
+
+    /**
+     * 事务结束（提交或回滚）后用独立的只读事务从数据库重新同步，没有事务时立即同步
+     */
+    private void resyncAfterCompletion(Long productId) {
+        Runnable refresh = () -> {
+            StockCounter counter = counters.get(productId);
+            if (counter != null) {
+                resyncTransaction.executeWithoutResult(status -> resync(productId, counter));
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    refresh.run();
+                }
+            });
+        } else {
+            refresh.run();
+        }
+    }
+
+    public void evict(Long productId) {
+        counters.remove(productId);
+    }
+
+    private StockCounter counter(Long productId) {
+        StockCounter counter = counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        int stock = loadStock(productId);
+        return counters.computeIfAbsent(productId, id -> new StockCounter(stock));
+    }
+
+    private void resync(Long productId, StockCounter counter) {
+        counter.resync(() -> loadStock(productId));
+    }
+
+    /**
+     * 标记计数器有落库进行中，直到事务结束（没有事务时到方法返回），期间的同步结果作废。
+     * 结束标记在落库前注册，先于落库失败时注册的重新同步执行
+     */
+    private static void beginCommit(List<StockCounter> committing) {
+        committing.forEach(StockCounter::beginCommit);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    committing.forEach(StockCounter::endCommit);
+                }
+            });
+        }
+    }
+
+    private static void endCommitOutsideTransaction(List<StockCounter> committing) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committing.forEach(StockCounter::endCommit);
+        }
+    }
+
+    private int loadStock(Long productId) {
+        Integer stock = DataSourceRouting.usePrimary(() -> productRepository.findStockQuantityById(productId))
+                .orElseThrow(() -> new IllegalArgumentException("商品不存在"));
+        return stock != null ? stock : 0;
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static void checkQuantity(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("数量必须大于0");
+        }
+    }
+
+    /**
+     * 单个SKU的库存计数器，高32位为可用量，低32位为已预占未落库的数量
+     */
+    static final class StockCounter {
+        private final AtomicLong state;
+        private final AtomicInteger committing = new AtomicInteger();
+        private final AtomicLong commitsStarted = new AtomicLong();
+        private volatile long syncedAt;
+
+        StockCounter(int stock) {
+            this.state = new AtomicLong(pack(stock, 0));
+            this.syncedAt = System.nanoTime();
+        }
+
+        boolean tryReserve(int quantity) {
+            long current;
+            long next;
+            do {
+                current = state.get();
+                int available = available(current);
+                if (available < quantity) {
+                    return false;
+                }
+                next = pack(available - quantity, reserved(current) + quantity);
+            } while (!state.compareAndSet(current, next));
+            return true;
+        }
+
+        void confirm(int quantity) {
+            update(0, -quantity);
+        }
+
+        void release(int quantity) {
+            update(quantity, -quantity);
+        }
+
+        void add(int quantity) {
+            update(quantity, 0);
+        }
+
+        void beginCommit() {
+            commitsStarted.incrementAndGet();
+            committing.incrementAndGet();
+        }
+
+        void endCommit() {
+            committing.decrementAndGet();
+        }
+
+        /**
+         * 数据库库存中仍包含本节点已预占未落库的部分，可用量 = 数据库库存 - 预占量。
+         * 读取前后有落库进行中或开始过时放弃，返回false
+         */
+        boolean resync(IntSupplier databaseStockLoader) {
+            long started = commitsStarted.get();
+            if (committing.get() > 0) {
+                return false;
+            }
+            int databaseStock = databaseStockLoader.getAsInt();
+            if (committing.get() > 0 || commitsStarted.get() != started) {
+                return false;
+            }
+
+            long current;
+            long next;
+            do {
+                current = state.get();
+                int reserved = reserved(current);
+                next = pack(Math.max(0, databaseStock - reserved), reserved);
+            } while (!state.compareAndSet(current, next));
+            syncedAt = System.nanoTime();
+            return true;
+        }
+
+        int available() {
+            return available(state.get());
+        }
+
+        int reserved() {
+            return reserved(state.get());
+        }
+
+        boolean isStale(Duration interval) {
+            return System.nanoTime() - syncedAt > interval.toNanos();
+        }
+
+        private void update(int availableDelta, int reservedDelta) {
+            long current;
+            long next;
+            do {
+                current = state.get();
+                next = pack(Math.max(0, available(current) + availableDelta),
+                        Math.max(0, reserved(current) + reservedDelta));
+            } while (!state.compareAndSet(current, next));
+        }
+
+        private static long pack(int available, int reserved) {
+            return ((long) available << 32) | (reserved & 0xFFFFFFFFL);
+        }
+
+        private static int available(long state) {
+            return (int) (state >>> 32);
+        }
+
+        private static int reserved(long state) {
+            return (int) state;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.aicommerce.leaderboard;
+
+import com.aicommerce.model.Product;
+
+import java.time.ZoneOffset;
+
+/**
+ * 预先排好序的商品榜单
+ *
+ * 每个榜单按分数降序、分数相同时按商品ID降序排列，分数为整数：
+ * 评分榜为评分乘以100，最新榜为创建时间的毫秒数，有货榜分数都是0，即按ID从新到旧
+ */
+public enum Leaderboard {
+
+    TOP_RATED("top-rated"),
+    LATEST("latest"),
+    IN_STOCK("in-stock");
+
+    private final String key;
+
+    Leaderboard(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 商品在该榜单中的分数，不应出现在榜单中时返回null
+     */
+    Long score(Product product) {
+        if (!Boolean.TRUE.equals(product.getIsActive())) {
+            return null;
+        }
+        return switch (this) {
+            case TOP_RATED -> product.getRating() != null ? product.getRating().movePointRight(2).longValue() : 0L;
+            case LATEST -> product.getCreatedAt() != null
+                    ? product.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli() : null;
+            case IN_STOCK -> product.isInStock() ? 0L : null;
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.aicommerce.leaderboard;
+
+import java.time.Duration;
+
+/**
+ * 榜单存储
+ *
+ * 心理过程：
+ * 1. 默认存放在进程内的有序数组里，各节点按自己的写操作维护；app.leaderboard.store=redis时用Redis有序集合，多节点共享
+ * 2. 排序规则见Leaderboard：分数降序，分数相同时商品ID降序
+ * 3. 只保存商品ID和分数，商品内容从商品多级缓存读取
+ * 4. 共享存储由各节点共同维护，已建好时启动不再重建，重建时加锁，同一时刻只有一个节点重建
+ */
+public interface LeaderboardStore {
+
+    /**
+     * 用全量数据替换整个榜单，两个数组一一对应，不要求有序
+     */
+    void replaceAll(Leaderboard board, long[] productIds, long[] scores);
+
+    /**
+     * 加入商品或更新其分数
+     */
+    void put(Leaderboard board, long productId, long score);
+
+    void remove(Leaderboard board, long productId);
+
+    /**
+     * 按排名取一段商品ID，offset从0开始
+     */
+    long[] range(Leaderboard board, long offset, int limit);
+
+    long size(Leaderboard board);
+
+    /**
+     * 榜单是否已在共享存储中建好；进程内存储随进程启动为空，总是返回false
+     */
+    default boolean exists(Leaderboard board) {
+        return false;
+    }
+
+    /**
+     * 获取全量重建锁，成功时返回持有者令牌，其他节点正在重建时返回null；进程内存储不需要锁
+     */
+    default String tryLockRebuild(Duration lease) {
+        return "";
+    }
+
+    default void unlockRebuild(String token) {
+    }
+}
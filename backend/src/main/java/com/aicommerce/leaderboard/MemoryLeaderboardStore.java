@@ -0,0 +1,183 @@
+package com.aicommerce.leaderboard;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内榜单存储
+ *
+ * 心理过程：
+ * 1. 每个榜单两个按排名对齐的基本类型数组（分数、商品ID），取任意一页是数组下标直接定位，总数就是长度
+ * 2. 增删改时二分查找位置，用System.arraycopy整体挪动，十万级商品也只是一次内存拷贝
+ * 3. 另存商品ID到分数的映射，更新和删除时据此找到旧位置
+ * 4. 读写锁保护，读多写少
+ */
+@Component
+@ConditionalOnProperty(name = "app.leaderboard.store", havingValue = "memory", matchIfMissing = true)
+public class MemoryLeaderboardStore implements LeaderboardStore {
+
+    private final Map<Leaderboard, SortedBoard> boards = new EnumMap<>(Leaderboard.class);
+
+    public MemoryLeaderboardStore() {
+        for (Leaderboard board : Leaderboard.values()) {
+            boards.put(board, new SortedBoard());
+        }
+    }
+
+    @Override
+    public void replaceAll(Leaderboard board, long[] productIds, long[] scores) {
+        boards.get(board).replaceAll(productIds, scores);
+    }
+
+    @Override
+    public void put(Leaderboard board, long productId, long score) {
+        boards.get(board).put(productId, score);
+    }
+
+    @Override
+    public void remove(Leaderboard board, long productId) {
+        boards.get(board).remove(productId);
+    }
+
+    @Override
+    public long[] range(Leaderboard board, long offset, int limit) {
+        return boards.get(board).range(offset, limit);
+    }
+
+    @Override
+    public long size(Leaderboard board) {
+        return boards.get(board).size();
+    }
+
+    private static final class SortedBoard {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        // 以下状态均由lock保护，下标即排名
+        private long[] scores = new long[1024];
+        private long[] ids = new long[1024];
+        private int size;
+        private Map<Long, Long> scoreById = new HashMap<>();
+
+        void replaceAll(long[] productIds, long[] newScores) {
+            Integer[] order = new Integer[productIds.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> newScores[a] != newScores[b]
+                    ? Long.compare(newScores[b], newScores[a])
+                    : Long.compare(productIds[b], productIds[a]));
+
+            int capacity = Math.max(1024, order.length + order.length / 4);
+            long[] sortedScores = new long[capacity];
+            long[] sortedIds = new long[capacity];
+            Map<Long, Long> byId = new HashMap<>(order.length * 4 / 3 + 1);
+            for (int i = 0; i < order.length; i++) {
+                sortedScores[i] = newScores[order[i]];
+                sortedIds[i] = productIds[order[i]];
+                byId.put(sortedIds[i], sortedScores[i]);
+            }
+
+            lock.writeLock().lock();
+            try {
+                scores = sortedScores;
+                ids = sortedIds;
+                size = order.length;
+                scoreById = byId;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void put(long productId, long score) {
+            lock.writeLock().lock();
+            try {
+                Long previous = scoreById.put(productId, score);
+                if (previous != null) {
+                    if (previous == score) {
+                        return;
+                    }
+                    removeAt(position(previous, productId));
+                }
+                insertAt(position(score, productId), productId, score);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long productId) {
+            lock.writeLock().lock();
+            try {
+                Long previous = scoreById.remove(productId);
+                if (previous != null) {
+                    removeAt(position(previous, productId));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        long[] range(long offset, int limit) {
+            lock.readLock().lock();
+            try {
+                if (offset >= size) {
+                    return new long[0];
+                }
+                int from = (int) offset;
+                return Arrays.copyOfRange(ids, from, from + Math.min(limit, size - from));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        long size() {
+            lock.readLock().lock();
+            try {
+                return size;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 第一个排名不在(score, productId)之前的位置
+         */
+        private int position(long score, long productId) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (scores[mid] > score || (scores[mid] == score && ids[mid] > productId)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void insertAt(int index, long productId, long score) {
+            if (size == ids.length) {
+                scores = Arrays.copyOf(scores, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(scores, index, scores, index + 1, size - index);
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            scores[index] = score;
+            ids[index] = productId;
+            size++;
+        }
+
+        private void removeAt(int index) {
+            System.arraycopy(scores, index + 1, scores, index, size - index - 1);
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+        }
+    }
+}
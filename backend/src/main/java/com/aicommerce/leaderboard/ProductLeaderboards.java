@@ -0,0 +1,300 @@
+package com.aicommerce.leaderboard;
+
+import com.aicommerce.cache.ProductCache;
+import com.aicommerce.datasource.DataSourceRouting;
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 评分榜、最新榜、有货榜
+ *
+ * 心理过程：
+ * 1. 三个列表接口原来每次请求都在数据库里排序扫描，改为预先排好序的榜单，按排名直接取一页商品ID
+ * 2. 启动时全量构建；商品增删改、评分和库存变化在事务提交后增量更新，事务回滚时榜单保持不变
+ * 3. 库存走原子UPDATE，拿不到最新实体，提交后经商品缓存重新读取（缓存已在提交时失效，读到的是新值）
+ * 4. 存储可选进程内有序数组或Redis有序集合，见LeaderboardStore
+ * 5. 未就绪或存储出错时返回null，调用方退回数据库查询
+ * 6. Redis存储的榜单由各节点共享：已建好时启动不再重建；需要重建时先取Redis锁，没取到的节点等榜单建好后再就绪
+ * 7. 重建期间被修改的商品（本节点的写操作和其他节点经商品缓存失效频道通知的）记下来，
+ *    读完后从主库重新读取这些商品修正快照再替换；替换前后又到达的修改在替换后重放，不被旧快照覆盖
+ */
+@Component
+public class ProductLeaderboards {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductLeaderboards.class);
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+    private static final Duration REBUILD_LOCK_LEASE = Duration.ofMinutes(10);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private LeaderboardStore store;
+
+    @Value("${app.leaderboard.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean ready;
+
+    // 其他节点持有重建锁，等共享榜单建好后就绪
+    private volatile boolean awaitingSharedRebuild;
+
+    // 重建期间被修改的商品，不在重建时为null
+    private volatile Set<Long> changedDuringRebuild;
+
+    public boolean isReady() {
+        if (enabled && !ready && awaitingSharedRebuild && boardsExist()) {
+            awaitingSharedRebuild = false;
+            ready = true;
+        }
+        return enabled && ready;
+    }
+
+    /**
+     * 从数据库全量构建，构建完成后整体替换，构建期间仍按旧榜单（或数据库）提供服务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        if (boardsExist()) {
+            ready = true;
+            log.info("商品榜单已由其他节点构建，跳过重建");
+            return;
+        }
+
+        String token;
+        try {
+            token = store.tryLockRebuild(REBUILD_LOCK_LEASE);
+        } catch (RuntimeException e) {
+            log.warn("获取商品榜单重建锁失败，列表接口退回数据库查询: {}", e.getMessage());
+            return;
+        }
+        if (token == null) {
+            awaitingSharedRebuild = true;
+            log.info("其他节点正在重建商品榜单，建好后就绪");
+            return;
+        }
+
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        try {
+            rebuildLocked();
+        } finally {
+            changedDuringRebuild = null;
+            try {
+                store.unlockRebuild(token);
+            } catch (RuntimeException e) {
+                log.debug("释放商品榜单重建锁失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void rebuildLocked() {
+        Map<Leaderboard, Map<Long, Long>> entries = new EnumMap<>(Leaderboard.class);
+        for (Leaderboard board : Leaderboard.values()) {
+            entries.put(board, new HashMap<>());
+        }
+        int pageNumber = 0;
+        Page<Product> page;
+        do {
+            PageRequest pageRequest = PageRequest.of(pageNumber++, REBUILD_PAGE_SIZE, Sort.by("id"));
+            page = DataSourceRouting.usePrimary(() -> productRepository.findByIsActiveTrue(pageRequest));
+            page.getContent().forEach(product -> put(entries, product));
+        } while (page.hasNext());
+
+        // 读取期间被修改的商品从主库重新读取，修正快照
+        Set<Long> changed = changedDuringRebuild;
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        if (!changed.isEmpty()) {
+            entries.values().forEach(boardEntries -> boardEntries.keySet().removeAll(changed));
+            DataSourceRouting.usePrimary(() -> productRepository.findAllById(changed))
+                    .forEach(product -> put(entries, product));
+        }
+
+        try {
+            for (Leaderboard board : Leaderboard.values()) {
+                Map<Long, Long> boardEntries = entries.get(board);
+                store.replaceAll(board, boardEntries.keySet().stream().mapToLong(Long::longValue).toArray(),
+                        boardEntries.values().stream().mapToLong(Long::longValue).toArray());
+            }
+        } catch (RuntimeException e) {
+            log.warn("商品榜单写入失败，列表接口退回数据库查询: {}", e.getMessage());
+            return;
+        }
+
+        // 修正快照之后到达的修改可能已被替换覆盖，按数据库中的最新状态重放
+        Set<Long> late = changedDuringRebuild;
+        changedDuringRebuild = null;
+        late.forEach(this::reload);
+
+        ready = true;
+        log.info("商品榜单构建完成，评分榜 {} 个商品，有货榜 {} 个商品",
+                entries.get(Leaderboard.TOP_RATED).size(), entries.get(Leaderboard.IN_STOCK).size());
+    }
+
+    private static void put(Map<Leaderboard, Map<Long, Long>> entries, Product product) {
+        for (Leaderboard board : Leaderboard.values()) {
+            Long score = board.score(product);
+            if (score != null) {
+                entries.get(board).put(product.getId(), score);
+            }
+        }
+    }
+
+    /**
+     * 其他节点修改了商品；共享榜单已由修改的节点更新，这里只在重建期间记下，重建结束前重放
+     */
+    public void onRemoteChange(Long productId) {
+        markChanged(productId);
+    }
+
+    /**
+     * 在当前事务提交后按商品的新状态更新各榜单
+     */
+    public void indexAfterCommit(Product product) {
+        runAfterCommit(() -> index(product));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        runAfterCommit(() -> remove(productId));
+    }
+
+    /**
+     * 商品在数据库中被直接修改（如库存原子更新）时，在事务提交后重新读取商品再更新榜单
+     */
+    public void refreshAfterCommit(Long productId) {
+        runAfterCommit(() -> refresh(productId));
+    }
+
+    public void index(Product product) {
+        if (!enabled || product == null || product.getId() == null) {
+            return;
+        }
+        markChanged(product.getId());
+        try {
+            for (Leaderboard board : Leaderboard.values()) {
+                Long score = board.score(product);
+                if (score != null) {
+                    store.put(board, product.getId(), score);
+                } else {
+                    store.remove(board, product.getId());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("商品榜单更新失败, productId={}: {}", product.getId(), e.getMessage());
+        }
+    }
+
+    public void remove(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        markChanged(productId);
+        try {
+            for (Leaderboard board : Leaderboard.values()) {
+                store.remove(board, productId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("商品榜单更新失败, productId={}: {}", productId, e.getMessage());
+        }
+    }
+
+    private void refresh(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        productCache.get(productId, productRepository::findById)
+                .ifPresentOrElse(this::index, () -> remove(productId));
+    }
+
+    private void reload(Long productId) {
+        DataSourceRouting.usePrimary(() -> productRepository.findById(productId))
+                .ifPresentOrElse(this::index, () -> remove(productId));
+    }
+
+    private void markChanged(Long productId) {
+        Set<Long> changed = changedDuringRebuild;
+        if (changed != null && productId != null) {
+            changed.add(productId);
+        }
+    }
+
+    private boolean boardsExist() {
+        try {
+            for (Leaderboard board : Leaderboard.values()) {
+                if (!store.exists(board)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.debug("检查商品榜单是否存在失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 按排名取一页商品ID，offset从0开始；未就绪或存储出错时返回null
+     */
+    public Ranking page(Leaderboard board, long offset, int limit) {
+        if (!isReady()) {
+            return null;
+        }
+        try {
+            return new Ranking(store.range(board, offset, limit), store.size(board));
+        } catch (RuntimeException e) {
+            log.debug("读取商品榜单失败, board={}: {}", board.getKey(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public static class Ranking {
+        private final long[] productIds;
+        private final long total;
+
+        public Ranking(long[] productIds, long total) {
+            this.productIds = productIds;
+            this.total = total;
+        }
+
+        public long[] getProductIds() { return productIds; }
+        public long getTotal() { return total; }
+    }
+}
@@ -0,0 +1,121 @@
+package com.aicommerce.leaderboard;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Redis榜单存储，多个节点共享同一份榜单
+ *
+ * 心理过程：
+ * 1. 每个榜单一个有序集合，分数即榜单分数，评分和毫秒时间戳都远小于2^53，double不丢精度
+ * 2. 成员是补零到19位的商品ID，分数相同时Redis按成员字典序排列，与按ID数值排序一致
+ * 3. 取一页是一次ZREVRANGE，总数是ZCARD
+ * 4. 全量重建先写入临时键，最后RENAME原子替换，重建期间读到的始终是完整榜单
+ * 5. 重建锁是带过期时间的SET NX，按令牌比较后删除，持有节点崩溃时自动过期
+ */
+@Component
+@ConditionalOnProperty(name = "app.leaderboard.store", havingValue = "redis")
+public class RedisLeaderboardStore implements LeaderboardStore {
+
+    private static final String KEY_PREFIX = "aicommerce:leaderboard:";
+    private static final String REBUILD_LOCK_KEY = KEY_PREFIX + "rebuild-lock";
+    private static final int REPLACE_BATCH_SIZE = 1000;
+    // 重建中途失败时临时键自动过期
+    private static final Duration REBUILD_KEY_TTL = Duration.ofMinutes(10);
+
+    // KEYS: 锁  ARGV: 持有者令牌
+    private static final RedisScript<Long> UNLOCK_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Override
+    public void replaceAll(Leaderboard board, long[] productIds, long[] scores) {
+        String key = key(board);
+        if (productIds.length == 0) {
+            redisTemplate.delete(key);
+            return;
+        }
+
+        String rebuildKey = key + ":rebuild:" + UUID.randomUUID();
+        for (int from = 0; from < productIds.length; from += REPLACE_BATCH_SIZE) {
+            int to = Math.min(from + REPLACE_BATCH_SIZE, productIds.length);
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(to - from);
+            for (int i = from; i < to; i++) {
+                tuples.add(new DefaultTypedTuple<>(member(productIds[i]), (double) scores[i]));
+            }
+            redisTemplate.opsForZSet().add(rebuildKey, tuples);
+            if (from == 0) {
+                redisTemplate.expire(rebuildKey, REBUILD_KEY_TTL);
+            }
+        }
+        redisTemplate.persist(rebuildKey);
+        redisTemplate.rename(rebuildKey, key);
+    }
+
+    @Override
+    public void put(Leaderboard board, long productId, long score) {
+        redisTemplate.opsForZSet().add(key(board), member(productId), score);
+    }
+
+    @Override
+    public void remove(Leaderboard board, long productId) {
+        redisTemplate.opsForZSet().remove(key(board), member(productId));
+    }
+
+    @Override
+    public long[] range(Leaderboard board, long offset, int limit) {
+        Set<String> members = redisTemplate.opsForZSet().reverseRange(key(board), offset, offset + limit - 1);
+        if (members == null) {
+            return new long[0];
+        }
+        return members.stream().mapToLong(Long::parseLong).toArray();
+    }
+
+    @Override
+    public long size(Leaderboard board) {
+        Long size = redisTemplate.opsForZSet().zCard(key(board));
+        return size != null ? size : 0;
+    }
+
+    @Override
+    public boolean exists(Leaderboard board) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(key(board)));
+    }
+
+    @Override
+    public String tryLockRebuild(Duration lease) {
+        String token = UUID.randomUUID().toString();
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK_KEY, token, lease))
+                ? token : null;
+    }
+
+    @Override
+    public void unlockRebuild(String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, List.of(REBUILD_LOCK_KEY), token);
+    }
+
+    private static String key(Leaderboard board) {
+        return KEY_PREFIX + board.getKey();
+    }
+
+    private static String member(long productId) {
+        return String.format("%019d", productId);
+    }
+}
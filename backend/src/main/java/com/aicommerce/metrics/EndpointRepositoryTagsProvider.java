@@ -0,0 +1,23 @@
+package com.aicommerce.metrics;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.data.DefaultRepositoryTagsProvider;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocation;
+import org.springframework.stereotype.Component;
+
+/**
+ * 仓库方法指标加上接口标签
+ *
+ * 心理过程：
+ * 1. Spring Data已把每次仓库调用计入spring.data.repository.invocations，带仓库、方法、状态和异常标签
+ * 2. 替换默认标签提供者，再加上当前请求的路由模板，可以看出某个接口调了哪些查询、各调了几次
+ */
+@Component
+public class EndpointRepositoryTagsProvider extends DefaultRepositoryTagsProvider {
+
+    @Override
+    public Iterable<Tag> repositoryTags(RepositoryMethodInvocation invocation) {
+        return Tags.of(super.repositoryTags(invocation)).and(EndpointTag.NAME, EndpointTag.current());
+    }
+}
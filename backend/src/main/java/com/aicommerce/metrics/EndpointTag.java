@@ -0,0 +1,36 @@
+package com.aicommerce.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * 指标上的endpoint标签：当前请求匹配到的路由模板，如/orders/{id}
+ *
+ * 心理过程：
+ * 1. 用路由模板而不是实际路径，标签取值个数有上限
+ * 2. 定时任务等请求之外的调用标为none，路由匹配前或未匹配的请求标为UNKNOWN，与http.server.requests一致
+ */
+final class EndpointTag {
+
+    static final String NAME = "endpoint";
+    static final String NONE = "none";
+    static final String UNKNOWN = "UNKNOWN";
+
+    private EndpointTag() {}
+
+    static String current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return NONE;
+        }
+        return of(servletAttributes.getRequest());
+    }
+
+    static String of(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : UNKNOWN;
+    }
+}
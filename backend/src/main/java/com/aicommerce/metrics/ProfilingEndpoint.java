@@ -0,0 +1,165 @@
+package com.aicommerce.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 运行时开关的CPU和内存分配采样（/actuator/profiling）
+ *
+ * 心理过程：
+ * 1. POST开始一次JFR录制，只开方法执行采样和对象分配采样两类事件，开销低，可以在线上短时间打开
+ * 2. DELETE停止录制并写出.jfr文件，同时汇总CPU热点方法和分配最多的类型，不用下载文件也能先看个大概
+ * 3. 录制有最长时长，忘记关闭也会自动停止；同一时间只保留一个录制，导出后才能开始下一个
+ * 4. 仅管理员可访问
+ */
+@Component
+@Endpoint(id = "profiling")
+public class ProfilingEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilingEndpoint.class);
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final int TOP = 15;
+
+    @Value("${app.metrics.profiling.sample-period:20ms}")
+    private Duration samplePeriod;
+
+    @Value("${app.metrics.profiling.max-duration:10m}")
+    private Duration maxDuration;
+
+    @Value("${app.metrics.profiling.directory:${java.io.tmpdir}}")
+    private Path directory;
+
+    private Recording recording;
+    private Instant startedAt;
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("state", recording != null ? recording.getState().name() : "NONE");
+        if (recording != null) {
+            status.put("startedAt", startedAt.toString());
+        }
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable Integer durationSeconds) {
+        Map<String, Object> response = new HashMap<>();
+        if (recording != null) {
+            response.put("success", false);
+            response.put("message", "上一次录制尚未停止导出");
+            return response;
+        }
+
+        Duration duration = durationSeconds != null
+                ? Duration.ofSeconds(Math.min(durationSeconds, maxDuration.toSeconds()))
+                : maxDuration;
+        recording = new Recording();
+        recording.setName("profiling");
+        recording.enable(EXECUTION_SAMPLE).withPeriod(samplePeriod).withStackTrace();
+        recording.enable(ALLOCATION_SAMPLE).with("throttle", "150/s").withStackTrace();
+        recording.setDuration(duration);
+        recording.setToDisk(true);
+        recording.start();
+        startedAt = Instant.now();
+        log.info("JFR采样已开始，最长 {}", duration);
+
+        response.put("success", true);
+        response.put("duration", duration.toString());
+        return response;
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() throws IOException {
+        Map<String, Object> response = new HashMap<>();
+        if (recording == null) {
+            response.put("success", false);
+            response.put("message", "没有进行中的录制");
+            return response;
+        }
+
+        Path file = directory.resolve("profiling-" + startedAt.toEpochMilli() + ".jfr");
+        // 达到最长时长后录制已自动停止，数据仍可写出
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        Files.createDirectories(directory);
+        recording.dump(file);
+        recording.close();
+        recording = null;
+        log.info("JFR采样已停止，文件 {}", file);
+
+        response.put("success", true);
+        response.put("file", file.toString());
+        response.putAll(summarize(file));
+        return response;
+    }
+
+    /**
+     * CPU采样按栈顶方法计数，分配采样按对象类型累加采样权重（字节）
+     */
+    private static Map<String, Object> summarize(Path file) throws IOException {
+        Map<String, Long> cpu = new HashMap<>();
+        Map<String, Long> allocations = new HashMap<>();
+        try (RecordingFile recordingFile = new RecordingFile(file)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                String eventName = event.getEventType().getName();
+                if (EXECUTION_SAMPLE.equals(eventName)) {
+                    cpu.merge(topFrame(event), 1L, Long::sum);
+                } else if (ALLOCATION_SAMPLE.equals(eventName)) {
+                    allocations.merge(event.getClass("objectClass").getName(), event.getLong("weight"), Long::sum);
+                }
+            }
+        }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("cpuHotMethods", top(cpu));
+        summary.put("allocatedBytesByType", top(allocations));
+        return summary;
+    }
+
+    private static Map<String, Long> top(Map<String, Long> totals) {
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private static String topFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        if (frames.isEmpty()) {
+            return "unknown";
+        }
+        RecordedFrame frame = frames.get(0);
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+}
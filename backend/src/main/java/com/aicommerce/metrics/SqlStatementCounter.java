@@ -0,0 +1,49 @@
+package com.aicommerce.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 统计当前请求内Hibernate预编译的SQL语句数
+ *
+ * 心理过程：
+ * 1. 注册为Hibernate的StatementInspector，每条语句准备时计数一次，SQL原样返回
+ * 2. 只在请求过滤器开启计数的线程上计数，定时任务和后台线程不产生线程局部变量
+ * 3. JdbcTemplate直接执行的语句不经过Hibernate，不计入
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = CURRENT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * 在当前线程开始计数，返回的数组第一个元素即语句数
+     */
+    static int[] start() {
+        int[] count = new int[1];
+        CURRENT.set(count);
+        return count;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,86 @@
+package com.aicommerce.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 每个请求执行的SQL语句数
+ *
+ * 心理过程：
+ * 1. 请求进入时开启计数，结束后按接口、请求方法和结果计入http.server.sql.statements分布
+ * 2. 排在安全过滤器之前，JWT认证查用户的语句也算在请求里
+ * 3. 单个请求超过阈值多半是N+1，按接口限频打印告警，每个接口每分钟最多一条
+ * 4. 异步请求只统计首次分派线程上的语句
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatementMetricsFilter.class);
+
+    private static final long WARN_INTERVAL_MILLIS = 60_000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.metrics.sql.statements-warn-threshold:20}")
+    private int warnThreshold;
+
+    private final Map<String, Long> lastWarned = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int[] statements = SqlStatementCounter.start();
+        boolean failed = false;
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            SqlStatementCounter.stop();
+            record(request, failed ? Outcome.SERVER_ERROR : Outcome.forStatus(response.getStatus()), statements[0]);
+        }
+    }
+
+    private void record(HttpServletRequest request, Outcome outcome, int statements) {
+        String endpoint = EndpointTag.of(request);
+        DistributionSummary.builder("http.server.sql.statements")
+                .tag(EndpointTag.NAME, endpoint)
+                .tag("method", request.getMethod())
+                .tag("outcome", outcome.name())
+                .register(meterRegistry)
+                .record(statements);
+
+        if (statements > warnThreshold && claimWarning(endpoint)) {
+            log.warn("{} {} 单次请求执行了 {} 条SQL，可能存在N+1查询", request.getMethod(), endpoint, statements);
+        }
+    }
+
+    private boolean claimWarning(String endpoint) {
+        long now = System.currentTimeMillis();
+        Long previous = lastWarned.get(endpoint);
+        if (previous == null) {
+            return lastWarned.putIfAbsent(endpoint, now) == null;
+        }
+        return now - previous > WARN_INTERVAL_MILLIS && lastWarned.replace(endpoint, previous, now);
+    }
+}
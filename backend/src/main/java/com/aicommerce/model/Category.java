@@ -17,9 +17,12 @@ import java.util.List;
  * 1. 支持层级分类结构（parent_id）
  * 2. 双向关联便于查询子分类和商品
  * 3. 使用@JsonIgnore避免序列化时的循环引用
+ * 4. tree_left/tree_right保存嵌套区间，按子树查询商品只需一个区间条件
  */
 @Entity
-@Table(name = "categories")
+@Table(name = "categories", indexes = {
+        @Index(name = "idx_categories_tree_left", columnList = "tree_left")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Category {
 
@@ -54,6 +57,15 @@ public class Category {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // 分类树先序编号的嵌套区间，由CategoryTreeCache维护，子孙分类的tree_left落在[tree_left, tree_right]内
+    @Column(name = "tree_left")
+    @JsonIgnore
+    private Integer treeLeft;
+
+    @Column(name = "tree_right")
+    @JsonIgnore
+    private Integer treeRight;
+
     // 默认构造函数
     public Category() {}
 
@@ -100,4 +112,10 @@ public class Category {
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public Integer getTreeLeft() { return treeLeft; }
+    public void setTreeLeft(Integer treeLeft) { this.treeLeft = treeLeft; }
+
+    public Integer getTreeRight() { return treeRight; }
+    public void setTreeRight(Integer treeRight) { this.treeRight = treeRight; }
 }
\ No newline at end of file
@@ -23,7 +23,10 @@ import java.util.List;
  * 4. 关联订单项实现订单详情
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // 用户订单列表的游标分页按 (created_at, id) 倒序
+        @Index(name = "idx_orders_user_created_at_id", columnList = "user_id, created_at, id")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Order {
 
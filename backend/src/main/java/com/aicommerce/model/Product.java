@@ -8,6 +8,7 @@ import jakarta.validation.constraints.Size;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -22,7 +23,14 @@ import java.time.LocalDateTime;
  * 4. 包含评分和评价数量支持排序
  */
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // 游标分页的排序键，id放在最后保证顺序唯一
+        @Index(name = "idx_products_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_products_category_created_at_id", columnList = "category_id, created_at, id"),
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_rating_id", columnList = "rating, id"),
+        @Index(name = "idx_products_name_id", columnList = "name, id")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Product {
 
@@ -49,11 +57,15 @@ public class Product {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
+    @JsonIgnoreProperties({"children", "hibernateLazyInitializer"}) // 商品里的分类只输出自身，不展开子分类
     private Category category;
 
+    @Size(max = 100, message = "品牌不能超过100个字符")
+    @Column(length = 100)
     private String brand;
 
-    @Column(unique = true)
+    @Size(max = 100, message = "SKU不能超过100个字符")
+    @Column(unique = true, length = 100)
     private String sku;
 
     @Column(name = "stock_quantity")
@@ -0,0 +1,88 @@
+package com.aicommerce.order;
+
+import com.aicommerce.model.OrderItem;
+import com.aicommerce.model.Product;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单项读模型
+ *
+ * 心理过程：
+ * 1. 订单列表的订单项由JPQL构造表达式直接投影出来，和商品表一次JOIN取完，不加载实体也不触发关联
+ * 2. 商品只带展示需要的几个字段，序列化后仍是product对象，前端读取方式不变
+ * 3. 订单详情已经按实体图取回订单项和商品，用of从实体转换
+ */
+public final class OrderItemView {
+
+    private final Long orderId;
+    private final Long id;
+    private final ProductSummary product;
+    private final Integer quantity;
+    private final BigDecimal unitPrice;
+    private final String selectedAttributes;
+    private final LocalDateTime createdAt;
+
+    /**
+     * JPQL构造表达式使用，参数顺序与OrderRepository.findItemViewsByOrderIds的select列表一致
+     */
+    public OrderItemView(Long orderId, Long id, Long productId, String productName, String productSku,
+                         String productBrand, String productImages, Integer quantity, BigDecimal unitPrice,
+                         String selectedAttributes, LocalDateTime createdAt) {
+        this.orderId = orderId;
+        this.id = id;
+        this.product = new ProductSummary(productId, productName, productSku, productBrand, productImages);
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.selectedAttributes = selectedAttributes;
+        this.createdAt = createdAt;
+    }
+
+    public static OrderItemView of(Long orderId, OrderItem item) {
+        Product product = item.getProduct();
+        return new OrderItemView(orderId, item.getId(), product.getId(), product.getName(), product.getSku(),
+                product.getBrand(), product.getImages(), item.getQuantity(), item.getUnitPrice(),
+                item.getSelectedAttributes(), item.getCreatedAt());
+    }
+
+    @JsonIgnore
+    public Long getOrderId() { return orderId; }
+    public Long getId() { return id; }
+    public Long getProductId() { return product.getId(); }
+    public ProductSummary getProduct() { return product; }
+    public String getProductName() { return product.getName() != null ? product.getName() : ""; }
+    public String getProductSku() { return product.getSku() != null ? product.getSku() : ""; }
+    public Integer getQuantity() { return quantity; }
+    public BigDecimal getUnitPrice() { return unitPrice; }
+    public BigDecimal getSubtotal() { return unitPrice.multiply(BigDecimal.valueOf(quantity)); }
+    public String getSelectedAttributes() { return selectedAttributes; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    /**
+     * 订单项中展示的商品信息
+     */
+    public static final class ProductSummary {
+
+        private final Long id;
+        private final String name;
+        private final String sku;
+        private final String brand;
+        private final String images;
+
+        ProductSummary(Long id, String name, String sku, String brand, String images) {
+            this.id = id;
+            this.name = name;
+            this.sku = sku;
+            this.brand = brand;
+            this.images = images;
+        }
+
+        public Long getId() { return id; }
+        public String getName() { return name; }
+        public String getSku() { return sku; }
+        public String getBrand() { return brand; }
+        public String getImages() { return images; }
+    }
+}
@@ -0,0 +1,72 @@
+package com.aicommerce.order;
+
+import com.aicommerce.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单读模型，订单接口返回它而不是实体
+ *
+ * 心理过程：
+ * 1. 实体直接序列化时，每个订单的items和每个订单项的商品都会在序列化阶段逐个补查
+ * 2. 读模型在服务层组装完毕，字段与原来的订单JSON一致，序列化不再访问数据库
+ * 3. 订单项由调用方传入：列表按订单ID批量投影，详情从实体图取回的实体转换
+ */
+public final class OrderView {
+
+    private final Long id;
+    private final String orderNumber;
+    private final Order.OrderStatus status;
+    private final BigDecimal totalAmount;
+    private final String shippingAddress;
+    private final String paymentMethod;
+    private final Order.PaymentStatus paymentStatus;
+    private final String notes;
+    private final List<OrderItemView> items;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    private OrderView(Order order, List<OrderItemView> items) {
+        this.id = order.getId();
+        this.orderNumber = order.getOrderNumber();
+        this.status = order.getStatus();
+        this.totalAmount = order.getTotalAmount();
+        this.shippingAddress = order.getShippingAddress();
+        this.paymentMethod = order.getPaymentMethod();
+        this.paymentStatus = order.getPaymentStatus();
+        this.notes = order.getNotes();
+        this.items = items;
+        this.createdAt = order.getCreatedAt();
+        this.updatedAt = order.getUpdatedAt();
+    }
+
+    public static OrderView of(Order order, List<OrderItemView> items) {
+        return new OrderView(order, items);
+    }
+
+    /**
+     * 订单项须已随订单取回（实体图或刚创建的订单），否则会触发懒加载
+     */
+    public static OrderView of(Order order) {
+        List<OrderItemView> items = order.getItems() == null ? List.of() : order.getItems().stream()
+                .map(item -> OrderItemView.of(order.getId(), item))
+                .toList();
+        return new OrderView(order, items);
+    }
+
+    public Long getId() { return id; }
+    public String getOrderNumber() { return orderNumber; }
+    public Order.OrderStatus getStatus() { return status; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public String getShippingAddress() { return shippingAddress; }
+    public String getPaymentMethod() { return paymentMethod; }
+    public Order.PaymentStatus getPaymentStatus() { return paymentStatus; }
+    public String getNotes() { return notes; }
+    public List<OrderItemView> getItems() { return items; }
+    public int getItemCount() { return items.size(); }
+    public int getTotalQuantity() { return items.stream().mapToInt(OrderItemView::getQuantity).sum(); }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
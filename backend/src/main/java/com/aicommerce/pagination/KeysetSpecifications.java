@@ -0,0 +1,78 @@
+package com.aicommerce.pagination;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 支持空值的键集定位条件
+ *
+ * 心理过程：
+ * 1. Spring Data自带的键集条件对空键值生成 col > NULL，空值行之后的页永远取不到
+ * 2. 按PostgreSQL的默认空值顺序处理：NULL比任何值都大，升序排在最后，降序排在最前
+ * 3. 条件形如 (k1 after v1) OR (k1 = v1 AND k2 after v2) ...，相等比较对空值用IS NULL
+ * 4. 只有可空的列才附加IS NULL分支，非空列的条件与原来一样能走(排序列, id)索引
+ */
+public final class KeysetSpecifications {
+
+    private KeysetSpecifications() {}
+
+    /**
+     * 排在position之后的行；position为首页时不加条件
+     */
+    public static <T> Specification<T> after(KeysetScrollPosition position, Sort sort) {
+        if (position.isInitial()) {
+            return Specification.where(null);
+        }
+        Map<String, Object> keys = position.getKeys();
+        return (root, query, cb) -> {
+            List<Predicate> alternatives = new ArrayList<>();
+            List<Predicate> equalities = new ArrayList<>();
+            for (Sort.Order order : sort) {
+                Path<Comparable<Object>> path = root.get(order.getProperty());
+                Object value = keys.get(order.getProperty());
+                Predicate after = after(cb, path, order.isAscending(), value, isNullable(root, order.getProperty()));
+                if (after != null) {
+                    List<Predicate> alternative = new ArrayList<>(equalities);
+                    alternative.add(after);
+                    alternatives.add(cb.and(alternative.toArray(Predicate[]::new)));
+                }
+                equalities.add(value == null ? cb.isNull(path) : cb.equal(path, value));
+            }
+            return cb.or(alternatives.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * 单列上排在value之后的条件，没有任何值能排在其后时返回null
+     */
+    @SuppressWarnings("unchecked")
+    private static Predicate after(CriteriaBuilder cb, Path<Comparable<Object>> path, boolean ascending,
+                                   Object value, boolean nullable) {
+        if (value == null) {
+            // 升序时NULL排在最后，之后没有行；降序时NULL排在最前，之后是全部非空值
+            return ascending ? null : cb.isNotNull(path);
+        }
+        Comparable<Object> comparable = (Comparable<Object>) value;
+        if (!ascending) {
+            return cb.lessThan(path, comparable);
+        }
+        Predicate greater = cb.greaterThan(path, comparable);
+        return nullable ? cb.or(greater, cb.isNull(path)) : greater;
+    }
+
+    private static boolean isNullable(Root<?> root, String property) {
+        Attribute<?, ?> attribute = root.getModel().getAttribute(property);
+        return !(attribute instanceof SingularAttribute<?, ?> singular) || singular.isOptional();
+    }
+}
@@ -0,0 +1,158 @@
+package com.aicommerce.pagination;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.OffsetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 游标分页的游标编解码
+ *
+ * 心理过程：
+ * 1. 游标对客户端不透明：把ScrollPosition转成JSON后做Base64url编码
+ * 2. 键集游标记录上一页最后一行的排序键值，下一页用 (排序列, id) 比较定位，深翻页与首页代价相同
+ * 3. 偏移游标只用于已在内存中排好序的结果（如倒排索引搜索），不会产生数据库OFFSET扫描
+ * 4. 解码时只接受白名单内的排序字段，并按字段类型还原键值，伪造的游标无法注入任意属性
+ * 5. 游标的键必须与本次请求的排序字段完全一致，换了sortBy后沿用旧游标直接拒绝
+ * 6. 可空排序列（如rating）的空值编码为JSON null，解码后原样保留，由查询按空值排序规则定位
+ */
+public final class ScrollCursor {
+
+    public static final int MAX_LIMIT = 100;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {};
+
+    private static final String KEYS = "k";
+    private static final String OFFSET = "o";
+
+    private ScrollCursor() {}
+
+    /**
+     * 返回窗口最后一行之后的游标，没有下一页时返回null
+     */
+    public static String nextCursor(Window<?> window) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+        return encode(window.positionAt(window.size() - 1));
+    }
+
+    public static String encode(ScrollPosition position) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        if (position instanceof KeysetScrollPosition keyset) {
+            Map<String, String> keys = new LinkedHashMap<>();
+            // 空值显式写成null，不能省略该键，否则解码时键集与排序字段对不上
+            keyset.getKeys().forEach((property, value) -> keys.put(property, value != null ? value.toString() : null));
+            payload.put(KEYS, keys);
+        } else if (position instanceof OffsetScrollPosition offset) {
+            payload.put(OFFSET, offset.getOffset());
+        } else {
+            throw new IllegalArgumentException("不支持的分页位置: " + position);
+        }
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(payload));
+        } catch (IOException e) {
+            throw new IllegalStateException("分页游标编码失败", e);
+        }
+    }
+
+    /**
+     * 解码键集游标，游标的键必须恰好是sort中的排序字段，keyTypes为允许出现的排序字段及其类型；
+     * 游标为空时返回首页位置
+     */
+    public static KeysetScrollPosition decodeKeyset(String cursor, Sort sort, Map<String, Class<?>> keyTypes) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        Object keys = decode(cursor).get(KEYS);
+        if (!(keys instanceof Map<?, ?> rawKeys) || !rawKeys.keySet().equals(sortProperties(sort))) {
+            throw invalidCursor();
+        }
+
+        Map<String, Object> typedKeys = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            Class<?> type = keyTypes.get(order.getProperty());
+            Object value = rawKeys.get(order.getProperty());
+            if (type == null || (value != null && !(value instanceof String))) {
+                throw invalidCursor();
+            }
+            typedKeys.put(order.getProperty(), value != null ? convert((String) value, type) : null);
+        }
+        return ScrollPosition.forward(typedKeys);
+    }
+
+    /**
+     * 解码偏移游标；游标为空时返回首页位置
+     */
+    public static OffsetScrollPosition decodeOffset(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.offset();
+        }
+
+        Object offset = decode(cursor).get(OFFSET);
+        if (!(offset instanceof Number number) || number.longValue() < 0) {
+            throw invalidCursor();
+        }
+        return ScrollPosition.offset(number.longValue());
+    }
+
+    /**
+     * 把请求的每页数量限制在1到MAX_LIMIT之间
+     */
+    public static int clampLimit(int size) {
+        return Math.max(1, Math.min(size, MAX_LIMIT));
+    }
+
+    private static Set<String> sortProperties(Sort sort) {
+        Set<String> properties = new HashSet<>();
+        sort.forEach(order -> properties.add(order.getProperty()));
+        return properties;
+    }
+
+    private static Map<String, Object> decode(String cursor) {
+        try {
+            return MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), PAYLOAD_TYPE);
+        } catch (IllegalArgumentException | IOException e) {
+            throw invalidCursor();
+        }
+    }
+
+    private static Object convert(String value, Class<?> type) {
+        try {
+            if (type == Long.class) {
+                return Long.valueOf(value);
+            }
+            if (type == BigDecimal.class) {
+                return new BigDecimal(value);
+            }
+            if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            }
+            if (type == String.class) {
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw invalidCursor();
+        }
+        throw new IllegalArgumentException("不支持的游标字段类型: " + type.getSimpleName());
+    }
+
+    private static IllegalArgumentException invalidCursor() {
+        return new IllegalArgumentException("无效的分页游标");
+    }
+}
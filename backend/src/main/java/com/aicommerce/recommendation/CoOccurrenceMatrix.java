@@ -0,0 +1,94 @@
+package com.aicommerce.recommendation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 商品余弦相似度的增量累加器
+ *
+ * 心理过程：
+ * 1. 每个商品看作一个以用户为维度的向量，分量是该用户对商品的交互权重之和
+ * 2. cos(i,j) = Σ a(u,i)·a(u,j) / sqrt(Σ a(u,i)² · Σ a(u,j)²)，分子按商品对累加，分母按商品累加
+ * 3. 用户u对商品i的权重增加d时，点积(i,j)只增加d·a(u,j)，范数平方增加(a+d)²-a²，不需要重新扫描历史
+ * 4. 只有共同被交互过的商品对才有点积，稀疏存储，取邻居时直接遍历该商品的点积行
+ *
+ * 非线程安全，由ItemSimilarityIndex在写锁内访问
+ */
+final class CoOccurrenceMatrix {
+
+    private final int maxItemsPerUser;
+
+    // 外层按用户、商品索引，内层计数全部是原始类型
+    private final Map<Long, LongDoubleMap> userVectors = new HashMap<>();
+    private final Map<Long, LongDoubleMap> dots = new HashMap<>();
+    private final LongDoubleMap norms = new LongDoubleMap(1024);
+
+    CoOccurrenceMatrix(int maxItemsPerUser) {
+        this.maxItemsPerUser = maxItemsPerUser;
+    }
+
+    /**
+     * 累加一次交互，dirty不为null时收集点积发生变化的商品
+     */
+    void add(long userId, long productId, double weight, Set<Long> dirty) {
+        LongDoubleMap vector = userVectors.computeIfAbsent(userId, id -> new LongDoubleMap());
+        double before = vector.get(productId);
+        // 商品对的数量随用户交互商品数平方增长，重度用户和爬虫超出上限后不再计入新商品
+        if (before == 0.0 && vector.size() >= maxItemsPerUser) {
+            return;
+        }
+
+        LongDoubleMap row = dots.computeIfAbsent(productId, id -> new LongDoubleMap());
+        vector.forEach((otherId, otherWeight) -> {
+            if (otherId != productId) {
+                row.add(otherId, weight * otherWeight);
+                dots.computeIfAbsent(otherId, id -> new LongDoubleMap()).add(productId, weight * otherWeight);
+                if (dirty != null) {
+                    dirty.add(otherId);
+                }
+            }
+        });
+        vector.add(productId, weight);
+        norms.add(productId, (before + weight) * (before + weight) - before * before);
+        if (dirty != null) {
+            dirty.add(productId);
+        }
+    }
+
+    /**
+     * 与至少一个其他商品共同出现过的商品
+     */
+    Set<Long> productIds() {
+        return dots.keySet();
+    }
+
+    /**
+     * 按余弦相似度取前k个邻居，结果写入ids和scores，返回实际个数
+     */
+    int topNeighbors(long productId, int k, long[] ids, float[] scores) {
+        LongDoubleMap row = dots.get(productId);
+        if (row == null) {
+            return 0;
+        }
+
+        double norm = norms.get(productId);
+        int[] count = {0};
+        row.forEach((otherId, dot) -> {
+            float score = (float) (dot / Math.sqrt(norm * norms.get(otherId)));
+            if (count[0] == k && score <= scores[k - 1]) {
+                return;
+            }
+            // 插入排序，k通常只有几十，比堆更省
+            int position = count[0] < k ? count[0]++ : k - 1;
+            while (position > 0 && scores[position - 1] < score) {
+                ids[position] = ids[position - 1];
+                scores[position] = scores[position - 1];
+                position--;
+            }
+            ids[position] = otherId;
+            scores[position] = score;
+        });
+        return count[0];
+    }
+}
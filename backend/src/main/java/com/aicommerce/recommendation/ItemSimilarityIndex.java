@@ -0,0 +1,228 @@
+package com.aicommerce.recommendation;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品相似度索引（item-item协同过滤）
+ *
+ * 心理过程：
+ * 1. 用户对商品的交互权重与AI服务一致：浏览1、点击2、加购4、购买10，购买取自订单项，
+ *    行为表中的PURCHASE不再重复计入
+ * 2. 启动时和定期全量构建余弦相似度，每个商品只保留前K个邻居，存成不装箱的数组快照
+ * 3. 新订单在事务提交后入队，定时批量累加到相似度矩阵，只重算点积变化的商品的邻居
+ * 4. 查询只是一次二分查找加数组切片，不跨进程调用Python服务
+ * 5. 增量更新时，只与被更新商品共现的商品的范数变化不会立即反映到其他商品的邻居分数，
+ *    取消的订单也不会扣减，两者都在下一次全量构建时校正
+ */
+@Component
+public class ItemSimilarityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ItemSimilarityIndex.class);
+
+    private static final double VIEW_WEIGHT = 1;
+    private static final double CLICK_WEIGHT = 2;
+    private static final double ADD_TO_CART_WEIGHT = 4;
+    private static final double PURCHASE_WEIGHT = 10;
+
+    private static final int FETCH_SIZE = 5_000;
+
+    // 先在数据库里按(用户, 商品)聚合，每对只回传一行
+    private static final String INTERACTIONS_SQL = """
+            SELECT user_id, product_id, SUM(weight) FROM (
+                SELECT b.user_id, b.product_id,
+                       CASE b.behavior_type WHEN 'VIEW' THEN ? WHEN 'CLICK' THEN ? WHEN 'ADD_TO_CART' THEN ? ELSE 0 END AS weight
+                FROM user_behaviors b
+                WHERE b.user_id IS NOT NULL AND b.product_id IS NOT NULL AND b.behavior_type <> 'PURCHASE'
+                UNION ALL
+                SELECT o.user_id, oi.product_id, ? AS weight
+                FROM order_items oi JOIN orders o ON o.id = oi.order_id
+                WHERE o.status <> 'CANCELLED'
+            ) interactions
+            GROUP BY user_id, product_id
+            HAVING SUM(weight) > 0
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.recommendation.similar.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.recommendation.similar.neighbors:20}")
+    private int neighbors;
+
+    @Value("${app.recommendation.similar.max-items-per-user:200}")
+    private int maxItemsPerUser;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ConcurrentLinkedQueue<Purchase> pending = new ConcurrentLinkedQueue<>();
+
+    // 由writeLock保护
+    private CoOccurrenceMatrix matrix;
+
+    private volatile SimilarityTable table = SimilarityTable.EMPTY;
+    private volatile boolean ready;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        // PostgreSQL只有在事务中才按fetchSize分批拉取结果，否则一次性读入全部行
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.recommendation.similar.rebuild-interval:6h}",
+               initialDelayString = "${app.recommendation.similar.rebuild-interval:6h}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            // 清空之后提交的订单既会被全量查询读到，也会留在队列里，重复计入的窗口只有查询开始前的一瞬
+            pending.clear();
+            CoOccurrenceMatrix rebuilt = new CoOccurrenceMatrix(maxItemsPerUser);
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(INTERACTIONS_SQL);
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setDouble(1, VIEW_WEIGHT);
+                statement.setDouble(2, CLICK_WEIGHT);
+                statement.setDouble(3, ADD_TO_CART_WEIGHT);
+                statement.setDouble(4, PURCHASE_WEIGHT);
+                return statement;
+            }, (RowCallbackHandler) resultSet -> rebuilt.add(resultSet.getLong(1), resultSet.getLong(2), resultSet.getDouble(3), null)));
+
+            matrix = rebuilt;
+            table = buildTable(rebuilt, rebuilt.productIds());
+            ready = true;
+            log.info("商品相似度索引构建完成，共 {} 个商品", table.size());
+        } catch (RuntimeException e) {
+            log.warn("商品相似度索引构建失败，继续使用上一版: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 在当前事务提交后记录一次购买，事务回滚时不计入
+     */
+    public void recordPurchaseAfterCommit(Long userId, Collection<Long> productIds) {
+        if (!enabled || productIds.isEmpty()) {
+            return;
+        }
+
+        Purchase purchase = new Purchase(userId, productIds.stream().mapToLong(Long::longValue).distinct().toArray());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.add(purchase);
+                }
+            });
+        } else {
+            pending.add(purchase);
+        }
+    }
+
+    /**
+     * 批量应用队列中的购买，只重算受影响商品的邻居
+     */
+    @Scheduled(fixedDelayString = "${app.recommendation.similar.refresh-interval:2s}")
+    public void applyPending() {
+        if (!isReady() || pending.isEmpty()) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            Set<Long> dirty = new HashSet<>();
+            Purchase purchase;
+            while ((purchase = pending.poll()) != null) {
+                for (long productId : purchase.productIds) {
+                    matrix.add(purchase.userId, productId, PURCHASE_WEIGHT, dirty);
+                }
+            }
+            table = table.merge(buildTable(matrix, dirty));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 相似商品，按相似度降序，索引未就绪或没有共现数据时返回空列表
+     */
+    public List<SimilarProduct> similar(long productId, int limit) {
+        SimilarityTable current = table;
+        int index = current.indexOf(productId);
+        if (index < 0) {
+            return List.of();
+        }
+
+        long[] ids = current.neighborIds(index);
+        float[] scores = current.neighborScores(index);
+        int count = Math.min(limit, ids.length);
+        List<SimilarProduct> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new SimilarProduct(ids[i], scores[i]));
+        }
+        return result;
+    }
+
+    private SimilarityTable buildTable(CoOccurrenceMatrix source, Set<Long> productIds) {
+        long[] ids = productIds.stream().mapToLong(Long::longValue).sorted().toArray();
+        long[][] neighborIds = new long[ids.length][];
+        float[][] neighborScores = new float[ids.length][];
+
+        long[] topIds = new long[neighbors];
+        float[] topScores = new float[neighbors];
+        for (int i = 0; i < ids.length; i++) {
+            int count = source.topNeighbors(ids[i], neighbors, topIds, topScores);
+            neighborIds[i] = Arrays.copyOf(topIds, count);
+            neighborScores[i] = Arrays.copyOf(topScores, count);
+        }
+        return new SimilarityTable(ids, neighborIds, neighborScores);
+    }
+
+    private static final class Purchase {
+        private final long userId;
+        private final long[] productIds;
+
+        private Purchase(long userId, long[] productIds) {
+            this.userId = userId;
+            this.productIds = productIds;
+        }
+    }
+}
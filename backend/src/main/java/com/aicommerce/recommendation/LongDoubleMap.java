@@ -0,0 +1,110 @@
+package com.aicommerce.recommendation;
+
+/**
+ * long到double的开放寻址哈希表，用于相似度累加器，避免每个计数都装箱成Long和Double
+ *
+ * 键必须为正数（商品ID、用户ID），0作为空槽标记；不支持删除
+ */
+final class LongDoubleMap {
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private double[] values;
+    private int size;
+    private int mask;
+
+    LongDoubleMap() {
+        this(8);
+    }
+
+    LongDoubleMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new double[capacity];
+        mask = capacity - 1;
+    }
+
+    double get(long key) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0.0;
+    }
+
+    /**
+     * 在原值上累加，键不存在时视为0，返回累加后的值
+     */
+    double add(long key, double delta) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot] += delta;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+        return delta;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Consumer consumer) {
+        long[] currentKeys = keys;
+        double[] currentValues = values;
+        for (int i = 0; i < currentKeys.length; i++) {
+            if (currentKeys[i] != EMPTY) {
+                consumer.accept(currentKeys[i], currentValues[i]);
+            }
+        }
+    }
+
+    long[] keys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new double[oldValues.length << 1];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Consumer {
+        void accept(long key, double value);
+    }
+}
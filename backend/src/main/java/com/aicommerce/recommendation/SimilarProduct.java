@@ -0,0 +1,18 @@
+package com.aicommerce.recommendation;
+
+/**
+ * 一个相似商品及其余弦相似度
+ */
+public final class SimilarProduct {
+
+    private final long productId;
+    private final float score;
+
+    SimilarProduct(long productId, float score) {
+        this.productId = productId;
+        this.score = score;
+    }
+
+    public long getProductId() { return productId; }
+    public float getScore() { return score; }
+}
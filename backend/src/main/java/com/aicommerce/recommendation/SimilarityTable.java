@@ -0,0 +1,77 @@
+package com.aicommerce.recommendation;
+
+import java.util.Arrays;
+
+/**
+ * 相似商品表的不可变快照
+ *
+ * 商品ID升序存放在long数组中，查询时二分查找；每个商品的邻居ID和分数是并列的long[]和float[]，
+ * 按分数降序，全程不装箱。增量更新时复制外层数组并替换变化的行，读线程总是看到完整的一版
+ */
+final class SimilarityTable {
+
+    static final SimilarityTable EMPTY = new SimilarityTable(new long[0], new long[0][], new float[0][]);
+
+    private final long[] productIds;
+    private final long[][] neighborIds;
+    private final float[][] neighborScores;
+
+    SimilarityTable(long[] productIds, long[][] neighborIds, float[][] neighborScores) {
+        this.productIds = productIds;
+        this.neighborIds = neighborIds;
+        this.neighborScores = neighborScores;
+    }
+
+    int size() {
+        return productIds.length;
+    }
+
+    /**
+     * 商品所在行，不存在时返回负数
+     */
+    int indexOf(long productId) {
+        return Arrays.binarySearch(productIds, productId);
+    }
+
+    long[] neighborIds(int index) {
+        return neighborIds[index];
+    }
+
+    float[] neighborScores(int index) {
+        return neighborScores[index];
+    }
+
+    /**
+     * 合并一批重新计算过的行，已有的行被替换，新商品按序插入
+     */
+    SimilarityTable merge(SimilarityTable updates) {
+        long[] updatedIds = updates.productIds;
+        long[][] updatedNeighborIds = updates.neighborIds;
+        float[][] updatedScores = updates.neighborScores;
+        int capacity = productIds.length + updatedIds.length;
+        long[] mergedIds = new long[capacity];
+        long[][] mergedNeighborIds = new long[capacity][];
+        float[][] mergedScores = new float[capacity][];
+
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < productIds.length || j < updatedIds.length) {
+            if (j == updatedIds.length || (i < productIds.length && productIds[i] < updatedIds[j])) {
+                mergedIds[n] = productIds[i];
+                mergedNeighborIds[n] = neighborIds[i];
+                mergedScores[n++] = neighborScores[i++];
+            } else {
+                if (i < productIds.length && productIds[i] == updatedIds[j]) {
+                    i++;
+                }
+                mergedIds[n] = updatedIds[j];
+                mergedNeighborIds[n] = updatedNeighborIds[j];
+                mergedScores[n++] = updatedScores[j++];
+            }
+        }
+
+        return new SimilarityTable(Arrays.copyOf(mergedIds, n), Arrays.copyOf(mergedNeighborIds, n),
+                Arrays.copyOf(mergedScores, n));
+    }
+}
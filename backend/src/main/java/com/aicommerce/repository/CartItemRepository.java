@@ -1,7 +1,9 @@
 package com.aicommerce.repository;
 
 import com.aicommerce.model.CartItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,10 +15,19 @@ import java.util.Optional;
  * 购物车项数据访问层
  */
 @Repository
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartItemRepositoryCustom {
 
     List<CartItem> findByUserIdOrderByCreatedAtDesc(Long userId);
 
+    // 一次查询连同商品取回，避免EAGER关联逐行补查
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.user.id = :userId ORDER BY ci.createdAt DESC")
+    List<CartItem> findWithProductByUserId(@Param("userId") Long userId);
+
+    // 购物车视图：商品和分类随购物车项一条查询取回，序列化时不再逐个补查分类
+    @EntityGraph(attributePaths = {"product", "product.category"})
+    @Query("SELECT ci FROM CartItem ci WHERE ci.user.id = :userId ORDER BY ci.createdAt DESC")
+    List<CartItem> findViewByUserId(@Param("userId") Long userId);
+
     Optional<CartItem> findByUserIdAndProductId(Long userId, Long productId);
 
     @Query("SELECT ci FROM CartItem ci WHERE ci.user.id = :userId AND ci.product.id = :productId AND ci.selectedAttributes = :attributes")
@@ -28,6 +39,10 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
     void deleteByUserId(Long userId);
 
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.user.id = :userId")
+    int deleteAllByUserIdInBatch(@Param("userId") Long userId);
+
     void deleteByUserIdAndProductId(Long userId, Long productId);
 
     @Query("SELECT COUNT(ci) FROM CartItem ci WHERE ci.user.id = :userId")
@@ -0,0 +1,22 @@
+package com.aicommerce.repository;
+
+import com.aicommerce.cart.CartLine;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 购物车项数据访问层扩展接口，放置购物车异步落库用到的批量SQL
+ */
+public interface CartItemRepositoryCustom {
+
+    /**
+     * 用给定的购物车整体替换这些用户在cart_items中的记录，返回插入的行数
+     */
+    int replaceCarts(Map<Long, List<CartLine>> carts);
+
+    /**
+     * 从cart_items主键序列一次取出count个ID
+     */
+    List<Long> reserveIds(int count);
+}
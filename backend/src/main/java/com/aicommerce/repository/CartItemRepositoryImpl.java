@@ -0,0 +1,62 @@
+package com.aicommerce.repository;
+
+import com.aicommerce.cart.CartLine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 购物车项数据访问层扩展实现
+ *
+ * 心理过程：
+ * 1. 一条DELETE删掉整批用户的旧记录，再用JDBC批量插入Redis中的当前购物车
+ * 2. 落库只关心购物车的最终状态，不逐行比较差异，重复执行结果不变
+ * 3. 插入时显式写入Redis中的行ID，行ID本身取自主键序列，冷加载后cartItemId保持不变
+ */
+public class CartItemRepositoryImpl implements CartItemRepositoryCustom {
+
+    private static final String DELETE_CARTS_SQL = "DELETE FROM cart_items WHERE user_id = ANY(?)";
+
+    private static final String INSERT_CART_ITEM_SQL =
+            "INSERT INTO cart_items (id, user_id, product_id, quantity, selected_attributes, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, CAST(? AS jsonb), ?, ?)";
+
+    private static final String RESERVE_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('cart_items', 'id')) FROM generate_series(1, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int replaceCarts(Map<Long, List<CartLine>> carts) {
+        if (carts.isEmpty()) {
+            return 0;
+        }
+
+        Long[] userIds = carts.keySet().toArray(Long[]::new);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_CARTS_SQL);
+            statement.setArray(1, connection.createArrayOf("bigint", userIds));
+            return statement;
+        });
+
+        List<Object[]> rows = new ArrayList<>();
+        carts.forEach((userId, lines) -> lines.forEach(line -> rows.add(new Object[]{
+                line.getId(), userId, line.getProductId(), line.getQuantity(), line.getSelectedAttributes(),
+                Timestamp.valueOf(line.getCreatedAt()), Timestamp.valueOf(line.getUpdatedAt())})));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.batchUpdate(INSERT_CART_ITEM_SQL, rows).length;
+    }
+
+    @Override
+    public List<Long> reserveIds(int count) {
+        return jdbcTemplate.queryForList(RESERVE_IDS_SQL, Long.class, count);
+    }
+}
@@ -3,6 +3,7 @@ package com.aicommerce.repository;
 import com.aicommerce.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -21,4 +22,10 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     List<Category> findRootCategoriesWithChildren();
 
     boolean existsByName(String name);
+
+    /**
+     * 取事务级咨询锁，当前事务结束时自动释放；同一个key的事务在此排队
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:key)", nativeQuery = true)
+    Integer lockForTransaction(@Param("key") long key);
 }
\ No newline at end of file
@@ -1,14 +1,21 @@
 package com.aicommerce.repository;
 
 import com.aicommerce.model.Order;
+import com.aicommerce.order.OrderItemView;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,10 +27,29 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     Page<Order> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
 
+    // 游标分页：按 (createdAt, id) 定位下一页
+    Window<Order> findByUserId(Long userId, ScrollPosition position, Sort sort, Limit limit);
+
     Optional<Order> findByOrderNumber(String orderNumber);
 
     Optional<Order> findByIdAndUserId(Long id, Long userId);
 
+    // 订单详情：订单项和商品随订单一条JOIN查询取回
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    Optional<Order> findWithItemsByIdAndUserId(Long id, Long userId);
+
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    Optional<Order> findWithItemsByOrderNumberAndUserId(String orderNumber, Long userId);
+
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    Optional<Order> findWithItemsById(Long id);
+
+    // 订单列表：一页订单的订单项一次投影取回，分页仍在订单表上进行
+    @Query("SELECT new com.aicommerce.order.OrderItemView(oi.order.id, oi.id, p.id, p.name, p.sku, p.brand, p.images, " +
+           "oi.quantity, oi.unitPrice, oi.selectedAttributes, oi.createdAt) " +
+           "FROM OrderItem oi JOIN oi.product p WHERE oi.order.id IN :orderIds ORDER BY oi.order.id, oi.id")
+    List<OrderItemView> findItemViewsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
     List<Order> findByUserIdAndStatusOrderByCreatedAtDesc(Long userId, Order.OrderStatus status);
 
     @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND o.createdAt BETWEEN :startDate AND :endDate ORDER BY o.createdAt DESC")
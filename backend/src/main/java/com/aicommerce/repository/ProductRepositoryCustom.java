@@ -0,0 +1,12 @@
+package com.aicommerce.repository;
+
+/**
+ * 商品数据访问层扩展接口，放置无法用JPQL表达的批量SQL
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * 一条多行UPDATE批量扣减库存，只扣减库存充足的行，返回实际更新的行数
+     */
+    int decreaseStockBatch(long[] productIds, int[] quantities);
+}
@@ -0,0 +1,44 @@
+package com.aicommerce.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+
+/**
+ * 商品数据访问层扩展实现
+ * 
+ * 心理过程：
+ * 1. 使用PostgreSQL的unnest把ID和数量数组展开成临时表，一次UPDATE完成整单扣减
+ * 2. JdbcTemplate与JPA共用同一事务连接，失败时随订单一起回滚
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private static final String DECREASE_STOCK_BATCH_SQL =
+            "UPDATE products p SET stock_quantity = p.stock_quantity - v.quantity, updated_at = CURRENT_TIMESTAMP " +
+            "FROM unnest(?::bigint[], ?::integer[]) AS v(id, quantity) " +
+            "WHERE p.id = v.id AND p.stock_quantity >= v.quantity";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int decreaseStockBatch(long[] productIds, int[] quantities) {
+        if (productIds.length != quantities.length) {
+            throw new IllegalArgumentException("商品ID与数量个数不一致");
+        }
+        if (productIds.length == 0) {
+            return 0;
+        }
+
+        Long[] ids = Arrays.stream(productIds).boxed().toArray(Long[]::new);
+        Integer[] amounts = Arrays.stream(quantities).boxed().toArray(Integer[]::new);
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DECREASE_STOCK_BATCH_SQL);
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            statement.setArray(2, connection.createArrayOf("integer", amounts));
+            return statement;
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package com.aicommerce.response;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 公开目录接口的HTTP条件缓存
+ *
+ * 心理过程：
+ * 1. 控制器先算出ETag，If-None-Match命中时直接返回304，不再查询和序列化
+ * 2. 200和304都带同样的ETag和Cache-Control：短max-age内客户端直接用本地副本，
+ *    过期后stale-while-revalidate窗口内先用旧副本、后台带If-None-Match重新验证
+ * 3. If-None-Match按弱比较（RFC 9110），带W/前缀的ETag也算命中
+ */
+@Component
+public class CatalogHttpCache {
+
+    @Value("${app.http-cache.catalog.max-age:10s}")
+    private Duration maxAge;
+
+    @Value("${app.http-cache.catalog.stale-while-revalidate:60s}")
+    private Duration staleWhileRevalidate;
+
+    private CacheControl cacheControl;
+
+    @PostConstruct
+    public void init() {
+        cacheControl = CacheControl.maxAge(maxAge).staleWhileRevalidate(staleWhileRevalidate).cachePublic();
+    }
+
+    /**
+     * 请求的If-None-Match与当前ETag匹配时返回304响应，否则返回null
+     */
+    public ResponseEntity<?> notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || !matches(ifNoneMatch, etag)) {
+            return null;
+        }
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+    }
+
+    public ResponseEntity<?> ok(String etag, Object body) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(body);
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+package com.aicommerce.response;
+
+/**
+ * 只有成功标志和提示信息的响应，错误响应和固定文案的成功响应共用
+ *
+ * 固定文案的响应预先建好常量，直接复用同一个对象；error为附带的异常信息，没有时不输出
+ */
+public record MessageResponse(boolean success, String message, String error) {
+
+    public static final MessageResponse PRODUCT_NOT_FOUND = failure("商品不存在");
+    public static final MessageResponse PRODUCT_DELETED = success("商品删除成功");
+    public static final MessageResponse STOCK_UPDATED = success("库存更新成功");
+    public static final MessageResponse CATEGORY_NOT_FOUND = failure("分类不存在");
+    public static final MessageResponse CATEGORY_DELETED = success("分类删除成功");
+
+    public static MessageResponse success(String message) {
+        return new MessageResponse(true, message, null);
+    }
+
+    public static MessageResponse failure(String message) {
+        return new MessageResponse(false, message, null);
+    }
+
+    public static MessageResponse failure(String message, String error) {
+        return new MessageResponse(false, message, error);
+    }
+}
@@ -0,0 +1,26 @@
+package com.aicommerce.response;
+
+import com.aicommerce.search.ProductFacetIndex;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 页码分页的列表响应，字段与原先的HashMap响应一致
+ *
+ * facets只有商品列表在facets=true时返回
+ */
+public record PageResponse<T>(boolean success, List<T> content, int page, int size, long totalElements,
+                              int totalPages, boolean first, boolean last, ProductFacetIndex.FacetCounts facets) {
+
+    public static <S, T> PageResponse<T> of(Page<S> page, Function<? super S, ? extends T> mapper) {
+        List<T> content = page.getContent().stream().<T>map(mapper).toList();
+        return new PageResponse<>(true, content, page.getNumber(), page.getSize(), page.getTotalElements(),
+                page.getTotalPages(), page.isFirst(), page.isLast(), null);
+    }
+
+    public PageResponse<T> withFacets(ProductFacetIndex.FacetCounts facets) {
+        return new PageResponse<>(success, content, page, size, totalElements, totalPages, first, last, facets);
+    }
+}
@@ -0,0 +1,67 @@
+package com.aicommerce.response;
+
+import com.aicommerce.cache.CategoryNode;
+import com.aicommerce.cache.CategoryTree;
+import com.aicommerce.model.Category;
+import com.aicommerce.model.Product;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 商品接口返回的只读视图，字段与原来的商品JSON一致
+ *
+ * 心理过程：
+ * 1. 直接序列化实体时，列表里每个商品的分类懒加载代理都会在序列化阶段各查一次库
+ * 2. 分类只输出ID和名称：ID从代理中直接取，不初始化代理；名称取自内存中的分类树快照
+ * 3. 控制器返回前完成转换，序列化阶段只读普通字段
+ */
+public record ProductView(
+        Long id,
+        String name,
+        String description,
+        BigDecimal price,
+        BigDecimal discountPrice,
+        CategoryRef category,
+        String brand,
+        String sku,
+        Integer stockQuantity,
+        String images,
+        String attributes,
+        String tags,
+        BigDecimal rating,
+        Integer reviewCount,
+        String aiFeatures,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Boolean isActive,
+        boolean inStock,
+        boolean onSale,
+        BigDecimal effectivePrice) {
+
+    public static ProductView of(Product product, CategoryTree categories) {
+        return new ProductView(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getDiscountPrice(), CategoryRef.of(product.getCategory(), categories), product.getBrand(),
+                product.getSku(), product.getStockQuantity(), product.getImages(), product.getAttributes(),
+                product.getTags(), product.getRating(), product.getReviewCount(), product.getAiFeatures(),
+                product.getCreatedAt(), product.getUpdatedAt(), product.getIsActive(), product.isInStock(),
+                product.isOnSale(), product.getEffectivePrice());
+    }
+
+    public record CategoryRef(Long id, String name) {
+
+        static CategoryRef of(Category category, CategoryTree categories) {
+            if (category == null) {
+                return null;
+            }
+            LazyInitializer lazy = category instanceof HibernateProxy proxy ? proxy.getHibernateLazyInitializer() : null;
+            Long id = lazy != null ? (Long) lazy.getIdentifier() : category.getId();
+            // 快照里找不到（刚新建的分类）时，只有已加载的分类才读名称
+            String name = categories.find(id).map(CategoryNode::getName)
+                    .orElseGet(() -> lazy == null || !lazy.isUninitialized() ? category.getName() : null);
+            return new CategoryRef(id, name);
+        }
+    }
+}
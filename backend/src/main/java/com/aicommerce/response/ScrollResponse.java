@@ -0,0 +1,29 @@
+package com.aicommerce.response;
+
+import com.aicommerce.pagination.ScrollCursor;
+import com.aicommerce.search.ProductFacetIndex;
+import org.springframework.data.domain.Window;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页的列表响应，totalElements只在请求withTotal=true时返回
+ */
+public record ScrollResponse<T>(boolean success, List<T> content, int size, boolean hasNext, String nextCursor,
+                                Long totalElements, ProductFacetIndex.FacetCounts facets) {
+
+    public static <S, T> ScrollResponse<T> of(Window<S> window, Function<? super S, ? extends T> mapper) {
+        List<T> content = window.getContent().stream().<T>map(mapper).toList();
+        return new ScrollResponse<>(true, content, window.size(), window.hasNext(), ScrollCursor.nextCursor(window),
+                null, null);
+    }
+
+    public ScrollResponse<T> withTotal(long totalElements) {
+        return new ScrollResponse<>(success, content, size, hasNext, nextCursor, totalElements, facets);
+    }
+
+    public ScrollResponse<T> withFacets(ProductFacetIndex.FacetCounts facets) {
+        return new ScrollResponse<>(success, content, size, hasNext, nextCursor, totalElements, facets);
+    }
+}
@@ -0,0 +1,539 @@
+package com.aicommerce.search;
+
+import com.aicommerce.cache.CategoryNode;
+import com.aicommerce.cache.CategoryTree;
+import com.aicommerce.cache.CategoryTreeCache;
+import com.aicommerce.datasource.DataSourceRouting;
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * 商品分面位图索引
+ *
+ * 心理过程：
+ * 1. 每个品牌、分类、价格区间各维护一个Roaring位图，位图中是在售商品的ID
+ * 2. 组合筛选就是位图求交，分面计数是与各取值位图求交集基数，不需要逐个GROUP BY查询
+ * 3. 计算某个维度的分面时排除该维度自身的筛选条件，选中一个品牌后仍能看到其他品牌的数量
+ * 4. 任意价格区间由有序的价格->位图映射取子区间求并集得到
+ * 5. 分类筛选和分类计数都包含子孙分类，子树ID来自分类树快照
+ * 6. 与搜索索引一样，启动时全量构建，商品增删改在事务提交后增量更新；构建期间被增量更新过的商品，构建时跳过
+ * 7. 其他节点修改商品后经商品缓存失效频道通知，本节点从主库重新读取该商品更新位图
+ */
+@Component
+public class ProductFacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+    private static final int REFRESH_LOCK_STRIPES = 64;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Value("${app.search.facets.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.facets.price-buckets:100,500,1000,5000}")
+    private List<BigDecimal> priceBoundaries;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 以下状态均由lock保护
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> byBrand = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+    private final TreeMap<BigDecimal, RoaringBitmap> byPrice = new TreeMap<>();
+    private final Map<Integer, FacetValues> valuesByProduct = new HashMap<>();
+    private RoaringBitmap[] byPriceBucket;
+
+    private volatile boolean ready;
+
+    // 构建期间被增量更新过的商品，不在构建时为null，由lock保护
+    private Set<Long> changedDuringRebuild;
+
+    // 同一商品的远程刷新串行执行，先读到旧行的刷新不会在后读到新行的刷新之后才写入位图
+    private final Object[] refreshLocks = new Object[REFRESH_LOCK_STRIPES];
+
+    {
+        Arrays.setAll(refreshLocks, i -> new Object());
+    }
+
+    @PostConstruct
+    public void init() {
+        priceBoundaries = priceBoundaries.stream().sorted().distinct().toList();
+        byPriceBucket = new RoaringBitmap[priceBoundaries.size() + 1];
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            byPriceBucket[i] = new RoaringBitmap();
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        ready = false;
+        lock.writeLock().lock();
+        try {
+            clear();
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            if (!load()) {
+                return;
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        ready = true;
+        log.info("商品分面索引构建完成，共 {} 个商品，{} 个品牌，{} 个分类",
+                all.getCardinality(), byBrand.size(), byCategory.size());
+    }
+
+    /**
+     * 分页读取在售商品写入位图，遇到超出位图范围的商品ID时返回false
+     */
+    private boolean load() {
+        int pageNumber = 0;
+        Page<Product> page;
+        do {
+            page = productRepository.findByIsActiveTrue(PageRequest.of(pageNumber++, REBUILD_PAGE_SIZE));
+            List<FacetValues> values = new ArrayList<>(page.getNumberOfElements());
+            for (Product product : page.getContent()) {
+                if (!fitsBitmap(product.getId())) {
+                    log.warn("商品ID {} 超出位图范围，停用分面索引", product.getId());
+                    return false;
+                }
+                values.add(FacetValues.of(product));
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (FacetValues value : values) {
+                    if (changedDuringRebuild.contains((long) value.id)) {
+                        continue;
+                    }
+                    removeValues(value.id);
+                    add(value);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (page.hasNext());
+        return true;
+    }
+
+    /**
+     * 在当前事务提交后更新索引，事务回滚时索引保持不变
+     */
+    public void indexAfterCommit(Product product) {
+        runAfterCommit(() -> index(product));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        runAfterCommit(() -> remove(productId));
+    }
+
+    /**
+     * 其他节点修改了商品：从主库重新读取，存在且上架时更新位图，否则移出
+     */
+    public void onRemoteChange(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        synchronized (refreshLocks[Math.floorMod(productId.hashCode(), REFRESH_LOCK_STRIPES)]) {
+            Optional<Product> product = DataSourceRouting.usePrimary(() -> productRepository.findById(productId));
+            if (product.isPresent()) {
+                index(product.get());
+            } else {
+                remove(productId);
+            }
+        }
+    }
+
+    public void index(Product product) {
+        if (!enabled || product == null || product.getId() == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(product.getIsActive())) {
+            remove(product.getId());
+            return;
+        }
+        if (!fitsBitmap(product.getId())) {
+            log.warn("商品ID {} 超出位图范围，停用分面索引", product.getId());
+            ready = false;
+            return;
+        }
+
+        FacetValues values = FacetValues.of(product);
+        lock.writeLock().lock();
+        try {
+            markChanged(product.getId());
+            removeValues(values.id);
+            add(values);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        if (!enabled || productId == null || !fitsBitmap(productId)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markChanged(productId);
+            removeValues((int) productId.longValue());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 返回分类、价格、品牌条件的组合过滤器，关键词条件由搜索索引负责；没有这些条件时返回null
+     */
+    public LongPredicate filter(ProductQuery query) {
+        if (!query.hasAttributeFilters()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = and(all, categoryFilter(query), priceFilter(query), brandFilter(query));
+            return productId -> fitsBitmap(productId) && matches.contains((int) productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 计算分面计数，keywordHits为关键词命中的商品ID，没有关键词时传null
+     */
+    public FacetCounts count(long[] keywordHits, ProductQuery query) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap base = keywordHits != null ? RoaringBitmap.and(all, toBitmap(keywordHits)) : all;
+            RoaringBitmap category = categoryFilter(query);
+            RoaringBitmap price = priceFilter(query);
+            RoaringBitmap brand = brandFilter(query);
+
+            RoaringBitmap brandScope = and(base, category, price, null);
+            Map<String, Integer> brands = sortedCounts(byBrand, brandScope);
+
+            RoaringBitmap categoryScope = and(base, null, price, brand);
+            Map<Long, Integer> categories = rollUp(sortedCounts(byCategory, categoryScope), categoryTreeCache.current());
+
+            RoaringBitmap priceScope = and(base, category, null, brand);
+            List<PriceRange> priceRanges = new ArrayList<>(byPriceBucket.length);
+            for (int i = 0; i < byPriceBucket.length; i++) {
+                int count = RoaringBitmap.andCardinality(priceScope, byPriceBucket[i]);
+                if (count > 0) {
+                    priceRanges.add(new PriceRange(
+                            i == 0 ? null : priceBoundaries.get(i - 1),
+                            i < priceBoundaries.size() ? priceBoundaries.get(i) : null,
+                            count));
+                }
+            }
+
+            long total = brand != null ? RoaringBitmap.andCardinality(brandScope, brand) : brandScope.getCardinality();
+            return new FacetCounts(total, brands, categories, priceRanges);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private RoaringBitmap categoryFilter(ProductQuery query) {
+        if (query.getCategoryId() == null) {
+            return null;
+        }
+        long[] subtree = categoryTreeCache.current().subtreeIds(query.getCategoryId());
+        if (subtree.length == 0) {
+            return byCategory.getOrDefault(query.getCategoryId(), new RoaringBitmap());
+        }
+
+        List<RoaringBitmap> bitmaps = new ArrayList<>(subtree.length);
+        for (long categoryId : subtree) {
+            RoaringBitmap bitmap = byCategory.get(categoryId);
+            if (bitmap != null) {
+                bitmaps.add(bitmap);
+            }
+        }
+        return bitmaps.isEmpty() ? new RoaringBitmap() : FastAggregation.or(bitmaps.iterator());
+    }
+
+    /**
+     * 把各分类直属商品数累加到所有祖先分类上，得到包含子孙分类的计数
+     */
+    private static Map<Long, Integer> rollUp(Map<Long, Integer> direct, CategoryTree tree) {
+        Map<Long, Integer> totals = new HashMap<>(direct);
+        for (Map.Entry<Long, Integer> entry : direct.entrySet()) {
+            Optional<CategoryNode> parent = tree.find(entry.getKey()).flatMap(node -> tree.find(node.getParentId()));
+            while (parent.isPresent()) {
+                totals.merge(parent.get().getId(), entry.getValue(), Integer::sum);
+                parent = tree.find(parent.get().getParentId());
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> counts = new ArrayList<>(totals.entrySet());
+        counts.sort(Map.Entry.<Long, Integer>comparingByValue().reversed());
+
+        Map<Long, Integer> sorted = new LinkedHashMap<>();
+        counts.forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    private RoaringBitmap brandFilter(ProductQuery query) {
+        if (query.getBrand() == null) {
+            return null;
+        }
+        return byBrand.getOrDefault(query.getBrand(), new RoaringBitmap());
+    }
+
+    private RoaringBitmap priceFilter(ProductQuery query) {
+        BigDecimal min = query.getMinPrice();
+        BigDecimal max = query.getMaxPrice();
+        if (min == null && max == null) {
+            return null;
+        }
+
+        NavigableMap<BigDecimal, RoaringBitmap> range;
+        if (min != null && max != null) {
+            range = byPrice.subMap(min, true, max, true);
+        } else if (min != null) {
+            range = byPrice.tailMap(min, true);
+        } else {
+            range = byPrice.headMap(max, true);
+        }
+        return range.isEmpty() ? new RoaringBitmap() : FastAggregation.or(range.values().iterator());
+    }
+
+    /**
+     * 对非空的位图求交，结果总是新对象，不会被后续的索引更新修改
+     */
+    private static RoaringBitmap and(RoaringBitmap base, RoaringBitmap first, RoaringBitmap second, RoaringBitmap third) {
+        RoaringBitmap result = base.clone();
+        for (RoaringBitmap filter : new RoaringBitmap[]{first, second, third}) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static <K> Map<K, Integer> sortedCounts(Map<K, RoaringBitmap> bitmaps, RoaringBitmap scope) {
+        List<Map.Entry<K, Integer>> counts = new ArrayList<>();
+        for (Map.Entry<K, RoaringBitmap> entry : bitmaps.entrySet()) {
+            int count = RoaringBitmap.andCardinality(scope, entry.getValue());
+            if (count > 0) {
+                counts.add(Map.entry(entry.getKey(), count));
+            }
+        }
+        counts.sort(Map.Entry.<K, Integer>comparingByValue().reversed());
+
+        Map<K, Integer> sorted = new LinkedHashMap<>();
+        counts.forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    // 调用方需持有写锁
+    private void markChanged(long productId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(productId);
+        }
+    }
+
+    private void add(FacetValues values) {
+        all.add(values.id);
+        if (values.brand != null) {
+            byBrand.computeIfAbsent(values.brand, b -> new RoaringBitmap()).add(values.id);
+        }
+        if (values.categoryId != null) {
+            byCategory.computeIfAbsent(values.categoryId, c -> new RoaringBitmap()).add(values.id);
+        }
+        if (values.price != null) {
+            byPrice.computeIfAbsent(values.price, p -> new RoaringBitmap()).add(values.id);
+            byPriceBucket[bucketOf(values.price)].add(values.id);
+        }
+        valuesByProduct.put(values.id, values);
+    }
+
+    private void removeValues(int productId) {
+        FacetValues values = valuesByProduct.remove(productId);
+        if (values == null) {
+            return;
+        }
+        all.remove(productId);
+        if (values.brand != null) {
+            removeFrom(byBrand, values.brand, productId);
+        }
+        if (values.categoryId != null) {
+            removeFrom(byCategory, values.categoryId, productId);
+        }
+        if (values.price != null) {
+            removeFrom(byPrice, values.price, productId);
+            byPriceBucket[bucketOf(values.price)].remove(productId);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int productId) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(productId);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    private int bucketOf(BigDecimal price) {
+        int bucket = 0;
+        while (bucket < priceBoundaries.size() && price.compareTo(priceBoundaries.get(bucket)) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private void clear() {
+        all.clear();
+        byBrand.clear();
+        byCategory.clear();
+        byPrice.clear();
+        valuesByProduct.clear();
+        for (RoaringBitmap bucket : byPriceBucket) {
+            bucket.clear();
+        }
+    }
+
+    private static RoaringBitmap toBitmap(long[] productIds) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (long productId : productIds) {
+            if (fitsBitmap(productId)) {
+                bitmap.add((int) productId);
+            }
+        }
+        return bitmap;
+    }
+
+    // RoaringBitmap按无符号32位整数存储
+    private static boolean fitsBitmap(long productId) {
+        return productId >= 0 && (productId >>> 32) == 0;
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class FacetValues {
+        private final int id;
+        private final String brand;
+        private final Long categoryId;
+        private final BigDecimal price;
+
+        private FacetValues(int id, String brand, Long categoryId, BigDecimal price) {
+            this.id = id;
+            this.brand = brand;
+            this.categoryId = categoryId;
+            this.price = price;
+        }
+
+        private static FacetValues of(Product product) {
+            return new FacetValues(
+                    (int) product.getId().longValue(),
+                    product.getBrand(),
+                    product.getCategory() != null ? product.getCategory().getId() : null,
+                    product.getPrice());
+        }
+    }
+
+    // 分面计数结果DTO
+    public static class FacetCounts {
+        private final long total;
+        private final Map<String, Integer> brands;
+        private final Map<Long, Integer> categories;
+        private final List<PriceRange> priceRanges;
+
+        public FacetCounts(long total, Map<String, Integer> brands, Map<Long, Integer> categories,
+                           List<PriceRange> priceRanges) {
+            this.total = total;
+            this.brands = brands;
+            this.categories = categories;
+            this.priceRanges = priceRanges;
+        }
+
+        public long getTotal() { return total; }
+        public Map<String, Integer> getBrands() { return brands; }
+        public Map<Long, Integer> getCategories() { return categories; }
+        public List<PriceRange> getPriceRanges() { return priceRanges; }
+    }
+
+    // 价格区间[min, max)，两端为null表示不限
+    public static class PriceRange {
+        private final BigDecimal min;
+        private final BigDecimal max;
+        private final int count;
+
+        public PriceRange(BigDecimal min, BigDecimal max, int count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public BigDecimal getMin() { return min; }
+        public BigDecimal getMax() { return max; }
+        public int getCount() { return count; }
+    }
+}
@@ -0,0 +1,112 @@
+package com.aicommerce.search;
+
+import com.aicommerce.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * PostgreSQL全文检索
+ *
+ * 心理过程：
+ * 1. 作为数据库侧的搜索方式与LIKE '%kw%'对照，app.search.database.mode=fulltext时启用
+ * 2. products.search_vector是名称、品牌、标签、描述拼成的tsvector生成列，权重依次为A、B、B、D，
+ *    与倒排索引的字段权重一致，建GIN索引，按ts_rank排序
+ * 3. 全文检索没有结果时（拼写错误、中文子串）退回pg_trgm的词相似度，名称和品牌各有一个三元组GIN索引
+ * 4. 表结构随Hibernate建表可能被重建，启动时按IF NOT EXISTS补齐扩展、生成列和索引，失败时退回LIKE查询
+ * 5. 'simple'配置不做中文分词，中文整句是一个词，中文子串主要靠三元组相似度兜底
+ */
+@Component
+public class ProductFullTextSearch {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductFullTextSearch.class);
+
+    public static final String MODE_FULLTEXT = "fulltext";
+
+    private static final List<String> SCHEMA_SQL = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (" +
+                    "setweight(to_tsvector('simple', coalesce(name, '')), 'A') || " +
+                    "setweight(to_tsvector('simple', coalesce(brand, '')), 'B') || " +
+                    "setweight(jsonb_to_tsvector('simple', coalesce(tags, '[]'::jsonb), '[\"string\"]'), 'B') || " +
+                    "setweight(to_tsvector('simple', coalesce(description, '')), 'D')) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_products_search_vector ON products USING GIN (search_vector)",
+            "CREATE INDEX IF NOT EXISTS idx_products_name_trgm ON products USING GIN (name gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_products_brand_trgm ON products USING GIN (brand gin_trgm_ops)");
+
+    private static final String MATCH_SQL =
+            "FROM products p, websearch_to_tsquery('simple', ?) q " +
+            "WHERE p.is_active = true AND p.search_vector @@ q";
+
+    private static final String SEARCH_SQL =
+            "SELECT p.id " + MATCH_SQL + " ORDER BY ts_rank(p.search_vector, q) DESC, p.id DESC LIMIT ? OFFSET ?";
+
+    private static final String COUNT_SQL = "SELECT count(*) " + MATCH_SQL;
+
+    // <%为词相似度：查询词与名称或品牌中某一段足够相似即命中，能容忍拼写错误
+    private static final String SIMILAR_MATCH_SQL =
+            "FROM products p WHERE p.is_active = true AND (? <% p.name OR ? <% p.brand)";
+
+    private static final String SIMILAR_SEARCH_SQL =
+            "SELECT p.id " + SIMILAR_MATCH_SQL +
+            " ORDER BY greatest(word_similarity(?, p.name), word_similarity(?, coalesce(p.brand, ''))) DESC, p.id DESC" +
+            " LIMIT ? OFFSET ?";
+
+    private static final String SIMILAR_COUNT_SQL = "SELECT count(*) " + SIMILAR_MATCH_SQL;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 保证Hibernate建表完成后再补齐全文检索的表结构
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${app.search.database.mode:like}")
+    private String mode;
+
+    private volatile boolean available;
+
+    @PostConstruct
+    public void init() {
+        if (!MODE_FULLTEXT.equalsIgnoreCase(mode)) {
+            return;
+        }
+        try {
+            SCHEMA_SQL.forEach(jdbcTemplate::execute);
+            available = true;
+            log.info("数据库搜索使用PostgreSQL全文检索");
+        } catch (DataAccessException e) {
+            log.warn("全文检索表结构初始化失败，数据库搜索退回LIKE查询: {}", e.getMessage());
+        }
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 按相关度分页搜索在售商品，全文检索无结果时按词相似度搜索
+     */
+    public ProductSearchIndex.SearchResult search(String keyword, long offset, int limit) {
+        String query = keyword.strip();
+        long total = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, query);
+        if (total > 0) {
+            return new ProductSearchIndex.SearchResult(total,
+                    jdbcTemplate.queryForList(SEARCH_SQL, Long.class, query, limit, offset));
+        }
+
+        total = jdbcTemplate.queryForObject(SIMILAR_COUNT_SQL, Long.class, query, query);
+        if (total == 0) {
+            return new ProductSearchIndex.SearchResult(0, List.of());
+        }
+        return new ProductSearchIndex.SearchResult(total,
+                jdbcTemplate.queryForList(SIMILAR_SEARCH_SQL, Long.class, query, query, query, query, limit, offset));
+    }
+}
@@ -0,0 +1,49 @@
+package com.aicommerce.search;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品列表的组合筛选条件
+ *
+ * 空白字符串统一视为未设置，价格区间允许只给出一端
+ */
+public class ProductQuery {
+
+    private final Long categoryId;
+    private final String keyword;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final String brand;
+
+    public ProductQuery(Long categoryId, String keyword, BigDecimal minPrice, BigDecimal maxPrice, String brand) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("最低价格不能高于最高价格");
+        }
+        this.categoryId = categoryId;
+        this.keyword = normalize(keyword);
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.brand = normalize(brand);
+    }
+
+    public boolean hasKeyword() {
+        return keyword != null;
+    }
+
+    /**
+     * 是否有关键词以外的筛选条件
+     */
+    public boolean hasAttributeFilters() {
+        return categoryId != null || minPrice != null || maxPrice != null || brand != null;
+    }
+
+    public Long getCategoryId() { return categoryId; }
+    public String getKeyword() { return keyword; }
+    public BigDecimal getMinPrice() { return minPrice; }
+    public BigDecimal getMaxPrice() { return maxPrice; }
+    public String getBrand() { return brand; }
+
+    private static String normalize(String value) {
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
+    }
+}
@@ -0,0 +1,562 @@
+package com.aicommerce.search;
+
+import com.aicommerce.datasource.DataSourceRouting;
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * 商品内存倒排索引
+ * 
+ * 心理过程：
+ * 1. 对名称、描述、品牌、标签分词建立倒排表，替代LIKE '%kw%'全表扫描
+ * 2. 使用BM25F打分，名称和品牌命中权重更高
+ * 3. 词典使用有序TreeMap，查询词同时做前缀扩展，支持边输边搜
+ * 4. 文档删除只打墓碑标记，墓碑过多时整体压缩重编号
+ * 5. 商品增删改在事务提交后增量更新索引，启动时全量构建
+ * 6. 构建期间到达的增量更新比构建读到的数据新，记下这些商品，构建时跳过它们，不用旧数据覆盖
+ * 7. 其他节点修改商品后经商品缓存失效频道通知，本节点从主库重新读取该商品更新索引，已删除或下架的移出
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BRAND_WEIGHT = 2.0f;
+    private static final float TAG_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final float PREFIX_PENALTY = 0.6f;
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+    private static final int REFRESH_LOCK_STRIPES = 64;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${app.search.index.enabled:true}")
+    private boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 以下状态均由lock保护
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<Long, Integer> docByProduct = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] productByDoc = new long[1024];
+    private float[] docLength = new float[1024];
+    private String[][] docTerms = new String[1024][];
+    private int maxDoc;
+    private int liveDocs;
+    private int deletedDocs;
+    private double totalLength;
+
+    private volatile boolean ready;
+
+    // 构建期间被增量更新过的商品，不在构建时为null，由lock保护
+    private Set<Long> changedDuringRebuild;
+
+    // 同一商品的远程刷新串行执行，先读到旧行的刷新不会在后读到新行的刷新之后才写入索引
+    private final Object[] refreshLocks = new Object[REFRESH_LOCK_STRIPES];
+
+    {
+        Arrays.setAll(refreshLocks, i -> new Object());
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        ready = false;
+        lock.writeLock().lock();
+        try {
+            clear();
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            load();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        ready = true;
+        log.info("商品搜索索引构建完成，共 {} 个商品，{} 个词项", liveDocs, postings.size());
+    }
+
+    private void load() {
+        int pageNumber = 0;
+        Page<Product> page;
+        do {
+            page = productRepository.findByIsActiveTrue(PageRequest.of(pageNumber++, REBUILD_PAGE_SIZE, Sort.by("id")));
+            List<Document> documents = new ArrayList<>(page.getNumberOfElements());
+            for (Product product : page.getContent()) {
+                documents.add(analyze(product));
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (Document document : documents) {
+                    if (changedDuringRebuild.contains(document.productId)) {
+                        continue;
+                    }
+                    removeDocument(document.productId);
+                    addDocument(document);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (page.hasNext());
+    }
+
+    /**
+     * 在当前事务提交后更新索引，事务回滚时索引保持不变
+     */
+    public void indexAfterCommit(Product product) {
+        runAfterCommit(() -> index(product));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        runAfterCommit(() -> remove(productId));
+    }
+
+    /**
+     * 其他节点修改了商品：从主库重新读取，存在且上架时重新索引，否则移出索引
+     */
+    public void onRemoteChange(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        synchronized (refreshLocks[Math.floorMod(productId.hashCode(), REFRESH_LOCK_STRIPES)]) {
+            Optional<Product> product = DataSourceRouting.usePrimary(() -> productRepository.findById(productId));
+            if (product.isPresent()) {
+                index(product.get());
+            } else {
+                remove(productId);
+            }
+        }
+    }
+
+    public void index(Product product) {
+        if (!enabled || product == null || product.getId() == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(product.getIsActive())) {
+            remove(product.getId());
+            return;
+        }
+
+        Document document = analyze(product);
+        lock.writeLock().lock();
+        try {
+            markChanged(document.productId);
+            removeDocument(document.productId);
+            addDocument(document);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markChanged(productId);
+            removeDocument(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按BM25相关度检索，返回命中总数和[offset, offset + limit)区间的商品ID
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        return search(query, offset, limit, null);
+    }
+
+    /**
+     * 带过滤条件的检索，filter不为null时只保留其接受的商品，命中总数也按过滤后计算
+     */
+    public SearchResult search(String query, int offset, int limit, LongPredicate filter) {
+        List<String> tokens = SearchTokenizer.tokenizeQuery(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return SearchResult.EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return SearchResult.EMPTY;
+            }
+            return topHits(score(tokens), offset, limit, filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 返回命中关键词的全部商品ID（无序），供分面计数使用
+     */
+    public long[] matchingProductIds(String query) {
+        List<String> tokens = SearchTokenizer.tokenizeQuery(query);
+        if (tokens.isEmpty()) {
+            return new long[0];
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return new long[0];
+            }
+            Map<Integer, float[]> scores = score(tokens);
+            long[] productIds = new long[scores.size()];
+            int i = 0;
+            for (int doc : scores.keySet()) {
+                productIds[i++] = productByDoc[doc];
+            }
+            return productIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 调用方需持有读锁
+    private Map<Integer, float[]> score(List<String> tokens) {
+        float averageLength = (float) (totalLength / liveDocs);
+        Map<Integer, float[]> scores = new HashMap<>();
+
+        for (String token : new LinkedHashSet<>(tokens)) {
+            PostingList exact = postings.get(token);
+            if (exact != null) {
+                accumulate(exact, 1.0f, averageLength, scores);
+            }
+
+            int expansions = 0;
+            for (Map.Entry<String, PostingList> entry :
+                    postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                if (expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                accumulate(entry.getValue(), PREFIX_PENALTY, averageLength, scores);
+            }
+        }
+        return scores;
+    }
+
+    private void accumulate(PostingList list, float boost, float averageLength, Map<Integer, float[]> scores) {
+        if (list.live == 0) {
+            return;
+        }
+        double idf = Math.log(1.0 + (liveDocs - list.live + 0.5) / (list.live + 0.5));
+        for (int i = 0; i < list.size; i++) {
+            int doc = list.docs[i];
+            if (deleted.get(doc)) {
+                continue;
+            }
+            float tf = list.freqs[i];
+            float norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * docLength[doc] / averageLength));
+            scores.computeIfAbsent(doc, d -> new float[1])[0] += (float) (boost * idf * norm);
+        }
+    }
+
+    private SearchResult topHits(Map<Integer, float[]> scores, int offset, int limit, LongPredicate filter) {
+        int wanted = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+
+        // 小顶堆只保留前offset + limit个结果，同分时ID大的（更新的商品）优先
+        PriorityQueue<Hit> heap = new PriorityQueue<>(Math.min(wanted, scores.size()) + 1);
+        int total = 0;
+        for (Map.Entry<Integer, float[]> entry : scores.entrySet()) {
+            long productId = productByDoc[entry.getKey()];
+            if (filter != null && !filter.test(productId)) {
+                continue;
+            }
+            total++;
+            heap.offer(new Hit(productId, entry.getValue()[0]));
+            if (heap.size() > wanted) {
+                heap.poll();
+            }
+        }
+        if (heap.size() <= offset) {
+            return new SearchResult(total, Collections.emptyList());
+        }
+
+        long[] ranked = new long[heap.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = heap.poll().productId;
+        }
+
+        List<Long> productIds = new ArrayList<>(ranked.length - offset);
+        for (int i = offset; i < ranked.length; i++) {
+            productIds.add(ranked[i]);
+        }
+        return new SearchResult(total, productIds);
+    }
+
+    // 调用方需持有写锁
+    private void markChanged(long productId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(productId);
+        }
+    }
+
+    private void addDocument(Document document) {
+        ensureCapacity(maxDoc + 1);
+        int doc = maxDoc++;
+        productByDoc[doc] = document.productId;
+        docLength[doc] = document.length;
+        docTerms[doc] = document.terms;
+        for (int i = 0; i < document.terms.length; i++) {
+            postings.computeIfAbsent(document.terms[i], t -> new PostingList()).add(doc, document.freqs[i]);
+        }
+        docByProduct.put(document.productId, doc);
+        liveDocs++;
+        totalLength += document.length;
+    }
+
+    private void removeDocument(long productId) {
+        Integer doc = docByProduct.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        deleted.set(doc);
+        deletedDocs++;
+        liveDocs--;
+        totalLength -= docLength[doc];
+        for (String term : docTerms[doc]) {
+            PostingList list = postings.get(term);
+            if (list != null && --list.live == 0) {
+                postings.remove(term);
+            }
+        }
+        docTerms[doc] = null;
+    }
+
+    private void compactIfNeeded() {
+        if (deletedDocs >= MIN_DELETED_FOR_COMPACTION && deletedDocs * 4 > maxDoc) {
+            compact();
+        }
+    }
+
+    /**
+     * 清理墓碑文档并重新编号，保持倒排表紧凑
+     */
+    private void compact() {
+        int[] remap = new int[maxDoc];
+        int next = 0;
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+            } else {
+                remap[doc] = next;
+                productByDoc[next] = productByDoc[doc];
+                docLength[next] = docLength[doc];
+                docTerms[next] = docTerms[doc];
+                docByProduct.put(productByDoc[next], next);
+                next++;
+            }
+        }
+        Arrays.fill(docTerms, next, maxDoc, null);
+
+        for (PostingList list : postings.values()) {
+            int size = 0;
+            for (int i = 0; i < list.size; i++) {
+                int mapped = remap[list.docs[i]];
+                if (mapped >= 0) {
+                    list.docs[size] = mapped;
+                    list.freqs[size] = list.freqs[i];
+                    size++;
+                }
+            }
+            list.size = size;
+        }
+
+        maxDoc = next;
+        deletedDocs = 0;
+        deleted.clear();
+    }
+
+    private void clear() {
+        postings.clear();
+        docByProduct.clear();
+        deleted.clear();
+        Arrays.fill(docTerms, null);
+        maxDoc = 0;
+        liveDocs = 0;
+        deletedDocs = 0;
+        totalLength = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= productByDoc.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, productByDoc.length * 2);
+        productByDoc = Arrays.copyOf(productByDoc, newCapacity);
+        docLength = Arrays.copyOf(docLength, newCapacity);
+        docTerms = Arrays.copyOf(docTerms, newCapacity);
+    }
+
+    private static Document analyze(Product product) {
+        Map<String, float[]> weights = new HashMap<>();
+        float length = 0;
+        length += addField(product.getName(), NAME_WEIGHT, weights);
+        length += addField(product.getBrand(), BRAND_WEIGHT, weights);
+        length += addField(product.getTags(), TAG_WEIGHT, weights);
+        length += addField(product.getDescription(), DESCRIPTION_WEIGHT, weights);
+
+        String[] terms = new String[weights.size()];
+        float[] freqs = new float[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, float[]> entry : weights.entrySet()) {
+            terms[i] = entry.getKey();
+            freqs[i] = entry.getValue()[0];
+            i++;
+        }
+        return new Document(product.getId(), terms, freqs, length);
+    }
+
+    private static float addField(String text, float weight, Map<String, float[]> weights) {
+        List<String> tokens = SearchTokenizer.tokenize(text);
+        for (String token : tokens) {
+            weights.computeIfAbsent(token, t -> new float[1])[0] += weight;
+        }
+        return tokens.size() * weight;
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class PostingList {
+        private int[] docs = new int[4];
+        private float[] freqs = new float[4];
+        private int size;
+        private int live;
+
+        private void add(int doc, float freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+            live++;
+        }
+    }
+
+    private static final class Hit implements Comparable<Hit> {
+        private final long productId;
+        private final float score;
+
+        private Hit(long productId, float score) {
+            this.productId = productId;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Hit other) {
+            int cmp = Float.compare(score, other.score);
+            return cmp != 0 ? cmp : Long.compare(productId, other.productId);
+        }
+    }
+
+    private static final class Document {
+        private final long productId;
+        private final String[] terms;
+        private final float[] freqs;
+        private final float length;
+
+        private Document(long productId, String[] terms, float[] freqs, float length) {
+            this.productId = productId;
+            this.terms = terms;
+            this.freqs = freqs;
+            this.length = length;
+        }
+    }
+
+    // 检索结果DTO
+    public static class SearchResult {
+        static final SearchResult EMPTY = new SearchResult(0, Collections.emptyList());
+
+        private final long total;
+        private final List<Long> productIds;
+
+        public SearchResult(long total, List<Long> productIds) {
+            this.total = total;
+            this.productIds = productIds;
+        }
+
+        public long getTotal() { return total; }
+        public List<Long> getProductIds() { return productIds; }
+    }
+}
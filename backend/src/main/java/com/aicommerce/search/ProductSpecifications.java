@@ -0,0 +1,84 @@
+package com.aicommerce.search;
+
+import com.aicommerce.cache.CategoryNode;
+import com.aicommerce.cache.CategoryTree;
+import com.aicommerce.model.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品组合筛选的JPA Specification
+ *
+ * 心理过程：
+ * 1. 每个筛选条件是一个独立的谓词，按需用AND组合，不再只能单选一个条件
+ * 2. 关键词谓词是LIKE，只在倒排索引不可用时才会用到
+ * 3. 分类条件包含子孙分类，借助分类树的嵌套区间只需一个BETWEEN
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {}
+
+    public static Specification<Product> matching(ProductQuery query, CategoryTree categoryTree) {
+        Specification<Product> spec = isActive();
+        if (query.getCategoryId() != null) {
+            spec = spec.and(inCategoryTree(query.getCategoryId(), categoryTree));
+        }
+        if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+            spec = spec.and(priceBetween(query.getMinPrice(), query.getMaxPrice()));
+        }
+        if (query.getBrand() != null) {
+            spec = spec.and(hasBrand(query.getBrand()));
+        }
+        if (query.hasKeyword()) {
+            spec = spec.and(keywordLike(query.getKeyword()));
+        }
+        return spec;
+    }
+
+    public static Specification<Product> isActive() {
+        return (root, query, cb) -> cb.isTrue(root.get("isActive"));
+    }
+
+    public static Specification<Product> inCategory(Long categoryId) {
+        return (root, query, cb) -> cb.equal(root.get("category").get("id"), categoryId);
+    }
+
+    /**
+     * 分类及其全部子孙分类下的商品；快照中还没有该分类时只匹配分类本身
+     */
+    public static Specification<Product> inCategoryTree(Long categoryId, CategoryTree categoryTree) {
+        CategoryNode node = categoryTree.find(categoryId).orElse(null);
+        if (node == null) {
+            return inCategory(categoryId);
+        }
+        int left = node.getLeft();
+        int right = node.getRight();
+        return (root, query, cb) -> cb.between(root.get("category").get("treeLeft"), left, right);
+    }
+
+    public static Specification<Product> priceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+        return (root, query, cb) -> {
+            if (minPrice != null && maxPrice != null) {
+                return cb.between(root.get("price"), minPrice, maxPrice);
+            }
+            return minPrice != null
+                    ? cb.greaterThanOrEqualTo(root.get("price"), minPrice)
+                    : cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+        };
+    }
+
+    public static Specification<Product> hasBrand(String brand) {
+        return (root, query, cb) -> cb.equal(root.get("brand"), brand);
+    }
+
+    public static Specification<Product> keywordLike(String keyword) {
+        return (root, query, cb) -> {
+            String pattern = "%" + keyword.toLowerCase() + "%";
+            return cb.or(
+                    cb.like(cb.lower(root.get("name")), pattern),
+                    cb.like(cb.lower(root.get("description")), pattern),
+                    cb.like(cb.lower(root.get("brand")), pattern));
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package com.aicommerce.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 搜索分词器
+ * 
+ * 心理过程：
+ * 1. 拉丁字母和数字按连续字符切分并统一小写
+ * 2. 中日韩文字没有空格分隔，连续文字按二元组（bigram）切分
+ * 3. 建索引时每个汉字同时保留为一元词，单字查询"机"既能命中"机器"也能命中"手机"
+ * 4. 查询时多字只用二元组，不用一元词，否则"手机"会匹配到所有含"机"的商品；单字查询就是一元词
+ * 5. JSON标签字段直接按文本切分，引号和括号自然被过滤
+ */
+public final class SearchTokenizer {
+
+    private SearchTokenizer() {}
+
+    /**
+     * 建索引用的分词，中日韩文字输出二元组和一元词
+     */
+    public static List<String> tokenize(String text) {
+        return tokenize(text, true);
+    }
+
+    /**
+     * 查询用的分词，中日韩文字只输出二元组，单字时输出一元词
+     */
+    public static List<String> tokenizeQuery(String text) {
+        return tokenize(text, false);
+    }
+
+    private static List<String> tokenize(String text, boolean unigrams) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                emitCjkRun(text, start, i, unigrams, tokens);
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(text.charAt(i)) && !isCjk(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static void emitCjkRun(String text, int start, int end, boolean unigrams, List<String> tokens) {
+        if (end - start == 1) {
+            tokens.add(text.substring(start, end));
+            return;
+        }
+        for (int j = start; j < end - 1; j++) {
+            tokens.add(text.substring(j, j + 2));
+        }
+        if (unigrams) {
+            for (int j = start; j < end; j++) {
+                tokens.add(text.substring(j, j + 1));
+            }
+        }
+    }
+
+    static boolean isCjk(char c) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES;
+    }
+}
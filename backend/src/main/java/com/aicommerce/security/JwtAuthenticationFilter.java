@@ -5,7 +5,9 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -23,16 +25,21 @@ import java.io.IOException;
  * 2. 从请求头提取JWT token
  * 3. 验证token并设置SecurityContext
  * 4. 支持Bearer token格式
+ * 5. 验签结果走缓存，每个令牌只做一次签名校验
+ * 6. 令牌内嵌用户ID和角色时直接构造认证主体，不查数据库
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private JwtVerificationCache jwtVerificationCache;
 
     @Autowired 
     private UserDetailsService userDetailsService;
 
+    @Value("${app.jwt.embedded-authorities:true}")
+    private boolean embeddedAuthorities;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                   HttpServletResponse response, 
@@ -40,33 +47,41 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String requestTokenHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwtToken = null;
-
         // JWT Token格式为 "Bearer token"
-        if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-            jwtToken = requestTokenHeader.substring(7);
-            try {
-                username = jwtUtil.extractUsername(jwtToken);
-            } catch (Exception e) {
-                logger.warn("无法获取JWT Token用户名: " + e.getMessage());
-            }
-        }
-
-        // 验证token并设置认证信息
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwtToken = requestTokenHeader.substring(7);
+            VerifiedToken verifiedToken = jwtVerificationCache.verify(jwtToken);
 
-            // 验证token是否有效
-            if (jwtUtil.validateToken(jwtToken, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = 
-                    new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+            if (verifiedToken != null) {
+                UserDetails userDetails = resolveUser(verifiedToken);
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authToken = 
+                        new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities());
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                }
+            } else {
+                logger.debug("JWT Token无效、已过期或已吊销");
             }
         }
         
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private UserDetails resolveUser(VerifiedToken verifiedToken) {
+        if (embeddedAuthorities && verifiedToken.hasEmbeddedIdentity()) {
+            return verifiedToken.toPrincipal();
+        }
+
+        // 旧令牌或关闭内嵌模式时回退到查库
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(verifiedToken.getUsername());
+            return userDetails.isEnabled() ? userDetails : null;
+        } catch (AuthenticationException e) {
+            logger.warn("无法加载JWT Token对应的用户: " + e.getMessage());
+            return null;
+        }
+    }
+}
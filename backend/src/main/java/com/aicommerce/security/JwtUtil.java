@@ -1,7 +1,9 @@
 package com.aicommerce.security;
 
+import com.aicommerce.model.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -20,10 +22,16 @@ import java.util.function.Function;
  * 2. 支持token生成、验证、刷新
  * 3. 使用强密钥确保安全性
  * 4. 提供丰富的token信息提取方法
+ * 5. 签名密钥和解析器启动时构建一次，避免每次验签重建HMAC密钥
+ * 6. 访问令牌内嵌用户ID和角色，过滤器可不查库完成认证
  */
 @Component
 public class JwtUtil {
 
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String TYPE_CLAIM = "type";
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
@@ -33,8 +41,32 @@ public class JwtUtil {
     @Value("${app.jwt.refresh-expiration}")
     private long refreshExpiration;
 
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        jwtParser = Jwts.parser().verifyWith(signingKey).build();
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey;
+    }
+
+    /**
+     * 验签并解析令牌，签名错误或已过期时抛出JwtException
+     */
+    public VerifiedToken verify(String token) {
+        Claims claims = extractAllClaims(token);
+        return new VerifiedToken(
+            claims.getSubject(),
+            claims.get(USER_ID_CLAIM, Long.class),
+            claims.get(ROLE_CLAIM, String.class),
+            claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L,
+            claims.getExpiration().getTime(),
+            "refresh".equals(claims.get(TYPE_CLAIM))
+        );
     }
 
     public String extractUsername(String token) {
@@ -51,11 +83,7 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return jwtParser.parseSignedClaims(token).getPayload();
     }
 
     private Boolean isTokenExpired(String token) {
@@ -64,12 +92,16 @@ public class JwtUtil {
 
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user) {
+            claims.put(USER_ID_CLAIM, user.getId());
+            claims.put(ROLE_CLAIM, user.getRole().name());
+        }
         return createToken(claims, userDetails.getUsername(), jwtExpiration);
     }
 
     public String generateRefreshToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("type", "refresh");
+        claims.put(TYPE_CLAIM, "refresh");
         return createToken(claims, userDetails.getUsername(), refreshExpiration);
     }
 
@@ -90,10 +122,7 @@ public class JwtUtil {
 
     public Boolean validateToken(String token) {
         try {
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token);
+            jwtParser.parseSignedClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
@@ -103,7 +132,7 @@ public class JwtUtil {
     public Boolean isRefreshToken(String token) {
         try {
             Claims claims = extractAllClaims(token);
-            return "refresh".equals(claims.get("type"));
+            return "refresh".equals(claims.get(TYPE_CLAIM));
         } catch (Exception e) {
             return false;
         }
@@ -0,0 +1,113 @@
+package com.aicommerce.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已验签令牌缓存
+ * 
+ * 心理过程：
+ * 1. 同一令牌在有效期内会被反复使用，验签结果按令牌的SHA-256摘要缓存，内存中不保留令牌原文
+ * 2. 每个条目的存活时间不超过令牌本身的剩余有效期
+ * 3. 只缓存验签成功的令牌，伪造令牌无法挤占缓存
+ * 4. 命中缓存后仍检查吊销登记，用户被禁用立即生效
+ */
+@Component
+public class JwtVerificationCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenRevocationRegistry revocationRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.jwt.verification-cache.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${app.jwt.verification-cache.max-ttl:10m}")
+    private Duration maxTtl;
+
+    private Cache<ByteBuffer, VerifiedToken> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<ByteBuffer, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer key, VerifiedToken token, long currentTime) {
+                        long remaining = token.getExpiresAtMillis() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(remaining, maxTtl.toMillis())));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer key, VerifiedToken token, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, token, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer key, VerifiedToken token, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified");
+    }
+
+    /**
+     * 返回验签通过且未过期、未吊销的令牌信息，否则返回null
+     */
+    public VerifiedToken verify(String token) {
+        ByteBuffer key = digest(token);
+        long now = System.currentTimeMillis();
+
+        VerifiedToken verified = cache.getIfPresent(key);
+        if (verified == null) {
+            try {
+                verified = jwtUtil.verify(token);
+            } catch (JwtException | IllegalArgumentException e) {
+                return null;
+            }
+            cache.put(key, verified);
+        }
+
+        if (verified.isExpired(now) || revocationRegistry.isRevoked(verified)) {
+            return null;
+        }
+        return verified;
+    }
+
+    private static ByteBuffer digest(String token) {
+        MessageDigest digest = SHA_256.get();
+        return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+}
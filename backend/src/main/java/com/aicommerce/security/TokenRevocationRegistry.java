@@ -0,0 +1,139 @@
+package com.aicommerce.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 令牌吊销登记表
+ * 
+ * 心理过程：
+ * 1. 认证不再查库后，用户被禁用需要主动通知各节点
+ * 2. 记录用户名和吊销时间，此前签发的令牌一律拒绝
+ * 3. 吊销记录写入Redis哈希并通过发布订阅同步到其他节点，启动时全量加载
+ * 4. 超过刷新令牌有效期的记录不再有意义，读取时顺带清理
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationRegistry.class);
+
+    public static final String REVOCATION_CHANNEL = "aicommerce:auth:revocation";
+
+    private static final String REVOKED_KEY = "aicommerce:auth:revoked";
+    private static final String REVOKE = "R";
+    private static final String RESTORE = "A";
+    private static final String SEPARATOR = "|";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.jwt.revocation-sync-enabled:true}")
+    private boolean syncEnabled;
+
+    @Value("${app.jwt.refresh-expiration}")
+    private long refreshExpiration;
+
+    private final Map<String, Long> revokedAt = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!syncEnabled) {
+            return;
+        }
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(REVOKED_KEY);
+            entries.forEach((username, timestamp) ->
+                revokedAt.merge(username.toString(), Long.valueOf(timestamp.toString()), Math::max));
+        } catch (RuntimeException e) {
+            log.warn("加载令牌吊销记录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 吊销该用户此前签发的所有令牌，事务提交后生效
+     */
+    public void revokeAfterCommit(String username) {
+        afterCommit(() -> {
+            long now = System.currentTimeMillis();
+            revokedAt.put(username, now);
+            publish(REVOKE, username, now);
+        });
+    }
+
+    public void restoreAfterCommit(String username) {
+        afterCommit(() -> {
+            revokedAt.remove(username);
+            publish(RESTORE, username, 0L);
+        });
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        Long revokedTime = revokedAt.get(token.getUsername());
+        if (revokedTime == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - revokedTime > refreshExpiration) {
+            revokedAt.remove(token.getUsername(), revokedTime);
+            return false;
+        }
+        // JWT签发时间精确到秒，同一秒内签发的令牌也视为已吊销
+        return token.getIssuedAtMillis() <= revokedTime;
+    }
+
+    /**
+     * 处理其他节点发布的吊销变更
+     */
+    public void onRevocationMessage(String message) {
+        String[] parts = message.split("\\|", 3);
+        if (parts.length != 3) {
+            log.warn("忽略无法解析的令牌吊销消息: {}", message);
+            return;
+        }
+        // 消息格式：动作|时间戳|用户名，用户名放最后以免其中含有分隔符
+        if (REVOKE.equals(parts[0])) {
+            revokedAt.merge(parts[2], Long.valueOf(parts[1]), Math::max);
+        } else if (RESTORE.equals(parts[0])) {
+            revokedAt.remove(parts[2]);
+        }
+    }
+
+    private void publish(String action, String username, long timestamp) {
+        if (!syncEnabled) {
+            return;
+        }
+        try {
+            if (REVOKE.equals(action)) {
+                redisTemplate.opsForHash().put(REVOKED_KEY, username, String.valueOf(timestamp));
+            } else {
+                redisTemplate.opsForHash().delete(REVOKED_KEY, username);
+            }
+            redisTemplate.convertAndSend(REVOCATION_CHANNEL, action + SEPARATOR + timestamp + SEPARATOR + username);
+        } catch (RuntimeException e) {
+            log.warn("同步令牌吊销记录失败, username={}: {}", username, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
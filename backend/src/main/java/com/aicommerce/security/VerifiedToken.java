@@ -0,0 +1,57 @@
+package com.aicommerce.security;
+
+import com.aicommerce.model.User;
+
+/**
+ * 已验签的JWT令牌信息
+ * 
+ * 心理过程：
+ * 1. 验签成功后只保留认证需要的字段，缓存命中时无需再解析令牌
+ * 2. 令牌内嵌了用户ID和角色时，可以直接构造认证主体，不必查库
+ */
+public class VerifiedToken {
+
+    private final String username;
+    private final Long userId;
+    private final String role;
+    private final long issuedAtMillis;
+    private final long expiresAtMillis;
+    private final boolean refreshToken;
+
+    public VerifiedToken(String username, Long userId, String role,
+                         long issuedAtMillis, long expiresAtMillis, boolean refreshToken) {
+        this.username = username;
+        this.userId = userId;
+        this.role = role;
+        this.issuedAtMillis = issuedAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+        this.refreshToken = refreshToken;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+
+    public boolean hasEmbeddedIdentity() {
+        return userId != null && role != null;
+    }
+
+    /**
+     * 由令牌声明构造轻量用户对象，只包含ID、用户名和角色，不是持久化实体
+     */
+    public User toPrincipal() {
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(username);
+        user.setRole(User.Role.valueOf(role));
+        user.setIsActive(true);
+        return user;
+    }
+
+    public String getUsername() { return username; }
+    public Long getUserId() { return userId; }
+    public String getRole() { return role; }
+    public long getIssuedAtMillis() { return issuedAtMillis; }
+    public long getExpiresAtMillis() { return expiresAtMillis; }
+    public boolean isRefreshToken() { return refreshToken; }
+}
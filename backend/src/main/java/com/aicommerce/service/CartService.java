@@ -1,18 +1,14 @@
 package com.aicommerce.service;
 
+import com.aicommerce.cart.CartContents;
+import com.aicommerce.cart.CartStore;
+import com.aicommerce.cart.CartTotals;
 import com.aicommerce.model.CartItem;
-import com.aicommerce.model.Product;
-import com.aicommerce.model.User;
-import com.aicommerce.repository.CartItemRepository;
-import com.aicommerce.repository.ProductRepository;
-import com.aicommerce.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * 购物车服务类
@@ -22,114 +18,49 @@ import java.util.Optional;
  * 2. 支持商品添加、删除、数量修改
  * 3. 自动处理库存检查和价格计算
  * 4. 提供购物车统计信息
+ * 5. 读写交给CartStore，默认由Redis承载热购物车并异步落库，本类不再开启数据库事务
  */
 @Service
-@Transactional
 public class CartService {
 
     @Autowired
-    private CartItemRepository cartItemRepository;
-
-    @Autowired
-    private ProductRepository productRepository;
-
-    @Autowired
-    private UserRepository userRepository;
+    private CartStore cartStore;
 
     public List<CartItem> getCartItems(Long userId) {
-        return cartItemRepository.findByUserIdOrderByCreatedAtDesc(userId);
+        return cartStore.getCartItems(userId);
     }
 
     public CartItem addToCart(Long userId, Long productId, Integer quantity, String selectedAttributes) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("用户不存在"));
-        
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("商品不存在"));
-
-        if (!product.isInStock()) {
-            throw new IllegalArgumentException("商品已售罄");
-        }
-
-        if (product.getStockQuantity() < quantity) {
-            throw new IllegalArgumentException("库存不足，当前库存：" + product.getStockQuantity());
-        }
-
-        // 检查是否已存在相同商品和属性的购物车项
-        Optional<CartItem> existingItem = selectedAttributes != null ?
-                cartItemRepository.findByUserIdAndProductIdAndAttributes(userId, productId, selectedAttributes) :
-                cartItemRepository.findByUserIdAndProductId(userId, productId);
-
-        if (existingItem.isPresent()) {
-            // 更新数量
-            CartItem cartItem = existingItem.get();
-            int newQuantity = cartItem.getQuantity() + quantity;
-            
-            if (product.getStockQuantity() < newQuantity) {
-                throw new IllegalArgumentException("库存不足，最多可添加：" + 
-                    (product.getStockQuantity() - cartItem.getQuantity()) + "件");
-            }
-            
-            cartItem.setQuantity(newQuantity);
-            return cartItemRepository.save(cartItem);
-        } else {
-            // 创建新的购物车项
-            CartItem cartItem = new CartItem(user, product, quantity);
-            cartItem.setSelectedAttributes(selectedAttributes);
-            return cartItemRepository.save(cartItem);
-        }
+        return cartStore.addToCart(userId, productId, quantity, selectedAttributes);
     }
 
     public CartItem updateCartItemQuantity(Long userId, Long cartItemId, Integer quantity) {
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new IllegalArgumentException("购物车项不存在"));
-
-        if (!cartItem.getUser().getId().equals(userId)) {
-            throw new IllegalArgumentException("无权限操作此购物车项");
-        }
-
-        if (quantity <= 0) {
-            cartItemRepository.delete(cartItem);
-            return null;
-        }
-
-        Product product = cartItem.getProduct();
-        if (product.getStockQuantity() < quantity) {
-            throw new IllegalArgumentException("库存不足，当前库存：" + product.getStockQuantity());
-        }
-
-        cartItem.setQuantity(quantity);
-        return cartItemRepository.save(cartItem);
+        return cartStore.updateCartItemQuantity(userId, cartItemId, quantity);
     }
 
     public void removeFromCart(Long userId, Long cartItemId) {
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new IllegalArgumentException("购物车项不存在"));
-
-        if (!cartItem.getUser().getId().equals(userId)) {
-            throw new IllegalArgumentException("无权限操作此购物车项");
-        }
-
-        cartItemRepository.delete(cartItem);
+        cartStore.removeFromCart(userId, cartItemId);
     }
 
     public void clearCart(Long userId) {
-        cartItemRepository.deleteByUserId(userId);
+        cartStore.clearCart(userId);
     }
 
+    /**
+     * 购物车行加汇总，两者来自存储的同一次读取
+     */
     public CartSummary getCartSummary(Long userId) {
-        List<CartItem> items = getCartItems(userId);
-        
-        BigDecimal totalAmount = items.stream()
-                .map(CartItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        int totalItems = items.size();
-        int totalQuantity = items.stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+        CartContents cart = cartStore.getCart(userId);
+        CartTotals totals = cart.getTotals();
+        return new CartSummary(totals.getTotalAmount(), totals.getItemCount(), totals.getTotalQuantity(),
+                cart.getItems());
+    }
 
-        return new CartSummary(totalAmount, totalItems, totalQuantity, items);
+    /**
+     * 只读汇总，不加载购物车行
+     */
+    public CartTotals getCartTotals(Long userId) {
+        return cartStore.getCartTotals(userId);
     }
 
     public boolean validateCartItems(Long userId) {
@@ -1,5 +1,8 @@
 package com.aicommerce.service;
 
+import com.aicommerce.cache.CatalogVersions;
+import com.aicommerce.cache.CategoryNode;
+import com.aicommerce.cache.CategoryTreeCache;
 import com.aicommerce.model.Category;
 import com.aicommerce.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +14,10 @@ import java.util.Optional;
 
 /**
  * 分类服务类
+ * 
+ * 心理过程：
+ * 1. 分类树的读取走内存快照，不访问数据库
+ * 2. 增删改后在同一事务内重建快照，提交后生效
  */
 @Service
 @Transactional
@@ -19,24 +26,32 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Transactional(readOnly = true)
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
 
-    public List<Category> getRootCategories() {
-        return categoryRepository.findByParentIsNull();
-    }
-
-    public List<Category> getRootCategoriesWithChildren() {
-        return categoryRepository.findRootCategoriesWithChildren();
+    @Transactional(readOnly = true)
+    public List<CategoryNode> getCategoryTree() {
+        return categoryTreeCache.current().getRoots();
     }
 
-    public List<Category> getSubCategories(Long parentId) {
-        return categoryRepository.findByParentId(parentId);
+    @Transactional(readOnly = true)
+    public List<CategoryNode> getSubCategories(Long parentId) {
+        return categoryTreeCache.current().find(parentId)
+                .map(CategoryNode::getChildren)
+                .orElse(List.of());
     }
 
-    public Optional<Category> findById(Long id) {
-        return categoryRepository.findById(id);
+    @Transactional(readOnly = true)
+    public Optional<CategoryNode> findById(Long id) {
+        return categoryTreeCache.current().find(id);
     }
 
     public Category createCategory(Category category) {
@@ -48,7 +63,10 @@ public class CategoryService {
             throw new IllegalArgumentException("分类名称已存在");
         }
         
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        categoryTreeCache.refreshAfterCommit();
+        catalogVersions.bumpCategoriesAfterCommit();
+        return savedCategory;
     }
 
     public Category updateCategory(Category category) {
@@ -60,7 +78,10 @@ public class CategoryService {
             throw new IllegalArgumentException("分类名称已存在");
         }
         
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        categoryTreeCache.refreshAfterCommit();
+        catalogVersions.bumpCategoriesAfterCommit();
+        return savedCategory;
     }
 
     public void deleteCategory(Long id) {
@@ -76,5 +97,7 @@ public class CategoryService {
         }
         
         categoryRepository.delete(category);
+        categoryTreeCache.refreshAfterCommit();
+        catalogVersions.bumpCategoriesAfterCommit();
     }
 }
\ No newline at end of file
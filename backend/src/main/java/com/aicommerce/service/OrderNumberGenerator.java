@@ -0,0 +1,281 @@
+package com.aicommerce.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 订单号生成器（Snowflake风格）
+ *
+ * 心理过程：
+ * 1. 订单号 = ORD + yyyyMMddHHmmssSSS + 4位节点号 + 4位毫秒内序号，共28位
+ * 2. 时间戳和序号打包进一个AtomicLong，CAS推进，无锁且无需查库判重
+ * 3. 同一毫秒序号用尽或系统时钟回拨时，沿用上次时间戳继续递增（逻辑时钟），绝不倒退
+ * 4. 日期前缀按秒缓存，生成订单号只分配最终的字符串
+ *
+ * 5. 节点号决定订单号不重复：配置了app.order-number.node-id（0-1023）时直接使用；
+ *    否则从Redis租用一个空闲节点号，定期续约，续约发现被占用时换一个新的节点号；
+ *    租不到或租约过期且无法续约时拒绝生成订单号，不冒重复的风险
+ * 6. 只有app.order-number.lease-enabled=false（无Redis的单机环境）时才由主机名推导节点号
+ */
+@Component
+public class OrderNumberGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderNumberGenerator.class);
+
+    private static final String PREFIX = "ORD";
+    private static final String LEASE_KEY_PREFIX = "aicommerce:order-number:node:";
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int MAX_NODE_ID = 1023;
+
+    // ORD(3) + 日期时间(14) + 毫秒(3) + 节点(4) + 序号(4)
+    private static final int LENGTH = 28;
+
+    private static final RedisScript<Long> RENEW_LEASE_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.order-number.node-id:-1}")
+    private int configuredNodeId;
+
+    @Value("${app.order-number.lease-enabled:true}")
+    private boolean leaseEnabled;
+
+    @Value("${app.order-number.lease-ttl:60s}")
+    private Duration leaseTtl;
+
+    private volatile int nodeId;
+    private ZoneId zoneId = ZoneId.systemDefault();
+
+    // 租用的节点号的令牌和租约到期时间（System.nanoTime），未租用时token为null
+    private final String leaseToken = UUID.randomUUID().toString();
+    private volatile boolean leased;
+    private volatile long leaseExpiresAt;
+
+    // 高位为毫秒时间戳，低12位为毫秒内序号
+    private final AtomicLong state = new AtomicLong();
+    private final AtomicReference<SecondPrefix> secondPrefix = new AtomicReference<>(new SecondPrefix(-1, null));
+
+    public OrderNumberGenerator() {}
+
+    public OrderNumberGenerator(int nodeId, ZoneId zoneId) {
+        this.nodeId = checkNodeId(nodeId);
+        this.zoneId = zoneId;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (configuredNodeId >= 0) {
+            nodeId = checkNodeId(configuredNodeId);
+        } else if (leaseEnabled) {
+            acquireLease(deriveNodeId());
+        } else {
+            nodeId = deriveNodeId();
+            log.warn("未配置订单号节点ID且未启用Redis租用，按主机名推导为 {}，只适用于单节点部署", nodeId);
+        }
+    }
+
+    public String nextOrderNumber() {
+        if (leased && System.nanoTime() - leaseExpiresAt > 0) {
+            throw new IllegalStateException("订单号节点ID " + nodeId + " 的租约已过期，暂时无法生成订单号");
+        }
+        long next = nextState();
+        return render(next >>> SEQUENCE_BITS, (int) (next & SEQUENCE_MASK));
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 续约间隔应明显短于租约时长，偶发一两次续约失败不至于过期
+     */
+    @Scheduled(fixedDelayString = "${app.order-number.lease-renew-interval:20s}")
+    public void renewLease() {
+        if (!leased) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Long renewed = redisTemplate.execute(RENEW_LEASE_SCRIPT, List.of(leaseKey(nodeId)),
+                    leaseToken, Long.toString(leaseTtl.toMillis()));
+            if (renewed != null && renewed == 1) {
+                leaseExpiresAt = start + leaseTtl.toNanos();
+                return;
+            }
+            // 租约已丢失（Redis重启或长时间停顿），原节点号可能已被其他节点使用
+            log.warn("订单号节点ID {} 的租约已丢失，重新租用", nodeId);
+            acquireLease(nodeId + 1);
+        } catch (RuntimeException e) {
+            log.warn("订单号节点ID {} 续约失败: {}", nodeId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        if (!leased) {
+            return;
+        }
+        leased = false;
+        try {
+            redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(leaseKey(nodeId)), leaseToken);
+        } catch (RuntimeException e) {
+            log.debug("释放订单号节点ID {} 的租约失败: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * 从first开始依次尝试，租到第一个空闲的节点号；全部被占用或Redis不可用时启动失败
+     */
+    private void acquireLease(int first) {
+        for (int i = 0; i <= MAX_NODE_ID; i++) {
+            int candidate = (first + i) % (MAX_NODE_ID + 1);
+            long start = System.nanoTime();
+            Boolean acquired;
+            try {
+                acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey(candidate), leaseToken, leaseTtl);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("无法从Redis租用订单号节点ID，请配置app.order-number.node-id: "
+                        + e.getMessage(), e);
+            }
+            if (Boolean.TRUE.equals(acquired)) {
+                nodeId = candidate;
+                leaseExpiresAt = start + leaseTtl.toNanos();
+                leased = true;
+                log.info("租用订单号节点ID {}", candidate);
+                return;
+            }
+        }
+        throw new IllegalStateException("订单号节点ID已全部被占用，请检查app.order-number配置");
+    }
+
+    private static String leaseKey(int nodeId) {
+        return LEASE_KEY_PREFIX + nodeId;
+    }
+
+    private long nextState() {
+        while (true) {
+            long current = state.get();
+            long lastMillis = current >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis();
+
+            long next;
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // 同一毫秒或时钟回拨：在上次的逻辑时间上继续递增，序号用尽则借用下一毫秒
+                long sequence = (current & SEQUENCE_MASK) + 1;
+                next = sequence > SEQUENCE_MASK
+                        ? (lastMillis + 1) << SEQUENCE_BITS
+                        : (lastMillis << SEQUENCE_BITS) | sequence;
+            }
+
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private String render(long millis, int sequence) {
+        char[] chars = new char[LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+
+        long epochSecond = Math.floorDiv(millis, 1000L);
+        System.arraycopy(prefixFor(epochSecond), 0, chars, 3, 14);
+
+        int pos = 17;
+        pos = writeDigits(chars, pos, (int) Math.floorMod(millis, 1000L), 3);
+        pos = writeDigits(chars, pos, nodeId, 4);
+        writeDigits(chars, pos, sequence, 4);
+        return new String(chars);
+    }
+
+    private char[] prefixFor(long epochSecond) {
+        SecondPrefix cached = secondPrefix.get();
+        if (cached.epochSecond == epochSecond) {
+            return cached.digits;
+        }
+
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zoneId);
+        char[] digits = new char[14];
+        int pos = writeDigits(digits, 0, time.getYear(), 4);
+        pos = writeDigits(digits, pos, time.getMonthValue(), 2);
+        pos = writeDigits(digits, pos, time.getDayOfMonth(), 2);
+        pos = writeDigits(digits, pos, time.getHour(), 2);
+        pos = writeDigits(digits, pos, time.getMinute(), 2);
+        writeDigits(digits, pos, time.getSecond(), 2);
+
+        secondPrefix.set(new SecondPrefix(epochSecond, digits));
+        return digits;
+    }
+
+    private static int writeDigits(char[] target, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            target[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + width;
+    }
+
+    private static int checkNodeId(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("订单号节点ID必须在0-" + MAX_NODE_ID + "之间: " + nodeId);
+        }
+        return nodeId;
+    }
+
+    /**
+     * 由主机名和进程名推导，租用时作为起始候选，减少多个节点争抢同一个号
+     */
+    private static int deriveNodeId() {
+        String identity = ManagementFactory.getRuntimeMXBean().getName();
+        try {
+            identity = InetAddress.getLocalHost().getHostName() + "/" + identity;
+        } catch (Exception ignored) {
+            // 取不到主机名时只用进程名
+        }
+        return Math.floorMod(identity.hashCode(), MAX_NODE_ID + 1);
+    }
+
+    private static final class SecondPrefix {
+        private final long epochSecond;
+        private final char[] digits;
+
+        private SecondPrefix(long epochSecond, char[] digits) {
+            this.epochSecond = epochSecond;
+            this.digits = digits;
+        }
+    }
+}
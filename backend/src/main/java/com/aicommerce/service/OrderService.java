@@ -1,20 +1,29 @@
 package com.aicommerce.service;
 
 import com.aicommerce.model.*;
+import com.aicommerce.order.OrderItemView;
+import com.aicommerce.order.OrderView;
+import com.aicommerce.recommendation.ItemSimilarityIndex;
 import com.aicommerce.repository.OrderRepository;
 import com.aicommerce.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * 订单服务类
@@ -23,6 +32,13 @@ import java.util.Optional;
 @Transactional
 public class OrderService {
 
+    // 订单游标分页固定按创建时间倒序，id保证同一时刻的订单顺序唯一
+    public static final Map<String, Class<?>> CURSOR_SORT_KEYS = Map.of(
+            "createdAt", LocalDateTime.class,
+            "id", Long.class);
+
+    public static final Sort CURSOR_SORT = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -35,49 +51,99 @@ public class OrderService {
     @Autowired
     private ProductService productService;
 
-    public Page<Order> getUserOrders(Long userId, Pageable pageable) {
-        return orderRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+
+    @Autowired
+    private ItemSimilarityIndex itemSimilarityIndex;
+
+    /**
+     * 订单列表：一条查询取一页订单，一条投影查询取这一页的全部订单项，与页大小无关（分页总数另有一条count）
+     */
+    @Transactional(readOnly = true)
+    public Page<OrderView> getUserOrders(Long userId, Pageable pageable) {
+        Page<Order> orders = orderRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+        Map<Long, List<OrderItemView>> items = findItemViews(orders.getContent());
+        return orders.map(order -> OrderView.of(order, items.getOrDefault(order.getId(), List.of())));
+    }
+
+    @Transactional(readOnly = true)
+    public Window<OrderView> scrollUserOrders(Long userId, KeysetScrollPosition position, int limit) {
+        Window<Order> orders = orderRepository.findByUserId(userId, position, CURSOR_SORT, Limit.of(limit));
+        Map<Long, List<OrderItemView>> items = findItemViews(orders.getContent());
+        return orders.map(order -> OrderView.of(order, items.getOrDefault(order.getId(), List.of())));
     }
 
+    @Transactional(readOnly = true)
+    public long countUserOrders(Long userId) {
+        return orderRepository.countByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
     public Optional<Order> findById(Long id) {
         return orderRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Order> findByIdAndUserId(Long id, Long userId) {
         return orderRepository.findByIdAndUserId(id, userId);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Order> findByOrderNumber(String orderNumber) {
         return orderRepository.findByOrderNumber(orderNumber);
     }
 
-    public Order createOrderFromCart(Long userId, String shippingAddress, String paymentMethod, String notes) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("用户不存在"));
+    /**
+     * 订单详情，订单项和商品随订单一条查询取回
+     */
+    @Transactional(readOnly = true)
+    public Optional<OrderView> findOrderView(Long id, Long userId) {
+        return orderRepository.findWithItemsByIdAndUserId(id, userId).map(OrderView::of);
+    }
 
-        CartService.CartSummary cartSummary = cartService.getCartSummary(userId);
-        List<CartItem> cartItems = cartSummary.getItems();
+    @Transactional(readOnly = true)
+    public Optional<OrderView> findOrderViewByNumber(String orderNumber, Long userId) {
+        return orderRepository.findWithItemsByOrderNumberAndUserId(orderNumber, userId).map(OrderView::of);
+    }
+
+    /**
+     * 从购物车创建订单
+     * 
+     * 心理过程：
+     * 1. 购物车只查一次，商品随JOIN FETCH一并取回，金额和可用性在同一次遍历中算出
+     * 2. 同一商品的多个购物车项合并后，整单库存一条多行UPDATE扣减
+     * 3. 订单只保存一次，订单项随级联插入并按批次提交
+     */
+    public Order createOrderFromCart(Long userId, String shippingAddress, String paymentMethod, String notes) {
+        List<CartItem> cartItems = cartService.getCartItems(userId);
 
         if (cartItems.isEmpty()) {
             throw new IllegalArgumentException("购物车为空，无法创建订单");
         }
 
-        // 验证购物车商品可用性
-        if (!cartService.validateCartItems(userId)) {
-            throw new IllegalArgumentException("购物车中有商品不可用，请重新检查");
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        Map<Long, Integer> stockDeductions = new HashMap<>();
+        for (CartItem cartItem : cartItems) {
+            // 验证购物车商品可用性
+            if (!cartItem.isAvailable()) {
+                throw new IllegalArgumentException("购物车中有商品不可用，请重新检查");
+            }
+            totalAmount = totalAmount.add(cartItem.getSubtotal());
+            stockDeductions.merge(cartItem.getProduct().getId(), cartItem.getQuantity(), Integer::sum);
         }
 
+        // 减少库存
+        productService.decreaseStockBatch(stockDeductions);
+
         // 创建订单
-        String orderNumber = generateOrderNumber();
-        Order order = new Order(user, orderNumber, cartSummary.getTotalAmount(), shippingAddress);
+        User user = userRepository.getReferenceById(userId);
+        Order order = new Order(user, orderNumberGenerator.nextOrderNumber(), totalAmount, shippingAddress);
         order.setPaymentMethod(paymentMethod);
         order.setNotes(notes);
 
-        // 保存订单
-        order = orderRepository.save(order);
-
         // 创建订单项
-        List<OrderItem> orderItems = new ArrayList<>();
+        List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
         for (CartItem cartItem : cartItems) {
             Product product = cartItem.getProduct();
             OrderItem orderItem = new OrderItem(
@@ -88,22 +154,23 @@ public class OrderService {
             );
             orderItem.setSelectedAttributes(cartItem.getSelectedAttributes());
             orderItems.add(orderItem);
-
-            // 减少库存
-            productService.updateStock(product.getId(), -cartItem.getQuantity());
         }
-
         order.setItems(orderItems);
+
+        // 保存订单，订单项随级联批量插入
         order = orderRepository.save(order);
 
         // 清空购物车
         cartService.clearCart(userId);
 
+        // 共同购买计入商品相似度
+        itemSimilarityIndex.recordPurchaseAfterCommit(userId, stockDeductions.keySet());
+
         return order;
     }
 
     public Order updateOrderStatus(Long orderId, Order.OrderStatus status) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new IllegalArgumentException("订单不存在"));
 
         // 验证状态转换的合法性
@@ -128,7 +195,7 @@ public class OrderService {
     }
 
     public Order cancelOrder(Long userId, Long orderId) {
-        Order order = orderRepository.findByIdAndUserId(orderId, userId)
+        Order order = orderRepository.findWithItemsByIdAndUserId(orderId, userId)
                 .orElseThrow(() -> new IllegalArgumentException("订单不存在或无权限操作"));
 
         if (!order.canBeCancelled()) {
@@ -147,34 +214,43 @@ public class OrderService {
         return orderRepository.save(order);
     }
 
-    public List<Order> getUserOrdersByStatus(Long userId, Order.OrderStatus status) {
-        return orderRepository.findByUserIdAndStatusOrderByCreatedAtDesc(userId, status);
+    @Transactional(readOnly = true)
+    public List<OrderView> getUserOrdersByStatus(Long userId, Order.OrderStatus status) {
+        return toViews(orderRepository.findByUserIdAndStatusOrderByCreatedAtDesc(userId, status));
     }
 
-    public List<Order> getUserOrdersByDateRange(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
-        return orderRepository.findByUserIdAndDateRange(userId, startDate, endDate);
+    @Transactional(readOnly = true)
+    public List<OrderView> getUserOrdersByDateRange(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
+        return toViews(orderRepository.findByUserIdAndDateRange(userId, startDate, endDate));
     }
 
+    @Transactional(readOnly = true)
     public long getUserOrderCount(Long userId) {
         return orderRepository.countByUserId(userId);
     }
 
+    @Transactional(readOnly = true)
     public long getUserOrderCountByStatus(Long userId, Order.OrderStatus status) {
         return orderRepository.countByUserIdAndStatus(userId, status);
     }
 
-    private String generateOrderNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String randomSuffix = String.valueOf((int)(Math.random() * 1000));
-        String orderNumber = "ORD" + timestamp + String.format("%03d", Integer.parseInt(randomSuffix));
-        
-        // 确保订单号唯一
-        while (orderRepository.existsByOrderNumber(orderNumber)) {
-            randomSuffix = String.valueOf((int)(Math.random() * 1000));
-            orderNumber = "ORD" + timestamp + String.format("%03d", Integer.parseInt(randomSuffix));
+    private List<OrderView> toViews(List<Order> orders) {
+        Map<Long, List<OrderItemView>> items = findItemViews(orders);
+        return orders.stream()
+                .map(order -> OrderView.of(order, items.getOrDefault(order.getId(), List.of())))
+                .toList();
+    }
+
+    /**
+     * 一批订单的订单项按订单ID分组，整批只查一次
+     */
+    private Map<Long, List<OrderItemView>> findItemViews(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return Map.of();
         }
-        
-        return orderNumber;
+        List<Long> orderIds = orders.stream().map(Order::getId).toList();
+        return orderRepository.findItemViewsByOrderIds(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderItemView::getOrderId));
     }
 
     private void validateStatusTransition(Order.OrderStatus currentStatus, Order.OrderStatus newStatus) {
@@ -1,18 +1,47 @@
 package com.aicommerce.service;
 
+import com.aicommerce.cache.CatalogVersions;
+import com.aicommerce.cache.CategoryTreeCache;
+import com.aicommerce.cache.ProductCache;
+import com.aicommerce.cart.CartStore;
+import com.aicommerce.inventory.InventoryEngine;
+import com.aicommerce.leaderboard.Leaderboard;
+import com.aicommerce.leaderboard.ProductLeaderboards;
 import com.aicommerce.model.Product;
+import com.aicommerce.pagination.KeysetSpecifications;
 import com.aicommerce.model.Category;
+import com.aicommerce.recommendation.ItemSimilarityIndex;
+import com.aicommerce.recommendation.SimilarProduct;
 import com.aicommerce.repository.ProductRepository;
 import com.aicommerce.repository.CategoryRepository;
+import com.aicommerce.search.ProductFacetIndex;
+import com.aicommerce.search.ProductFullTextSearch;
+import com.aicommerce.search.ProductQuery;
+import com.aicommerce.search.ProductSearchIndex;
+import com.aicommerce.search.ProductSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.OffsetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 商品服务类
@@ -27,17 +56,62 @@ import java.util.Optional;
 @Transactional
 public class ProductService {
 
+    // 游标分页允许的排序字段及其类型，id作为最后的排序键保证顺序唯一
+    public static final Map<String, Class<?>> CURSOR_SORT_KEYS = Map.of(
+            "createdAt", LocalDateTime.class,
+            "price", BigDecimal.class,
+            "rating", BigDecimal.class,
+            "name", String.class,
+            "id", Long.class);
+
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductFullTextSearch productFullTextSearch;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private ProductLeaderboards productLeaderboards;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private ItemSimilarityIndex itemSimilarityIndex;
+
+    @Autowired
+    private CartStore cartStore;
+
     public Product createProduct(Product product) {
         if (product.getSku() != null && productRepository.existsBySku(product.getSku())) {
             throw new IllegalArgumentException("SKU已存在: " + product.getSku());
         }
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        // 新商品没有缓存可清，失效消息用于通知其他节点的搜索索引
+        productCache.evictAfterCommit(savedProduct.getId());
+        productSearchIndex.indexAfterCommit(savedProduct);
+        productFacetIndex.indexAfterCommit(savedProduct);
+        productLeaderboards.indexAfterCommit(savedProduct);
+        catalogVersions.bumpProductsAfterCommit();
+        return savedProduct;
     }
 
     public Product updateProduct(Product product) {
@@ -49,45 +123,222 @@ public class ProductService {
             throw new IllegalArgumentException("SKU已存在: " + product.getSku());
         }
 
-        return productRepository.save(product);
+        BigDecimal previousPrice = existingProduct.getEffectivePrice();
+        Product savedProduct = productRepository.save(product);
+        productCache.evictAfterCommit(savedProduct.getId());
+        inventoryEngine.refreshAfterCommit(savedProduct.getId());
+        if (savedProduct.getEffectivePrice().compareTo(previousPrice) != 0) {
+            cartStore.repriceAfterCommit(savedProduct.getId(), savedProduct.getEffectivePrice());
+        }
+        productSearchIndex.indexAfterCommit(savedProduct);
+        productFacetIndex.indexAfterCommit(savedProduct);
+        // 请求体里没有createdAt，榜单在提交后按数据库中的商品更新
+        productLeaderboards.refreshAfterCommit(savedProduct.getId());
+        catalogVersions.bumpProductsAfterCommit();
+        return savedProduct;
     }
 
+    /**
+     * 经多级缓存读取商品，返回的是只读快照，修改商品请走updateProduct
+     */
+    @Transactional(readOnly = true)
     public Optional<Product> findById(Long id) {
-        return productRepository.findById(id);
+        return productCache.get(id, productRepository::findById);
     }
 
+    @Transactional(readOnly = true)
     public Page<Product> findAllActiveProducts(Pageable pageable) {
         return productRepository.findByIsActiveTrue(pageable);
     }
 
+    /**
+     * 分类及其子孙分类下的在售商品
+     */
+    @Transactional(readOnly = true)
     public Page<Product> findProductsByCategory(Long categoryId, Pageable pageable) {
-        return productRepository.findByCategoryIdAndIsActiveTrue(categoryId, pageable);
+        return productRepository.findAll(
+                ProductSpecifications.inCategoryTree(categoryId, categoryTreeCache.current())
+                        .and(ProductSpecifications.isActive()),
+                pageable);
     }
 
+    @Transactional(readOnly = true)
     public Page<Product> searchProducts(String keyword, Pageable pageable) {
-        return productRepository.searchProducts(keyword, pageable);
+        if (!productSearchIndex.isReady() || pageable.isUnpaged()) {
+            return searchInDatabase(keyword, pageable);
+        }
+
+        // 倒排索引按相关度排好序，数据库只按主键取当前页
+        ProductSearchIndex.SearchResult result =
+                productSearchIndex.search(keyword, (int) pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(findAllInOrder(result.getProductIds()), pageable, result.getTotal());
+    }
+
+    /**
+     * 数据库侧的关键词搜索，按app.search.database.mode选择全文检索或LIKE查询
+     * 全文检索按相关度排序，忽略Pageable中的排序字段，与倒排索引的行为一致
+     */
+    private Page<Product> searchInDatabase(String keyword, Pageable pageable) {
+        if (!productFullTextSearch.isAvailable()) {
+            return productRepository.searchProducts(keyword, pageable);
+        }
+
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        ProductSearchIndex.SearchResult result = productFullTextSearch.search(keyword, offset, limit);
+        return new PageImpl<>(findAllInOrder(result.getProductIds()), pageable, result.getTotal());
+    }
+
+    /**
+     * 组合筛选：分类、价格区间、品牌、关键词可以同时生效
+     * 有关键词且索引就绪时按相关度排序，由倒排索引和分面位图在内存中完成筛选和分页；否则交给数据库
+     */
+    @Transactional(readOnly = true)
+    public Page<Product> findProducts(ProductQuery query, Pageable pageable) {
+        if (canSearchInMemory(query) && pageable.isPaged()) {
+            ProductSearchIndex.SearchResult result = productSearchIndex.search(query.getKeyword(),
+                    (int) pageable.getOffset(), pageable.getPageSize(), productFacetIndex.filter(query));
+            return new PageImpl<>(findAllInOrder(result.getProductIds()), pageable, result.getTotal());
+        }
+        return productRepository.findAll(ProductSpecifications.matching(query, categoryTreeCache.current()), pageable);
+    }
+
+    /**
+     * 组合筛选的游标分页，按排序键定位下一页，不做OFFSET扫描也不查总数
+     * rating可能为空，定位条件由KeysetSpecifications生成，Spring Data只负责从首页位置取一窗数据
+     */
+    @Transactional(readOnly = true)
+    public Window<Product> scrollProducts(ProductQuery query, KeysetScrollPosition position, Sort sort, int limit) {
+        Specification<Product> spec = ProductSpecifications.matching(query, categoryTreeCache.current())
+                .and(KeysetSpecifications.after(position, sort));
+        return productRepository.findBy(spec, q -> q.sortBy(sort).limit(limit).scroll(ScrollPosition.keyset()));
     }
 
+    /**
+     * 关键词搜索的游标分页：结果按相关度排序，没有稳定的键集，游标记录的是已读条数
+     * 倒排索引在内存中排序，按偏移取下一页不会产生数据库OFFSET扫描
+     */
+    @Transactional(readOnly = true)
+    public Window<Product> scrollSearchResults(ProductQuery query, OffsetScrollPosition position, int limit) {
+        if (!canSearchInMemory(query)) {
+            // 索引未就绪时退回数据库LIKE查询
+            return productRepository.findBy(ProductSpecifications.matching(query, categoryTreeCache.current()),
+                    q -> q.sortBy(Sort.by(Sort.Direction.DESC, "id")).limit(limit).scroll(position));
+        }
+
+        long offset = position.getOffset();
+        ProductSearchIndex.SearchResult result = productSearchIndex.search(query.getKeyword(),
+                (int) offset, limit, productFacetIndex.filter(query));
+        boolean hasNext = offset + result.getProductIds().size() < result.getTotal();
+        return Window.from(findAllInOrder(result.getProductIds()), OffsetScrollPosition.positionFunction(offset), hasNext);
+    }
+
+    @Transactional(readOnly = true)
+    public long countProducts(ProductQuery query) {
+        if (canSearchInMemory(query)) {
+            return productSearchIndex.search(query.getKeyword(), 0, 1, productFacetIndex.filter(query)).getTotal();
+        }
+        return productRepository.count(ProductSpecifications.matching(query, categoryTreeCache.current()));
+    }
+
+    /**
+     * 品牌、分类、价格区间的分面计数，索引未就绪时返回null
+     */
+    public ProductFacetIndex.FacetCounts countFacets(ProductQuery query) {
+        if (!productFacetIndex.isReady() || (query.hasKeyword() && !productSearchIndex.isReady())) {
+            return null;
+        }
+        long[] keywordHits = query.hasKeyword() ? productSearchIndex.matchingProductIds(query.getKeyword()) : null;
+        return productFacetIndex.count(keywordHits, query);
+    }
+
+    private boolean canSearchInMemory(ProductQuery query) {
+        return query.hasKeyword() && productSearchIndex.isReady()
+                && (!query.hasAttributeFilters() || productFacetIndex.isReady());
+    }
+
+    /**
+     * 按主键批量取商品，并保持传入ID的顺序，已下架的跳过
+     */
+    private List<Product> findAllInOrder(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> productsById = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(product -> product != null && Boolean.TRUE.equals(product.getIsActive()))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
     public Page<Product> findProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
         return productRepository.findByPriceRange(minPrice, maxPrice, pageable);
     }
 
+    @Transactional(readOnly = true)
     public Page<Product> findProductsByBrand(String brand, Pageable pageable) {
         return productRepository.findByBrand(brand, pageable);
     }
 
+    /**
+     * 常被同一批用户浏览、加购和购买的商品，按相似度降序，已下架的跳过
+     * 
+     * 邻居来自内存中的相似度索引，商品经多级缓存读取，不需要开启事务
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<Product> findSimilarProducts(Long productId, int limit) {
+        List<SimilarProduct> neighbors = itemSimilarityIndex.similar(productId, limit);
+        List<Product> products = new ArrayList<>(neighbors.size());
+        for (SimilarProduct neighbor : neighbors) {
+            findById(neighbor.getProductId())
+                    .filter(product -> Boolean.TRUE.equals(product.getIsActive()))
+                    .ifPresent(products::add);
+        }
+        return products;
+    }
+
+    /**
+     * 评分榜、有货榜和最新榜从预排序的榜单按排名取商品ID，商品经多级缓存读取，不需要开启事务；
+     * 榜单未就绪时退回数据库排序查询
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Page<Product> findTopRatedProducts(Pageable pageable) {
-        return productRepository.findTopRatedProducts(pageable);
+        Page<Product> ranked = findRanked(Leaderboard.TOP_RATED, pageable);
+        return ranked != null ? ranked : productRepository.findTopRatedProducts(pageable);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Page<Product> findInStockProducts(Pageable pageable) {
-        return productRepository.findInStockProducts(pageable);
+        Page<Product> ranked = findRanked(Leaderboard.IN_STOCK, pageable);
+        return ranked != null ? ranked : productRepository.findInStockProducts(pageable);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<Product> findLatestProducts() {
-        return productRepository.findTop10ByIsActiveTrueOrderByCreatedAtDesc();
+        Page<Product> ranked = findRanked(Leaderboard.LATEST, PageRequest.of(0, 10));
+        return ranked != null ? ranked.getContent() : productRepository.findTop10ByIsActiveTrueOrderByCreatedAtDesc();
+    }
+
+    private Page<Product> findRanked(Leaderboard board, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return null;
+        }
+        ProductLeaderboards.Ranking ranking = productLeaderboards.page(board, pageable.getOffset(), pageable.getPageSize());
+        if (ranking == null) {
+            return null;
+        }
+        List<Product> products = new ArrayList<>(ranking.getProductIds().length);
+        for (long productId : ranking.getProductIds()) {
+            findById(productId)
+                    .filter(product -> Boolean.TRUE.equals(product.getIsActive()))
+                    .ifPresent(products::add);
+        }
+        return new PageImpl<>(products, pageable, ranking.getTotal());
     }
 
+    @Transactional(readOnly = true)
     public List<String> getAllBrands() {
         return productRepository.findAllBrands();
     }
@@ -97,25 +348,43 @@ public class ProductService {
                 .orElseThrow(() -> new IllegalArgumentException("商品不存在"));
         product.setIsActive(false);
         productRepository.save(product);
+        productCache.evictAfterCommit(id);
+        productSearchIndex.removeAfterCommit(id);
+        productFacetIndex.removeAfterCommit(id);
+        productLeaderboards.removeAfterCommit(id);
+        catalogVersions.bumpProductsAfterCommit();
     }
 
+    /**
+     * 调整库存：负数扣减、正数补货，经库存引擎原子更新，不再读-改-写实体
+     */
     public void updateStock(Long productId, int quantity) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("商品不存在"));
-        
         if (quantity < 0) {
-            product.decreaseStock(-quantity);
-        } else {
-            product.increaseStock(quantity);
+            inventoryEngine.deduct(productId, -quantity);
+        } else if (quantity > 0) {
+            inventoryEngine.restock(productId, quantity);
         }
-        
-        productRepository.save(product);
+        productCache.evictAfterCommit(productId);
+        productLeaderboards.refreshAfterCommit(productId);
+        catalogVersions.bumpProductsAfterCommit();
     }
 
+    /**
+     * 整单批量扣减库存，key为商品ID，value为扣减数量
+     */
+    public void decreaseStockBatch(Map<Long, Integer> quantities) {
+        inventoryEngine.deductAll(quantities);
+        quantities.keySet().forEach(productCache::evictAfterCommit);
+        // 只有库存可能扣到0的商品才会离开有货榜，其余不必重新读取
+        quantities.keySet().stream()
+                .filter(productId -> inventoryEngine.getAvailable(productId) <= 0)
+                .forEach(productLeaderboards::refreshAfterCommit);
+        catalogVersions.bumpProductsAfterCommit();
+    }
+
+    @Transactional(readOnly = true)
     public boolean checkStock(Long productId, int requiredQuantity) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("商品不存在"));
-        return product.getStockQuantity() >= requiredQuantity;
+        return inventoryEngine.getAvailable(productId) >= requiredQuantity;
     }
 
     public void updateRating(Long productId, BigDecimal newRating, int reviewCount) {
@@ -125,5 +394,8 @@ public class ProductService {
         product.setRating(newRating);
         product.setReviewCount(reviewCount);
         productRepository.save(product);
+        productCache.evictAfterCommit(productId);
+        productLeaderboards.indexAfterCommit(product);
+        catalogVersions.bumpProductsAfterCommit();
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.aicommerce.service;
 
 import com.aicommerce.model.User;
 import com.aicommerce.repository.UserRepository;
+import com.aicommerce.security.TokenRevocationRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -31,10 +32,16 @@ public class UserService implements UserDetailsService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsernameOrEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
+        // 分别走用户名、邮箱的唯一索引，含@的标识优先按邮箱查找
+        Optional<User> found = username.indexOf('@') >= 0
+                ? userRepository.findByEmail(username).or(() -> userRepository.findByUsername(username))
+                : userRepository.findByUsername(username).or(() -> userRepository.findByEmail(username));
+        User user = found.orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
         
         if (!user.getIsActive()) {
             throw new UsernameNotFoundException("用户已被禁用: " + username);
@@ -116,6 +123,7 @@ public class UserService implements UserDetailsService {
         
         user.setIsActive(false);
         userRepository.save(user);
+        tokenRevocationRegistry.revokeAfterCommit(user.getUsername());
     }
 
     public void activateUser(Long userId) {
@@ -124,6 +132,7 @@ public class UserService implements UserDetailsService {
         
         user.setIsActive(true);
         userRepository.save(user);
+        tokenRevocationRegistry.restoreAfterCommit(user.getUsername());
     }
 
     public long getActiveUserCount() {
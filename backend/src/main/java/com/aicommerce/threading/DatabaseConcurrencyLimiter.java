@@ -0,0 +1,124 @@
+package com.aicommerce.threading;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 数据库并发限流
+ *
+ * 心理过程：
+ * 1. 虚拟线程下请求线程不再受Tomcat线程池限制，成千上万个请求会同时涌向只有十个连接的连接池
+ * 2. 在连接池前加一个许可数等于连接池大小的公平信号量，拿到许可的线程才去借连接，
+ *    其余线程按先来后到在信号量上挂起，虚拟线程挂起时会让出载体线程
+ * 3. 连接关闭时归还许可，每个连接只归还一次；等待超过超时时间抛出瞬时连接异常，与连接池超时的表现一致
+ * 4. 默认跟随虚拟线程开关，平台线程下Tomcat线程数本身就是并发上限
+ */
+@Component
+public class DatabaseConcurrencyLimiter implements BeanPostProcessor {
+
+    @Value("${app.database.concurrency-limit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.database.concurrency-limit.permits:${spring.datasource.hikari.maximum-pool-size:10}}")
+    private int permits;
+
+    @Value("${app.database.concurrency-limit.acquire-timeout:${spring.datasource.hikari.connection-timeout:30000}}")
+    private Duration acquireTimeout;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof DataSource dataSource) || bean instanceof LimitedDataSource) {
+            return bean;
+        }
+        return new LimitedDataSource(dataSource, new Semaphore(permits, true), acquireTimeout.toNanos());
+    }
+
+    static final class LimitedDataSource extends DelegatingDataSource {
+
+        private final Semaphore semaphore;
+        private final long acquireTimeoutNanos;
+
+        LimitedDataSource(DataSource target, Semaphore semaphore, long acquireTimeoutNanos) {
+            super(target);
+            this.semaphore = semaphore;
+            this.acquireTimeoutNanos = acquireTimeoutNanos;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            acquire();
+            try {
+                return limited(obtainTargetDataSource().getConnection());
+            } catch (SQLException | RuntimeException e) {
+                semaphore.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            acquire();
+            try {
+                return limited(obtainTargetDataSource().getConnection(username, password));
+            } catch (SQLException | RuntimeException e) {
+                semaphore.release();
+                throw e;
+            }
+        }
+
+        private void acquire() throws SQLException {
+            try {
+                if (!semaphore.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    throw new SQLTransientConnectionException("等待数据库连接超时，数据库并发已达上限");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("等待数据库连接时被中断", e);
+            }
+        }
+
+        private Connection limited(Connection connection) {
+            AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                            try {
+                                connection.close();
+                            } finally {
+                                if (released.compareAndSet(false, true)) {
+                                    semaphore.release();
+                                }
+                            }
+                            return null;
+                        }
+                        if ("isClosed".equals(method.getName()) && released.get()) {
+                            return true;
+                        }
+                        if ("equals".equals(method.getName())) {
+                            return proxy == args[0];
+                        }
+                        if ("hashCode".equals(method.getName())) {
+                            return System.identityHashCode(proxy);
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.aicommerce.threading;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 虚拟线程钉住诊断
+ *
+ * 心理过程：
+ * 1. 虚拟线程在synchronized块或本地方法中阻塞时会钉住载体线程，载体线程数只有CPU核数，钉住多了吞吐会塌
+ * 2. 进程内订阅JFR的jdk.VirtualThreadPinned事件，不需要额外的启动参数，也不写录制文件
+ * 3. 每次钉住计入jvm.threads.virtual.pinned计时器，日志打印发生位置的前几层调用栈，
+ *    常见来源是连接池和驱动里的synchronized、Caffeine写入时的ConcurrentHashMap.compute
+ * 4. 只在JDK 21及以上且开启虚拟线程时启动
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.threads.pinning-monitor.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.threads.pinning-monitor.threshold:20ms}")
+    private Duration threshold;
+
+    private RecordingStream stream;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (Runtime.version().feature() < 21) {
+            log.info("当前JDK {} 不支持虚拟线程，跳过钉住诊断", Runtime.version().feature());
+            return;
+        }
+
+        Timer pinned = meterRegistry.timer("jvm.threads.virtual.pinned");
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, event -> {
+            pinned.record(event.getDuration());
+            log.warn("虚拟线程被钉住 {}ms:\n{}", event.getDuration().toMillis(), topFrames(event));
+        });
+        stream.startAsync();
+        log.info("虚拟线程钉住诊断已启动，阈值 {}", threshold);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private static String topFrames(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "\t(无调用栈)";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        return frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,174 @@
+package com.aicommerce.ai;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AI推荐客户端测试：本地起一个可控延迟的桩服务，校验对冲、缓存、超时降级和熔断
+ *
+ * 桩服务用JDK自带的HttpServer，按模式决定每个请求的延迟，不依赖Python服务
+ */
+class AiRecommendationClientTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(500);
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(100);
+    private static final long SLOW_MILLIS = 2_000;
+
+    private static final String RESPONSE =
+            "{\"success\":true,\"recommendations\":[{\"product_id\":42,\"score\":0.9,\"reason\":\"相似用户也喜欢\",\"source\":\"collaborative\"}],\"cached\":false}";
+
+    private enum Mode { FAST, ALTERNATE, SLOW }
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Mode mode = Mode.FAST;
+
+    private ExecutorService executor;
+    private HttpServer server;
+    private AiRecommendationClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ai-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/recommendations/", exchange -> {
+            int n = requests.incrementAndGet();
+            boolean slow = mode == Mode.SLOW || (mode == Mode.ALTERNATE && n % 2 == 1);
+            if (slow) {
+                sleep(SLOW_MILLIS);
+            }
+            reply(exchange);
+        });
+        server.start();
+
+        client = client("http://127.0.0.1:" + server.getAddress().getPort());
+        // 预热连接池和编解码器，首个请求的建连耗时可能超过对冲延迟
+        client.popular(1).block();
+        requests.set(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void secondCallIsServedFromCache() {
+        assertThat(sourceOf(client.forUser(1L, 10).block())).isEqualTo("collaborative");
+        assertThat(requests.getAndSet(0)).isEqualTo(1);
+
+        assertThat(sourceOf(client.forUser(1L, 10).block())).isEqualTo("collaborative");
+        assertThat(requests.get()).isZero();
+    }
+
+    @Test
+    void hedgedRequestAnswersWhenFirstRequestStalls() {
+        mode = Mode.ALTERNATE;
+
+        long begin = System.nanoTime();
+        List<Recommendation> hedged = client.forUser(2L, 10).block();
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - begin).toMillis();
+
+        assertThat(sourceOf(hedged)).isEqualTo("collaborative");
+        assertThat(requests.get()).isEqualTo(2);
+        assertThat(elapsedMillis).isLessThan(TIMEOUT.toMillis());
+    }
+
+    @Test
+    void slowServiceFallsBackWithinTimeout() {
+        mode = Mode.SLOW;
+
+        long begin = System.nanoTime();
+        List<Recommendation> fallback = client.forUser(100L, 10).block();
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - begin).toMillis();
+
+        assertThat(sourceOf(fallback)).isEqualTo(Recommendation.SOURCE_LOCAL_POPULAR);
+        assertThat(elapsedMillis).isLessThanOrEqualTo(TIMEOUT.plus(HEDGE_DELAY).toMillis() + 200);
+    }
+
+    @Test
+    void circuitOpensAfterRepeatedFailures() {
+        mode = Mode.SLOW;
+        for (long userId = 100; userId < 110; userId++) {
+            assertThat(sourceOf(client.forUser(userId, 10).block())).isEqualTo(Recommendation.SOURCE_LOCAL_POPULAR);
+        }
+        requests.set(0);
+
+        assertThat(sourceOf(client.forUser(200L, 10).block())).isEqualTo(Recommendation.SOURCE_LOCAL_POPULAR);
+        assertThat(requests.get()).isZero();
+    }
+
+    private static AiRecommendationClient client(String baseUrl) {
+        LocalPopularRecommendations localPopular = new LocalPopularRecommendations();
+        ReflectionTestUtils.setField(localPopular, "popular",
+                List.of(new Recommendation(7L, 4.8, "热门商品", Recommendation.SOURCE_LOCAL_POPULAR)));
+
+        AiRecommendationClient client = new AiRecommendationClient();
+        ReflectionTestUtils.setField(client, "webClientBuilder", WebClient.builder());
+        ReflectionTestUtils.setField(client, "localPopular", localPopular);
+        ReflectionTestUtils.setField(client, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(client, "baseUrl", baseUrl);
+        ReflectionTestUtils.setField(client, "timeout", TIMEOUT);
+        ReflectionTestUtils.setField(client, "connectTimeout", Duration.ofMillis(200));
+        ReflectionTestUtils.setField(client, "hedgeDelay", HEDGE_DELAY);
+        ReflectionTestUtils.setField(client, "maxConnections", 16);
+        ReflectionTestUtils.setField(client, "maxConcurrentCalls", 8);
+        ReflectionTestUtils.setField(client, "failureRateThreshold", 50f);
+        ReflectionTestUtils.setField(client, "waitInOpenState", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(client, "cacheTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(client, "cacheMaximumSize", 100L);
+        client.init();
+        return client;
+    }
+
+    private static String sourceOf(List<Recommendation> result) {
+        return result == null || result.isEmpty() ? null : result.get(0).getSource();
+    }
+
+    private static void reply(HttpExchange exchange) throws IOException {
+        byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // 客户端已超时或被对冲请求取消，连接已关闭
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.aicommerce.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 商品目录版本号测试，两个实例模拟两个节点，Redis频道由手工转发消息模拟
+ */
+class CatalogVersionsTest {
+
+    private StringRedisTemplate redisTemplate;
+    private CatalogVersions writer;
+    private CatalogVersions reader;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        writer = versions(redisTemplate);
+        reader = versions(mock(StringRedisTemplate.class));
+    }
+
+    @Test
+    void productBumpInvalidatesETagOnOtherNodes() {
+        String writerETag = writer.productsETag();
+        String readerETag = reader.productsETag();
+
+        writer.bumpProductsAfterCommit();
+        String message = publishedMessage();
+        reader.onVersionMessage(message);
+
+        assertThat(writer.productsETag()).isNotEqualTo(writerETag);
+        assertThat(reader.productsETag()).isNotEqualTo(readerETag);
+    }
+
+    @Test
+    void ownMessageIsIgnored() {
+        writer.bumpProductsAfterCommit();
+        String etag = writer.productsETag();
+
+        writer.onVersionMessage(publishedMessage());
+
+        assertThat(writer.productsETag()).isEqualTo(etag);
+    }
+
+    private String publishedMessage() {
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(CatalogVersions.VERSION_CHANNEL), message.capture());
+        return message.getValue();
+    }
+
+    private static CatalogVersions versions(StringRedisTemplate redisTemplate) {
+        CatalogVersions versions = new CatalogVersions();
+        ReflectionTestUtils.setField(versions, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(versions, "syncEnabled", true);
+        return versions;
+    }
+}
@@ -0,0 +1,119 @@
+package com.aicommerce.cache;
+
+import com.aicommerce.model.Category;
+import com.aicommerce.repository.CategoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分类树快照测试，数据库由内存中的分类列表模拟
+ */
+class CategoryTreeCacheTest {
+
+    private final List<Category> database = new ArrayList<>();
+    private CategoryRepository repository;
+    private StringRedisTemplate redisTemplate;
+    private final CatalogVersions catalogVersions = new CatalogVersions();
+    private CategoryTreeCache cache;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(CategoryRepository.class);
+        when(repository.findAll()).thenAnswer(invocation -> List.copyOf(database));
+        redisTemplate = mock(StringRedisTemplate.class);
+
+        cache = new CategoryTreeCache();
+        ReflectionTestUtils.setField(cache, "categoryRepository", repository);
+        ReflectionTestUtils.setField(cache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(cache, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(cache, "syncEnabled", true);
+        ReflectionTestUtils.setField(cache, "catalogVersions", catalogVersions);
+        cache.init();
+    }
+
+    @Test
+    void localChangePublishesInvalidation() {
+        database.add(category(1L, null));
+
+        cache.refreshAfterCommit();
+
+        assertThat(cache.current().find(1L)).isPresent();
+        verify(redisTemplate).convertAndSend(eq(CategoryTreeCache.INVALIDATION_CHANNEL), anyString());
+    }
+
+    @Test
+    void renumberingTakesTheLockBeforeReading() {
+        cache.refreshAfterCommit();
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).lockForTransaction(anyLong());
+        order.verify(repository).findAll();
+    }
+
+    @Test
+    void remoteChangeReloadsTree() {
+        database.add(category(1L, null));
+        cache.refreshAfterCommit();
+        database.add(category(2L, database.get(0)));
+
+        String etag = catalogVersions.categoriesETag();
+
+        cache.onInvalidationMessage("other-node");
+
+        assertThat(cache.current().find(2L)).isPresent();
+        assertThat(cache.current().find(1L).orElseThrow().getRight()).isEqualTo(1);
+        assertThat(catalogVersions.categoriesETag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void ownInvalidationIsIgnored() {
+        cache.onInvalidationMessage((String) ReflectionTestUtils.getField(cache, "nodeId"));
+
+        verify(repository, never()).findAll();
+    }
+
+    @Test
+    void staleReloadDoesNotReplaceNewerTree() {
+        database.add(category(1L, null));
+        List<Category> stale = List.copyOf(database);
+        // 远程重新加载读到旧数据期间，本节点提交了新的分类
+        AtomicBoolean remoteLoad = new AtomicBoolean(true);
+        when(repository.findAll()).thenAnswer(invocation -> {
+            if (!remoteLoad.getAndSet(false)) {
+                return List.copyOf(database);
+            }
+            database.add(category(2L, null));
+            cache.refreshAfterCommit();
+            return stale;
+        });
+
+        cache.onInvalidationMessage("other-node");
+
+        assertThat(cache.current().find(2L)).isPresent();
+    }
+
+    private static Category category(Long id, Category parent) {
+        Category category = new Category("分类" + id, null);
+        category.setId(id);
+        category.setParent(parent);
+        return category;
+    }
+}
@@ -0,0 +1,109 @@
+package com.aicommerce.cart;
+
+import com.aicommerce.repository.CartItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 购物车异步落库失败处理测试，Redis购物车存储和仓库均为模拟
+ */
+class CartWriteBehindTest {
+
+    private RedisCartStore cartStore;
+    private CartItemRepository cartItemRepository;
+    private CartWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        cartStore = mock(RedisCartStore.class);
+        cartItemRepository = mock(CartItemRepository.class);
+        when(cartStore.tryAcquireFlushLease(any())).thenReturn("token");
+
+        writeBehind = new CartWriteBehind();
+        ReflectionTestUtils.setField(writeBehind, "cartStore", cartStore);
+        ReflectionTestUtils.setField(writeBehind, "cartItemRepository", cartItemRepository);
+        ReflectionTestUtils.setField(writeBehind, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(writeBehind, "batchSize", 500);
+        ReflectionTestUtils.setField(writeBehind, "flushLease", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(writeBehind, "retryBackoff", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(writeBehind, "maxRetryBackoff", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(writeBehind, "maxAttempts", 3);
+    }
+
+    @Test
+    void failingCartIsBackedOffWhileHealthyCartIsFlushed() {
+        dirty(Map.of(1L, 7L, 2L, 3L));
+        failFor(1L, new DataIntegrityViolationException("bad line"));
+        when(cartStore.recordFlushFailure(eq(1L), any(), any())).thenReturn(1);
+
+        writeBehind.flush();
+
+        verify(cartStore).markClean(2L, 3L);
+        verify(cartStore, never()).markClean(eq(1L), anyLong());
+        verify(cartStore).recordFlushFailure(eq(1L), eq(Duration.ofSeconds(1)), eq(Duration.ofMinutes(5)));
+        verify(cartStore, never()).parkDirty(anyLong(), anyLong());
+    }
+
+    @Test
+    void cartIsParkedAfterTooManyDataErrors() {
+        dirty(Map.of(1L, 7L));
+        failFor(1L, new DataIntegrityViolationException("bad line"));
+        when(cartStore.recordFlushFailure(eq(1L), any(), any())).thenReturn(3);
+        when(cartStore.parkDirty(1L, 7L)).thenReturn(true);
+
+        writeBehind.flush();
+
+        verify(cartStore).parkDirty(1L, 7L);
+    }
+
+    @Test
+    void unavailableDatabaseOnlyBacksOff() {
+        dirty(Map.of(1L, 7L));
+        failFor(1L, new DataAccessResourceFailureException("connection refused"));
+        when(cartStore.recordFlushFailure(eq(1L), any(), any())).thenReturn(50);
+
+        writeBehind.flush();
+
+        verify(cartStore).recordFlushFailure(eq(1L), any(), any());
+        verify(cartStore, never()).parkDirty(anyLong(), anyLong());
+    }
+
+    private void dirty(Map<Long, Long> versions) {
+        Map<Long, Long> dirty = new LinkedHashMap<>(versions);
+        when(cartStore.dirtyUsers(anyInt())).thenReturn(dirty);
+        Map<Long, List<CartLine>> carts = new LinkedHashMap<>();
+        dirty.keySet().forEach(userId -> carts.put(userId, List.of()));
+        when(cartStore.snapshots(any())).thenReturn(carts);
+    }
+
+    private void failFor(Long userId, RuntimeException error) {
+        doAnswer(invocation -> {
+            if (invocation.<Map<Long, ?>>getArgument(0).containsKey(userId)) {
+                throw error;
+            }
+            return 0;
+        }).when(cartItemRepository).replaceCarts(anyMap());
+    }
+}
@@ -0,0 +1,130 @@
+package com.aicommerce.cart;
+
+import com.aicommerce.cache.ProductCache;
+import com.aicommerce.model.CartItem;
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.CartItemRepository;
+import com.aicommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redis购物车行ID分配测试，加入购物车脚本由内存中的行表模拟
+ */
+class RedisCartStoreTest {
+
+    private final AtomicLong sequence = new AtomicLong(1000);
+    private final Map<String, String> lines = new HashMap<>();
+    private final List<Long> removed = new ArrayList<>();
+    private final Set<Long> deletedProducts = new HashSet<>();
+    private CartItemRepository cartItemRepository;
+    private RedisCartStore store;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        cartItemRepository = mock(CartItemRepository.class);
+        when(cartItemRepository.reserveIds(anyInt())).thenAnswer(invocation -> LongStream
+                .rangeClosed(sequence.get() + 1, sequence.addAndGet(invocation.<Integer>getArgument(0)))
+                .boxed().toList());
+
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashes = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashes);
+        when(hashes.entries(anyString())).thenAnswer(invocation -> new HashMap<Object, Object>(lines));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            Object[] args = (Object[]) invocation.getRawArguments()[2];
+            if (invocation.getArgument(0) == ReflectionTestUtils.getField(RedisCartStore.class, "REMOVE_SCRIPT")) {
+                removed.add(Long.valueOf((String) args[0]));
+                lines.values().removeIf(value -> value.startsWith(args[0] + "|"));
+                return "OK";
+            }
+            String field = (String) args[0];
+            String id = lines.containsKey(field) ? lines.get(field).split("\\|")[0] : (String) args[7];
+            String value = id + "|" + args[1] + "|" + args[3] + "|" + args[3] + "|" + args[6];
+            lines.put(field, value);
+            return value;
+        });
+
+        ProductCache productCache = mock(ProductCache.class);
+        when(productCache.get(anyLong(), any())).thenAnswer(invocation -> deletedProducts.contains(invocation.<Long>getArgument(0))
+                ? Optional.empty() : Optional.of(product(invocation.getArgument(0))));
+
+        store = new RedisCartStore();
+        ReflectionTestUtils.setField(store, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(store, "cartItemRepository", cartItemRepository);
+        ReflectionTestUtils.setField(store, "productRepository", mock(ProductRepository.class));
+        ReflectionTestUtils.setField(store, "productCache", productCache);
+        ReflectionTestUtils.setField(store, "cartTtl", Duration.ofDays(7));
+        ReflectionTestUtils.setField(store, "lineIdBatchSize", 2);
+    }
+
+    @Test
+    void newLinesTakeIdsFromTheDatabaseSequence() {
+        CartItem first = store.addToCart(1L, 1L, 1, null);
+        CartItem second = store.addToCart(2L, 2L, 1, null);
+        CartItem third = store.addToCart(1L, 3L, 1, null);
+
+        assertThat(List.of(first.getId(), second.getId(), third.getId())).containsExactly(1001L, 1002L, 1003L);
+        verify(cartItemRepository, times(2)).reserveIds(2);
+    }
+
+    @Test
+    void addingToAnExistingLineKeepsTheReservedIdForTheNextLine() {
+        CartItem first = store.addToCart(1L, 1L, 1, null);
+        CartItem again = store.addToCart(1L, 1L, 2, null);
+        CartItem next = store.addToCart(1L, 2L, 1, null);
+
+        assertThat(again.getId()).isEqualTo(first.getId());
+        assertThat(next.getId()).isEqualTo(first.getId() + 1);
+    }
+
+    @Test
+    void cartTotalsSkipAndRemoveLinesWhoseProductIsGone() {
+        store.addToCart(1L, 1L, 2, null);
+        CartItem orphan = store.addToCart(1L, 2L, 3, null);
+        deletedProducts.add(2L);
+
+        CartContents cart = store.getCart(1L);
+
+        assertThat(cart.getItems()).extracting(item -> item.getProduct().getId()).containsExactly(1L);
+        assertThat(cart.getTotals().getItemCount()).isEqualTo(1);
+        assertThat(cart.getTotals().getTotalQuantity()).isEqualTo(2);
+        assertThat(cart.getTotals().getTotalAmount()).isEqualByComparingTo("19.80");
+        assertThat(removed).containsExactly(orphan.getId());
+    }
+
+    private static Product product(Long id) {
+        Product product = new Product("商品" + id, null, new BigDecimal("9.90"));
+        product.setId(id);
+        product.setStockQuantity(100);
+        return product;
+    }
+}
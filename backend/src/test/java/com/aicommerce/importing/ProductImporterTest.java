@@ -0,0 +1,82 @@
+package com.aicommerce.importing;
+
+import com.aicommerce.export.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductImporterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ValidatorFactory validatorFactory;
+    private ProductImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        importer = new ProductImporter();
+        ReflectionTestUtils.setField(importer, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(importer, "validator", validatorFactory.getValidator());
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void ndjsonRowOnlyMarksItsOwnKeysPresent() throws IOException {
+        Object first = stage(ExportFormat.NDJSON, "{\"sku\":\"A\",\"name\":\"手机\",\"price\":10,\"stockQuantity\":5}");
+        Object second = stage(ExportFormat.NDJSON, "{\"sku\":\"B\",\"name\":\"耳机\",\"price\":20,\"discountPrice\":null}");
+
+        assertThat(error(first)).isNull();
+        assertThat(present(first)).containsExactly("name", "price", "stockQuantity");
+        assertThat(error(second)).isNull();
+        assertThat(present(second)).containsExactly("name", "price", "discountPrice");
+    }
+
+    @Test
+    void emptyStockAndActiveFlagAreNotPresent() throws IOException {
+        Object row = stage(ExportFormat.CSV, "sku,name,price,brand,stockQuantity,isActive\nA,手机,10,,,\n");
+
+        assertThat(error(row)).isNull();
+        // 空品牌表示清空，空库存和上架状态表示保留原值
+        assertThat(present(row)).containsExactly("name", "price", "brand");
+    }
+
+    @Test
+    void overlongSkuAndBrandAreRowErrors() throws IOException {
+        String longValue = "x".repeat(101);
+        Object row = stage(ExportFormat.NDJSON,
+                "{\"sku\":\"" + longValue + "\",\"name\":\"手机\",\"price\":10,\"brand\":\"" + longValue + "\"}");
+
+        assertThat(error(row)).contains("SKU不能超过100个字符", "品牌不能超过100个字符");
+    }
+
+    private Object stage(ExportFormat format, String content) throws IOException {
+        try (ProductRowReader reader = ProductRowReader.open(format,
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), objectMapper)) {
+            return ReflectionTestUtils.invokeMethod(importer, "stage", reader.next(), null);
+        }
+    }
+
+    private static String error(Object stagedRow) {
+        return (String) ReflectionTestUtils.getField(stagedRow, "error");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> present(Object stagedRow) {
+        return (List<String>) ReflectionTestUtils.getField(stagedRow, "present");
+    }
+}
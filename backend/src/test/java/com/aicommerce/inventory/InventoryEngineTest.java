@@ -0,0 +1,231 @@
+package com.aicommerce.inventory;
+
+import com.aicommerce.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 库存引擎测试，数据库由内存中的库存表模拟，条件扣减与SQL语义一致
+ */
+class InventoryEngineTest {
+
+    private final Map<Long, AtomicInteger> database = new ConcurrentHashMap<>();
+    private InventoryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.findStockQuantityById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(database.get(invocation.<Long>getArgument(0)))
+                        .map(AtomicInteger::get));
+        when(repository.decreaseStock(anyLong(), anyInt()))
+                .thenAnswer(invocation -> decrease(invocation.getArgument(0), invocation.getArgument(1)));
+        when(repository.increaseStock(anyLong(), anyInt())).thenAnswer(invocation -> {
+            AtomicInteger stock = database.get(invocation.<Long>getArgument(0));
+            if (stock == null) {
+                return 0;
+            }
+            stock.addAndGet(invocation.getArgument(1));
+            return 1;
+        });
+        when(repository.decreaseStockBatch(any(long[].class), any(int[].class))).thenAnswer(invocation -> {
+            long[] productIds = invocation.getArgument(0);
+            int[] quantities = invocation.getArgument(1);
+            int updated = 0;
+            for (int i = 0; i < productIds.length; i++) {
+                updated += decrease(productIds[i], quantities[i]);
+            }
+            return updated;
+        });
+
+        engine = new InventoryEngine();
+        ReflectionTestUtils.setField(engine, "productRepository", repository);
+        ReflectionTestUtils.setField(engine, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(engine, "resyncInterval", Duration.ofSeconds(30));
+        engine.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void concurrentDeductionsNeverOversell() throws InterruptedException {
+        int stock = 1_000;
+        database.put(1L, new AtomicInteger(stock));
+        AtomicInteger succeeded = new AtomicInteger();
+
+        runConcurrently(32, 100, () -> {
+            try {
+                engine.deduct(1L, 1);
+                succeeded.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+                // 库存不足
+            }
+        });
+
+        assertThat(succeeded.get()).isEqualTo(stock);
+        assertThat(database.get(1L).get()).isZero();
+        assertThat(engine.getAvailable(1L)).isZero();
+    }
+
+    @Test
+    void concurrentBatchDeductionsNeverOversell() throws InterruptedException {
+        database.put(1L, new AtomicInteger(500));
+        database.put(2L, new AtomicInteger(300));
+        AtomicInteger succeeded = new AtomicInteger();
+
+        runConcurrently(16, 100, () -> {
+            try {
+                engine.deductAll(Map.of(1L, 1, 2L, 1));
+                succeeded.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+                // 库存不足
+            }
+        });
+
+        assertThat(succeeded.get()).isEqualTo(300);
+        assertThat(database.get(1L).get()).isEqualTo(200);
+        assertThat(database.get(2L).get()).isZero();
+        assertThat(engine.getAvailable(1L)).isEqualTo(200);
+        assertThat(engine.getAvailable(2L)).isZero();
+    }
+
+    @Test
+    void failedBatchResyncsCountersFromRolledBackState() {
+        database.put(1L, new AtomicInteger(10));
+        database.put(2L, new AtomicInteger(5));
+        engine.getAvailable(1L);
+        engine.getAvailable(2L);
+        // 其他节点卖光了商品2，本节点计数器还是5
+        database.get(2L).set(0);
+
+        Map<Long, Integer> committed = snapshot();
+        TransactionSynchronizationManager.initSynchronization();
+        assertThatThrownBy(() -> engine.deductAll(Map.of(1L, 3, 2L, 2)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // 事务回滚：商品1的部分扣减被撤销，之后才触发事务结束回调
+        committed.forEach((id, stock) -> database.get(id).set(stock));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(engine.getAvailable(1L)).isEqualTo(10);
+        assertThat(engine.getAvailable(2L)).isZero();
+    }
+
+    @Test
+    void rolledBackDeductionReturnsStockToCounter() {
+        database.put(1L, new AtomicInteger(10));
+        Map<Long, Integer> committed = snapshot();
+
+        TransactionSynchronizationManager.initSynchronization();
+        engine.deduct(1L, 4);
+        assertThat(engine.getAvailable(1L)).isEqualTo(6);
+
+        committed.forEach((id, stock) -> database.get(id).set(stock));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(engine.getAvailable(1L)).isEqualTo(10);
+    }
+
+    @Test
+    void restockOnAnotherNodeIsSeenByTheNextReservation() {
+        database.put(1L, new AtomicInteger(1));
+        engine.deduct(1L, 1);
+
+        // 其他节点补货，本节点的计数仍为0且未过期
+        database.get(1L).addAndGet(5);
+
+        engine.deduct(1L, 2);
+        assertThat(engine.getAvailable(1L)).isEqualTo(3);
+    }
+
+    @Test
+    void remoteChangeResyncsExistingCounter() {
+        database.put(1L, new AtomicInteger(10));
+        assertThat(engine.getAvailable(1L)).isEqualTo(10);
+
+        database.get(1L).set(4);
+        engine.onRemoteChange(1L);
+        assertThat(engine.getAvailable(1L)).isEqualTo(4);
+
+        database.remove(1L);
+        engine.onRemoteChange(1L);
+        engine.onRemoteChange(2L);
+        assertThatThrownBy(() -> engine.getAvailable(1L)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private int decrease(long productId, int quantity) {
+        AtomicInteger stock = database.get(productId);
+        if (stock == null) {
+            return 0;
+        }
+        int current;
+        do {
+            current = stock.get();
+            if (current < quantity) {
+                return 0;
+            }
+        } while (!stock.compareAndSet(current, current - quantity));
+        return 1;
+    }
+
+    private Map<Long, Integer> snapshot() {
+        Map<Long, Integer> snapshot = new HashMap<>();
+        database.forEach((id, stock) -> snapshot.put(id, stock.get()));
+        return snapshot;
+    }
+
+    private static void runConcurrently(int threads, int attemptsPerThread, Runnable attempt) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    attempt.run();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+    }
+}
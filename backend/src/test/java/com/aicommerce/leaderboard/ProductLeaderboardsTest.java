@@ -0,0 +1,115 @@
+package com.aicommerce.leaderboard;
+
+import com.aicommerce.cache.ProductCache;
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductLeaderboardsTest {
+
+    private ProductRepository productRepository;
+    private ProductLeaderboards leaderboards;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        leaderboards = leaderboards(new MemoryLeaderboardStore());
+    }
+
+    @Test
+    void rebuildKeepsChangesThatArriveWhileLoading() {
+        // 构建读到旧评分，读取期间其他节点提交的新评分先到达
+        when(productRepository.findByIsActiveTrue(any(Pageable.class))).thenAnswer(invocation -> {
+            leaderboards.onRemoteChange(1L);
+            return new PageImpl<>(List.of(product(1L, "1.00"), product(2L, "3.00")), invocation.getArgument(0), 2);
+        });
+        when(productRepository.findAllById(any())).thenReturn(List.of(product(1L, "5.00")));
+
+        leaderboards.rebuild();
+
+        assertThat(leaderboards.page(Leaderboard.TOP_RATED, 0, 10).getProductIds()).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void changesDuringReplaceAreReplayedAfterIt() {
+        LeaderboardStore store = mock(LeaderboardStore.class);
+        leaderboards = leaderboards(store);
+        when(store.tryLockRebuild(any())).thenReturn("token");
+        when(productRepository.findByIsActiveTrue(any(Pageable.class)))
+                .thenAnswer(invocation -> new PageImpl<>(List.of(product(1L, "1.00")), invocation.getArgument(0), 1));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product(1L, "5.00")));
+        doAnswer(invocation -> {
+            leaderboards.onRemoteChange(1L);
+            return null;
+        }).when(store).replaceAll(any(), any(), any());
+
+        leaderboards.rebuild();
+
+        verify(store).put(Leaderboard.TOP_RATED, 1L, 500L);
+        verify(store).unlockRebuild("token");
+    }
+
+    @Test
+    void sharedBoardsThatExistAreNotRebuilt() {
+        LeaderboardStore store = mock(LeaderboardStore.class);
+        leaderboards = leaderboards(store);
+        when(store.exists(any())).thenReturn(true);
+
+        leaderboards.rebuild();
+
+        assertThat(leaderboards.isReady()).isTrue();
+        verify(store, never()).tryLockRebuild(any(Duration.class));
+        verify(productRepository, never()).findByIsActiveTrue(any(Pageable.class));
+    }
+
+    @Test
+    void nodeWithoutTheLockWaitsForTheSharedBuild() {
+        LeaderboardStore store = mock(LeaderboardStore.class);
+        leaderboards = leaderboards(store);
+        when(store.tryLockRebuild(any())).thenReturn(null);
+
+        leaderboards.rebuild();
+
+        assertThat(leaderboards.isReady()).isFalse();
+        verify(store, never()).replaceAll(any(), any(), any());
+        verify(store, never()).put(any(), anyLong(), anyLong());
+
+        when(store.exists(any())).thenReturn(true);
+        assertThat(leaderboards.isReady()).isTrue();
+    }
+
+    private ProductLeaderboards leaderboards(LeaderboardStore store) {
+        ProductLeaderboards result = new ProductLeaderboards();
+        ReflectionTestUtils.setField(result, "productRepository", productRepository);
+        ReflectionTestUtils.setField(result, "productCache", mock(ProductCache.class));
+        ReflectionTestUtils.setField(result, "store", store);
+        ReflectionTestUtils.setField(result, "enabled", true);
+        return result;
+    }
+
+    private static Product product(Long id, String rating) {
+        Product product = new Product("商品" + id, null, BigDecimal.TEN);
+        product.setId(id);
+        product.setRating(new BigDecimal(rating));
+        product.setIsActive(true);
+        return product;
+    }
+}
@@ -0,0 +1,76 @@
+package com.aicommerce.pagination;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 游标编解码测试
+ */
+class ScrollCursorTest {
+
+    private static final Map<String, Class<?>> KEY_TYPES = Map.of(
+            "createdAt", LocalDateTime.class,
+            "rating", BigDecimal.class,
+            "id", Long.class);
+
+    private static final Sort BY_RATING = Sort.by(Sort.Direction.DESC, "rating", "id");
+    private static final Sort BY_CREATED_AT = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
+    @Test
+    void keysetCursorRoundTrips() {
+        String cursor = ScrollCursor.encode(ScrollPosition.forward(keys("rating", new BigDecimal("4.50"), "id", 42L)));
+
+        KeysetScrollPosition position = ScrollCursor.decodeKeyset(cursor, BY_RATING, KEY_TYPES);
+
+        assertThat(position.getKeys()).containsExactly(
+                Map.entry("rating", new BigDecimal("4.50")), Map.entry("id", 42L));
+    }
+
+    @Test
+    void nullSortKeyRoundTrips() {
+        String cursor = ScrollCursor.encode(ScrollPosition.forward(keys("rating", null, "id", 42L)));
+
+        KeysetScrollPosition position = ScrollCursor.decodeKeyset(cursor, BY_RATING, KEY_TYPES);
+
+        assertThat(position.getKeys()).containsEntry("rating", null).containsEntry("id", 42L);
+    }
+
+    @Test
+    void cursorFromAnotherSortIsRejected() {
+        String cursor = ScrollCursor.encode(ScrollPosition.forward(keys("rating", new BigDecimal("4.50"), "id", 42L)));
+
+        assertThatThrownBy(() -> ScrollCursor.decodeKeyset(cursor, BY_CREATED_AT, KEY_TYPES))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cursorWithMissingKeyIsRejected() {
+        String cursor = ScrollCursor.encode(ScrollPosition.forward(keys("id", 42L)));
+
+        assertThatThrownBy(() -> ScrollCursor.decodeKeyset(cursor, BY_RATING, KEY_TYPES))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void blankCursorIsFirstPage() {
+        assertThat(ScrollCursor.decodeKeyset("", BY_RATING, KEY_TYPES).isInitial()).isTrue();
+    }
+
+    private static Map<String, Object> keys(Object... pairs) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            keys.put((String) pairs[i], pairs[i + 1]);
+        }
+        return keys;
+    }
+}
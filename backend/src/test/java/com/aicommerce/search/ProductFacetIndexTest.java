@@ -0,0 +1,77 @@
+package com.aicommerce.search;
+
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductFacetIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        index = new ProductFacetIndex();
+        ReflectionTestUtils.setField(index, "productRepository", productRepository);
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "priceBoundaries", List.of(new BigDecimal("100")));
+        index.init();
+    }
+
+    @Test
+    void rebuildKeepsUpdatesThatArriveWhileLoading() {
+        // 构建读到旧品牌，读取期间提交的修改先到达
+        when(productRepository.findByIsActiveTrue(any(Pageable.class))).thenAnswer(invocation -> {
+            index.index(product(1L, "华为"));
+            return new PageImpl<>(List.of(product(1L, "小米")), invocation.getArgument(0), 1);
+        });
+
+        index.rebuild();
+
+        assertThat(brandFilter("华为").test(1L)).isTrue();
+        assertThat(brandFilter("小米").test(1L)).isFalse();
+    }
+
+    @Test
+    void remoteChangeReloadsOrRemovesTheProduct() {
+        index.index(product(1L, "华为"));
+        index.index(product(2L, "华为"));
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product(1L, "小米")));
+        when(productRepository.findById(2L)).thenReturn(Optional.empty());
+
+        index.onRemoteChange(1L);
+        index.onRemoteChange(2L);
+
+        assertThat(brandFilter("华为").test(1L)).isFalse();
+        assertThat(brandFilter("华为").test(2L)).isFalse();
+        assertThat(brandFilter("小米").test(1L)).isTrue();
+    }
+
+    private LongPredicate brandFilter(String brand) {
+        return index.filter(new ProductQuery(null, null, null, null, brand));
+    }
+
+    private static Product product(Long id, String brand) {
+        Product product = new Product("商品" + id, null, BigDecimal.TEN);
+        product.setId(id);
+        product.setBrand(brand);
+        product.setIsActive(true);
+        return product;
+    }
+}
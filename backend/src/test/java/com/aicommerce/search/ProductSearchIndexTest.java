@@ -0,0 +1,88 @@
+package com.aicommerce.search;
+
+import com.aicommerce.model.Product;
+import com.aicommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        index = new ProductSearchIndex();
+        ReflectionTestUtils.setField(index, "productRepository", productRepository);
+        ReflectionTestUtils.setField(index, "enabled", true);
+    }
+
+    @Test
+    void singleCjkCharacterMatchesAnyPosition() {
+        index.index(product(1L, "智能手机"));
+        index.index(product(2L, "机器人玩具"));
+        index.index(product(3L, "蓝牙耳麦"));
+
+        assertThat(index.search("机", 0, 10).getProductIds()).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void multiCharacterQueryDoesNotMatchSingleCharacters() {
+        index.index(product(1L, "智能手机"));
+        index.index(product(2L, "机器人玩具"));
+
+        assertThat(index.search("手机", 0, 10).getProductIds()).containsExactly(1L);
+    }
+
+    @Test
+    void rebuildKeepsUpdatesThatArriveWhileLoading() {
+        // 构建读到旧名称，读取期间提交的修改先到达
+        when(productRepository.findByIsActiveTrue(any(Pageable.class))).thenAnswer(invocation -> {
+            index.index(product(1L, "新款耳机"));
+            return new PageImpl<>(List.of(product(1L, "旧款音箱")), invocation.getArgument(0), 1);
+        });
+
+        index.rebuild();
+
+        assertThat(index.search("耳机", 0, 10).getProductIds()).containsExactly(1L);
+        assertThat(index.search("音箱", 0, 10).getTotal()).isZero();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void remoteChangeReloadsOrRemovesTheProduct() {
+        index.index(product(1L, "智能手机"));
+        index.index(product(2L, "手机壳"));
+
+        Product deactivated = product(1L, "智能手机");
+        deactivated.setIsActive(false);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(deactivated));
+        when(productRepository.findById(2L)).thenReturn(Optional.empty());
+
+        index.onRemoteChange(1L);
+        index.onRemoteChange(2L);
+
+        assertThat(index.search("手机", 0, 10).getTotal()).isZero();
+        assertThat(index.size()).isZero();
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product(name, null, BigDecimal.TEN);
+        product.setId(id);
+        product.setIsActive(true);
+        return product;
+    }
+}
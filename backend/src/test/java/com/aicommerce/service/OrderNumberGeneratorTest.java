@@ -0,0 +1,126 @@
+package com.aicommerce.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 订单号节点ID租用测试，Redis由内存中的键值表模拟，脚本按“值等于令牌才生效”的语义处理
+ */
+class OrderNumberGeneratorTest {
+
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> redis.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            Object[] raw = invocation.getRawArguments();
+            String key = ((List<String>) raw[1]).get(0);
+            String token = (String) ((Object[]) raw[2])[0];
+            if (!Objects.equals(redis.get(key), token)) {
+                return 0L;
+            }
+            if (((Object[]) raw[2]).length == 1) {
+                redis.remove(key);
+            }
+            return 1L;
+        });
+    }
+
+    @Test
+    void nodesWithTheSameDerivedIdLeaseDifferentNodeIds() {
+        // 同一进程内推导出的节点号必然相同，模拟两台主机名哈希冲突的节点
+        OrderNumberGenerator first = leasingGenerator();
+        OrderNumberGenerator second = leasingGenerator();
+
+        assertThat(first.getNodeId()).isNotEqualTo(second.getNodeId());
+        assertThat(redis).hasSize(2);
+    }
+
+    @Test
+    void releasedNodeIdCanBeLeasedAgain() {
+        OrderNumberGenerator first = leasingGenerator();
+        int nodeId = first.getNodeId();
+        first.releaseLease();
+
+        assertThat(redis).isEmpty();
+        assertThat(leasingGenerator().getNodeId()).isEqualTo(nodeId);
+    }
+
+    @Test
+    void lostLeaseMovesToAnotherNodeId() {
+        OrderNumberGenerator generator = leasingGenerator();
+        int nodeId = generator.getNodeId();
+        // 租约过期后被其他节点占用
+        redis.put("aicommerce:order-number:node:" + nodeId, "other-node");
+
+        generator.renewLease();
+
+        assertThat(generator.getNodeId()).isNotEqualTo(nodeId);
+        assertThat(generator.nextOrderNumber()).startsWith("ORD");
+    }
+
+    @Test
+    void expiredLeaseRefusesToIssueOrderNumbers() {
+        OrderNumberGenerator generator = leasingGenerator();
+        ReflectionTestUtils.setField(generator, "leaseExpiresAt", System.nanoTime() - 1);
+
+        assertThatThrownBy(generator::nextOrderNumber).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void startupFailsWhenNoNodeIdCanBeLeased() {
+        when(redisTemplate.opsForValue().setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertThatThrownBy(this::leasingGenerator)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("app.order-number.node-id");
+    }
+
+    @Test
+    void configuredNodeIdSkipsLeasing() {
+        OrderNumberGenerator generator = new OrderNumberGenerator();
+        ReflectionTestUtils.setField(generator, "configuredNodeId", 7);
+        ReflectionTestUtils.setField(generator, "leaseEnabled", true);
+        generator.init();
+
+        assertThat(generator.getNodeId()).isEqualTo(7);
+        assertThat(redis).isEmpty();
+    }
+
+    private OrderNumberGenerator leasingGenerator() {
+        OrderNumberGenerator generator = new OrderNumberGenerator();
+        ReflectionTestUtils.setField(generator, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(generator, "configuredNodeId", -1);
+        ReflectionTestUtils.setField(generator, "leaseEnabled", true);
+        ReflectionTestUtils.setField(generator, "leaseTtl", Duration.ofSeconds(60));
+        generator.init();
+        return generator;
+    }
+}
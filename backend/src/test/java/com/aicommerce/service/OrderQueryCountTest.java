@@ -0,0 +1,186 @@
+package com.aicommerce.service;
+
+import com.aicommerce.cart.JpaCartStore;
+import com.aicommerce.config.JacksonConfig;
+import com.aicommerce.model.CartItem;
+import com.aicommerce.model.Category;
+import com.aicommerce.model.Order;
+import com.aicommerce.model.OrderItem;
+import com.aicommerce.model.Product;
+import com.aicommerce.model.User;
+import com.aicommerce.repository.CartItemRepository;
+import com.aicommerce.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 订单和购物车读接口的SQL条数测试：按接口的方式序列化结果，语句数不随页大小增长
+ *
+ * H2内存库以PostgreSQL模式运行，jsonb定义为VARCHAR域，表结构由实体生成
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-queries;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;"
+                + "INIT=CREATE DOMAIN IF NOT EXISTS jsonb AS VARCHAR",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session.events.log=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(JacksonConfig.class)
+class OrderQueryCountTest {
+
+    private static final int ORDER_COUNT = 60;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int CART_LINES = 15;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private OrderService orderService;
+    private JpaCartStore cartStore;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderService();
+        ReflectionTestUtils.setField(orderService, "orderRepository", orderRepository);
+        cartStore = new JpaCartStore();
+        ReflectionTestUtils.setField(cartStore, "cartItemRepository", cartItemRepository);
+        userId = seed();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 20, 50})
+    void orderPageUsesConstantStatements(int size) {
+        // 订单、订单项，外加分页总数
+        assertThat(statements(() -> orderService.getUserOrders(userId, PageRequest.of(0, size)))).isLessThanOrEqualTo(3);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 20, 50})
+    void orderScrollUsesConstantStatements(int size) {
+        assertThat(statements(() -> orderService.scrollUserOrders(userId, ScrollPosition.keyset(), size)))
+                .isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void orderDetailUsesOneStatement() {
+        Long orderId = orderRepository.findByUserIdOrderByCreatedAtDesc(userId, PageRequest.of(0, 1))
+                .getContent().get(0).getId();
+
+        assertThat(statements(() -> orderService.findOrderView(orderId, userId).orElseThrow())).isEqualTo(1);
+    }
+
+    @Test
+    void cartViewUsesOneStatement() {
+        assertThat(statements(() -> cartStore.getCartItems(userId))).isEqualTo(1);
+    }
+
+    @Test
+    void entitySerializationGrowsWithPageSize() {
+        // 对照：实体直接序列化时逐个访问订单项和商品，语句数随页大小增长，说明统计口径有效
+        long small = statements(() -> touchItems(5));
+        long large = statements(() -> touchItems(20));
+
+        assertThat(large).isGreaterThan(small);
+    }
+
+    private Object touchItems(int size) {
+        orderRepository.findByUserIdOrderByCreatedAtDesc(userId, PageRequest.of(0, size))
+                .forEach(order -> order.getItems().forEach(item -> item.getProduct().getName()));
+        return null;
+    }
+
+    /**
+     * 清空一级缓存和统计后执行并序列化结果，返回预编译语句数
+     */
+    private long statements(Supplier<?> action) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Object result = action.get();
+        if (result != null) {
+            try {
+                objectMapper.writeValueAsString(result);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Long seed() {
+        User user = new User("buyer", "buyer@example.com", "password-hash");
+        entityManager.persist(user);
+
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            categories.add(entityManager.persist(new Category("分类" + i, null)));
+        }
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Product product = new Product("商品" + i, "描述" + i, BigDecimal.valueOf(10 + i));
+            product.setStockQuantity(100);
+            product.setCategory(categories.get(i % categories.size()));
+            products.add(entityManager.persist(product));
+        }
+
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            Order order = new Order(user, "ORD" + i, BigDecimal.TEN, "{}");
+            List<OrderItem> items = new ArrayList<>();
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                items.add(new OrderItem(order, products.get((i * ITEMS_PER_ORDER + j) % products.size()), 1,
+                        BigDecimal.ONE));
+            }
+            order.setItems(items);
+            entityManager.persist(order);
+        }
+
+        for (int i = 0; i < CART_LINES; i++) {
+            entityManager.persist(new CartItem(user, products.get(i), 1));
+        }
+        return user.getId();
+    }
+}
@@ -2,6 +2,9 @@
 -- 心理过程：设计电商核心实体关系，用户-商品-订单的经典三角关系
 -- 添加AI相关字段用于推荐算法和用户行为分析
 
+-- 商品名称、品牌的三元组相似度检索
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 -- 用户表
 CREATE TABLE users (
     id BIGSERIAL PRIMARY KEY,
@@ -25,7 +28,9 @@ CREATE TABLE categories (
     description TEXT,
     parent_id BIGINT REFERENCES categories(id),
     image_url VARCHAR(255),
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    tree_left INTEGER, -- 分类树先序编号，由应用启动和分类变更时维护
+    tree_right INTEGER -- 子树中最大的先序编号
 );
 
 -- 商品表
@@ -47,7 +52,13 @@ CREATE TABLE products (
     ai_features JSONB, -- AI提取的商品特征
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    is_active BOOLEAN DEFAULT true
+    is_active BOOLEAN DEFAULT true,
+    -- 全文检索向量：名称A、品牌和标签B、描述D
+    search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(brand, '')), 'B') ||
+        setweight(jsonb_to_tsvector('simple', coalesce(tags, '[]'::jsonb), '["string"]'), 'B') ||
+        setweight(to_tsvector('simple', coalesce(description, '')), 'D')) STORED
 );
 
 -- 购物车表
@@ -88,6 +99,9 @@ CREATE TABLE order_items (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- 订单项ID由应用按50个一批预分配，以便批量插入
+ALTER SEQUENCE order_items_id_seq INCREMENT BY 50;
+
 -- 商品评价表
 CREATE TABLE reviews (
     id BIGSERIAL PRIMARY KEY,
@@ -153,12 +167,31 @@ CREATE TABLE chat_messages (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- 商品批量导入检查点，应用启动时也会按IF NOT EXISTS创建
+CREATE TABLE product_import_checkpoints (
+    import_id VARCHAR(64) PRIMARY KEY,
+    rows_committed BIGINT NOT NULL, -- 已提交到第几条记录
+    inserted BIGINT NOT NULL,
+    updated BIGINT NOT NULL,
+    failed BIGINT NOT NULL,
+    completed BOOLEAN NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
 -- 创建索引以提高查询性能
-CREATE INDEX idx_products_category ON products(category_id);
-CREATE INDEX idx_products_price ON products(price);
-CREATE INDEX idx_products_rating ON products(rating);
+CREATE INDEX idx_categories_tree_left ON categories(tree_left);
+-- 列表游标分页的排序键，id放在最后保证顺序唯一
+CREATE INDEX idx_products_created_at_id ON products(created_at, id);
+CREATE INDEX idx_products_category_created_at_id ON products(category_id, created_at, id);
+CREATE INDEX idx_products_price_id ON products(price, id);
+CREATE INDEX idx_products_rating_id ON products(rating, id);
+CREATE INDEX idx_products_name_id ON products(name, id);
+-- 全文检索和拼写容错
+CREATE INDEX idx_products_search_vector ON products USING GIN (search_vector);
+CREATE INDEX idx_products_name_trgm ON products USING GIN (name gin_trgm_ops);
+CREATE INDEX idx_products_brand_trgm ON products USING GIN (brand gin_trgm_ops);
 CREATE INDEX idx_cart_items_user ON cart_items(user_id);
-CREATE INDEX idx_orders_user ON orders(user_id);
+CREATE INDEX idx_orders_user_created_at_id ON orders(user_id, created_at, id);
 CREATE INDEX idx_orders_status ON orders(status);
 CREATE INDEX idx_user_behaviors_user ON user_behaviors(user_id);
 CREATE INDEX idx_user_behaviors_type ON user_behaviors(behavior_type);